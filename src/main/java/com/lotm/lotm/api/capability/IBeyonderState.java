@@ -51,6 +51,21 @@ public interface IBeyonderState {
      */
     void tick(Player player);
 
+    // --- 感知档案 ---
+    /**
+     * 获取缓存的感知档案
+     * <p>
+     * 序列 / 途径 / 技能变化时标记失效；侦测与隐蔽属性每个实体 Tick 最多比对一次。
+     *
+     * @param owner 宿主玩家实体 (读取技能与属性)
+     */
+    PerceptionProfile getPerceptionProfile(Player owner);
+
+    /**
+     * 标记感知档案需要重建 (技能习得 / 遗忘 / 开关时由能力容器调用)
+     */
+    void invalidatePerception();
+
     // --- 数据同步 ---
     void copyFrom(IBeyonderState other);
     CompoundTag serializeNBT();
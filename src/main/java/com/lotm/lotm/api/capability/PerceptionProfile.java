@@ -0,0 +1,47 @@
+package com.lotm.lotm.api.capability;
+
+import net.minecraft.resources.ResourceLocation;
+
+/**
+ * 感知档案 (Perception Profile)
+ * <p>
+ * 职责：
+ * 1. 汇总一个玩家在感知相关判定中用到的全部数值：序列、途径、灵性直觉 / 灵视状态、
+ *    侦测与隐蔽属性，以及按途径倍率修正后的视线感知参数。
+ * 2. 由 {@link IBeyonderState#getPerceptionProfile} 缓存，只在序列、途径、技能或属性变化时重建，
+ *    热路径上只剩字段读取。
+ *
+ * @param hasIntuition       是否已习得并开启灵性直觉
+ * @param spiritVisionActive 是否开启灵视
+ * @param effectiveDetection 侦测值 + 灵视加成 (用于神秘学感知对抗)
+ * @param hitBuffer          视线感知：碰撞箱膨胀范围 (米)
+ * @param baseTriggerTicks   视线感知：基础触发延迟 (Ticks)
+ * @param maxDistance        视线感知：最大感知距离 (米)
+ */
+public record PerceptionProfile(
+        boolean beyonder,
+        int sequence,
+        ResourceLocation pathwayId,
+        boolean hasIntuition,
+        boolean spiritVisionActive,
+        double detection,
+        double concealment,
+        double effectiveDetection,
+        double hitBuffer,
+        int baseTriggerTicks,
+        double maxDistance
+) {
+    /**
+     * 缺少能力数据时的兜底档案 (普通人，无任何感知能力)
+     */
+    public static final PerceptionProfile NONE = new PerceptionProfile(
+            false, 9, new ResourceLocation("minecraft", "empty"), false, false,
+            0.0, 0.0, 0.0, 0.0, 60, 16.0);
+
+    /**
+     * 威胁评估使用的序列 (普通人按序列 10 计算)
+     */
+    public int threatSequence() {
+        return beyonder ? sequence : 10;
+    }
+}
@@ -5,6 +5,7 @@ import com.lotm.lotm.client.gui.SpiritualityOverlay;
 import com.lotm.lotm.client.gui.divination.BlockCategory;
 import com.lotm.lotm.client.gui.divination.DivinationCategoryRegistry;
 import com.lotm.lotm.client.gui.divination.EntityCategory;
+import com.lotm.lotm.client.gui.divination.TagCategory;
 import com.lotm.lotm.client.gui.overlay.SkillBarOverlay;
 import com.lotm.lotm.client.renderer.skill.SkillRendererRegistry;
 import com.lotm.lotm.client.renderer.skill.impl.DivinationSkillRenderer;
@@ -42,6 +43,10 @@ public class ClientModEvents {
             // 2. 注册占卜分类 (GUI Tabs)
             DivinationCategoryRegistry.register(new ResourceLocation(LotMMod.MODID, "blocks"), new BlockCategory());
             DivinationCategoryRegistry.register(new ResourceLocation(LotMMod.MODID, "entities"), new EntityCategory());
+            DivinationCategoryRegistry.register(new ResourceLocation(LotMMod.MODID, "density"),
+                    new BlockCategory("BLOCK_DENSITY", "gui.lotmmod.divination.tab.density"));
+            DivinationCategoryRegistry.register(new ResourceLocation(LotMMod.MODID, "block_tags"), TagCategory.blocks());
+            DivinationCategoryRegistry.register(new ResourceLocation(LotMMod.MODID, "entity_tags"), TagCategory.entities());
 
             LotMMod.LOGGER.info("Registered divination categories.");
         });
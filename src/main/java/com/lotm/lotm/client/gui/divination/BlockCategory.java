@@ -19,11 +19,18 @@ import java.util.List;
  *    getHoverName() 返回的是经过完整本地化处理的名称 (如 "橡木原木")，
  *    而 getDescription() 有时仅返回 Translation Key (如 "block.minecraft.oak_log")，
  *    这导致模糊搜索无法匹配中文字符。
+ * 2. 同一份方块列表也用于“数量占卜” (typeId = BLOCK_DENSITY)，只是标签页名称与占卜类型不同。
  */
 public class BlockCategory implements IDivinationCategory {
     private final List<TargetEntry> entries = new ArrayList<>();
+    private final String nameKey;
 
     public BlockCategory() {
+        this("BLOCK", "gui.lotmmod.divination.tab.blocks");
+    }
+
+    public BlockCategory(String typeId, String nameKey) {
+        this.nameKey = nameKey;
         for (Item item : ForgeRegistries.ITEMS) {
             // 仅添加方块物品
             if (item instanceof BlockItem blockItem) {
@@ -35,7 +42,7 @@ public class BlockCategory implements IDivinationCategory {
                 // ★★★ 核心修正：使用 getHoverName() 获取准确的本地化名称 ★★★
                 Component name = stack.getHoverName();
 
-                entries.add(new TargetEntry("BLOCK", ForgeRegistries.ITEMS.getKey(item), stack, name));
+                entries.add(new TargetEntry(typeId, ForgeRegistries.ITEMS.getKey(item), stack, name));
             }
         }
         // 按名称排序，方便查找
@@ -44,7 +51,7 @@ public class BlockCategory implements IDivinationCategory {
 
     @Override
     public Component getDisplayName() {
-        return Component.translatable("gui.lotmmod.divination.tab.blocks");
+        return Component.translatable(nameKey);
     }
 
     @Override
@@ -0,0 +1,112 @@
+package com.lotm.lotm.client.gui.divination;
+
+import net.minecraft.network.chat.Component;
+import net.minecraft.tags.TagKey;
+import net.minecraft.world.entity.EntityType;
+import net.minecraft.world.entity.MobCategory;
+import net.minecraft.world.item.Item;
+import net.minecraft.world.item.ItemStack;
+import net.minecraft.world.item.Items;
+import net.minecraft.world.level.block.Block;
+import net.minecraftforge.common.ForgeSpawnEggItem;
+import net.minecraftforge.common.MinecraftForge;
+import net.minecraftforge.event.TagsUpdatedEvent;
+import net.minecraftforge.eventbus.api.EventPriority;
+import net.minecraftforge.registries.ForgeRegistries;
+import net.minecraftforge.registries.tags.ITagManager;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Objects;
+import java.util.function.Supplier;
+
+/**
+ * 标签分类 (方块标签 / 实体标签)
+ * <p>
+ * 选中的标签会以 BLOCK_TAG / ENTITY_TAG 类型发送，服务端寻找标签中任意成员的最近一个。
+ * <p>
+ * 注意：标签在进入世界后才由服务端同步下来，注册分类时 (客户端启动阶段) 还不存在，
+ * 因此条目在首次打开时才生成，并在标签重新同步后重建。
+ */
+public class TagCategory implements IDivinationCategory {
+    private final String nameKey;
+    private final Supplier<List<TargetEntry>> builder;
+    private List<TargetEntry> entries = null;
+
+    private TagCategory(String nameKey, Supplier<List<TargetEntry>> builder) {
+        this.nameKey = nameKey;
+        this.builder = builder;
+        MinecraftForge.EVENT_BUS.addListener(EventPriority.NORMAL, false, TagsUpdatedEvent.class, event -> entries = null);
+    }
+
+    /**
+     * 方块标签：只列出至少有一个成员拥有物品形态的标签 (图标取第一个成员)
+     */
+    public static TagCategory blocks() {
+        return new TagCategory("gui.lotmmod.divination.tab.block_tags", () -> {
+            List<TargetEntry> list = new ArrayList<>();
+            ITagManager<Block> tags = ForgeRegistries.BLOCKS.tags();
+            if (tags == null) return list;
+
+            tags.getTagNames().forEach(tag -> {
+                ItemStack icon = tags.getTag(tag).stream()
+                        .map(Block::asItem)
+                        .filter(item -> item != Items.AIR)
+                        .findFirst()
+                        .map(ItemStack::new)
+                        .orElse(ItemStack.EMPTY);
+                if (!icon.isEmpty()) {
+                    list.add(new TargetEntry("BLOCK_TAG", tag.location(), icon, tagName(tag)));
+                }
+            });
+            return list;
+        });
+    }
+
+    /**
+     * 实体标签：排除只包含杂项实体 (如画、矿车) 的标签
+     */
+    public static TagCategory entities() {
+        return new TagCategory("gui.lotmmod.divination.tab.entity_tags", () -> {
+            List<TargetEntry> list = new ArrayList<>();
+            ITagManager<EntityType<?>> tags = ForgeRegistries.ENTITY_TYPES.tags();
+            if (tags == null) return list;
+
+            tags.getTagNames().forEach(tag -> {
+                List<EntityType<?>> members = tags.getTag(tag).stream()
+                        .filter(type -> type.getCategory() != MobCategory.MISC)
+                        .toList();
+                if (members.isEmpty()) return;
+
+                Item egg = members.stream()
+                        .map(ForgeSpawnEggItem::fromEntityType)
+                        .filter(Objects::nonNull)
+                        .findFirst()
+                        .map(Item.class::cast)
+                        .orElse(Items.NAME_TAG);
+                list.add(new TargetEntry("ENTITY_TAG", tag.location(), new ItemStack(egg), tagName(tag)));
+            });
+            return list;
+        });
+    }
+
+    private static Component tagName(TagKey<?> tag) {
+        return Component.literal("#" + tag.location());
+    }
+
+    @Override
+    public Component getDisplayName() {
+        return Component.translatable(nameKey);
+    }
+
+    @Override
+    public List<TargetEntry> getEntries() {
+        if (entries == null) {
+            entries = builder.get();
+            // 按名称排序，方便查找
+            entries.sort(Comparator.comparing(e -> e.name().getString()));
+        }
+        return entries;
+    }
+}
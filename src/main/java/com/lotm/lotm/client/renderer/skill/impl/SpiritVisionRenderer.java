@@ -5,7 +5,10 @@ import com.lotm.lotm.client.util.LotMClientColors;
 import com.lotm.lotm.client.util.VisualEffectHelper;
 import com.lotm.lotm.common.capability.AbilityContainerProvider;
 import com.lotm.lotm.content.skill.base.SpiritVision;
+import com.lotm.lotm.util.GazeKernel;
+import com.lotm.lotm.util.LineOfSight;
 import com.lotm.lotm.util.PerceptionEvaluator;
+import com.lotm.lotm.util.PlayerGazeHelper;
 import net.minecraft.client.gui.GuiGraphics;
 import net.minecraft.client.multiplayer.ClientLevel;
 import net.minecraft.core.particles.DustParticleOptions;
@@ -16,6 +19,8 @@ import net.minecraftforge.client.event.RenderLevelStageEvent;
 import org.joml.Vector3f;
 import org.joml.Vector4f;
 
+import java.util.ArrayList;
+import java.util.List;
 import java.util.Random;
 
 /**
@@ -25,6 +30,9 @@ import java.util.Random;
  * 1. 处理灵视状态下的粒子特效 (Spirit Particles)。
  * 2. 处理灵视状态下的全屏晕影 (HUD Vignette)。
  * <p>
+ * 粒子只在视野前方才看得见：范围内的生物先经 {@link GazeKernel} 批量做视锥粗筛，
+ * 只有视锥内的才进行视线射线与感知对抗检查。
+ * <p>
  * 注意：实体的 X-Ray 透视渲染逻辑由 {@link com.lotm.lotm.mixin.client.MixinLivingEntityRenderer} 处理。
  */
 public class SpiritVisionRenderer implements ISkillRenderer {
@@ -33,6 +41,13 @@ public class SpiritVisionRenderer implements ISkillRenderer {
     private static final float RENDER_RANGE = 32.0f;
     private static final Random RANDOM = new Random();
 
+    // 视锥粗筛：比屏幕视野宽一些，避免碰撞箱中心在视野外、身体仍露在边缘的生物被漏掉
+    private static final double CULL_COS = GazeKernel.cosThreshold(100.0);
+
+    // 每帧复用的候选列表与几何内核 (仅渲染线程访问)
+    private final List<LivingEntity> candidates = new ArrayList<>();
+    private final GazeKernel kernel = new GazeKernel();
+
     @Override
     public void renderLevel(RenderLevelStageEvent event, Player player) {
         // 性能检查：仅在特定渲染阶段执行
@@ -48,19 +63,33 @@ public class SpiritVisionRenderer implements ISkillRenderer {
 
         if (!isActive) return;
 
-        // 遍历渲染距离内的实体
+        // 遍历渲染距离内的实体，登记到几何内核
+        PlayerGazeHelper.ObserverView view = PlayerGazeHelper.ObserverView.of(player);
         for (Entity entity : level.entitiesForRendering()) {
             // 跳过自己
             if (entity == player) continue;
             // 仅针对生物
             if (!(entity instanceof LivingEntity livingTarget)) continue;
             // 距离检查 (平方距离更高效)
-            if (entity.distanceToSqr(player) > RENDER_RANGE * RENDER_RANGE) continue;
+            double distSqr = entity.distanceToSqr(player);
+            if (distSqr > RENDER_RANGE * RENDER_RANGE) continue;
+
+            candidates.add(livingTarget);
+            kernel.add(view, entity.getBoundingBox(), distSqr, 0.0, RENDER_RANGE);
+        }
+        if (candidates.isEmpty()) return;
+
+        // 批量视锥粗筛
+        kernel.compute(RENDER_RANGE, CULL_COS);
+
+        for (int i = 0; i < candidates.size(); i++) {
+            if (!kernel.isInCone(i)) continue;
+            LivingEntity livingTarget = candidates.get(i);
 
             // 粒子生成逻辑：
             // 如果玩家与目标之间有物理视线 (Line of Sight)，则生成少量粒子辅助判断。
             // 被遮挡的实体由 X-Ray Mixin 处理，此处不生成粒子以免穿模混乱。
-            if (player.hasLineOfSight(entity)) {
+            if (LineOfSight.hasLineOfSight(player, livingTarget)) {
 
                 // 感知对抗检查 (Detection vs Concealment)
                 if (!PerceptionEvaluator.canPerceive(player, livingTarget)) continue;
@@ -69,10 +98,13 @@ public class SpiritVisionRenderer implements ISkillRenderer {
                 if (RANDOM.nextFloat() < 0.2f) {
                     Vector4f color = VisualEffectHelper.getXRayColor(livingTarget);
                     Vector3f particleColor = new Vector3f(color.x, color.y, color.z);
-                    spawnSpiritParticles(level, entity, particleColor);
+                    spawnSpiritParticles(level, livingTarget, particleColor);
                 }
             }
         }
+
+        candidates.clear();
+        kernel.clear();
     }
 
     /**
@@ -37,8 +37,9 @@ public class ClientPacketHandler {
      * 修正：
      * 1. 方法签名增加了 int entityId。
      * 2. 触发 ClientDivinationRenderer 进行视觉高亮。
+     * 3. 数量占卜 (density >= 0) 的坐标只是最密集区域的大致中心，只画指向粒子，不高亮方块。
      */
-    public static void handleDivinationResult(boolean success, Component message, Vec3 targetPos, int entityId) {
+    public static void handleDivinationResult(boolean success, Component message, Vec3 targetPos, int entityId, int density) {
         Minecraft mc = Minecraft.getInstance();
         Player player = mc.player;
         if (player == null) return;
@@ -49,7 +50,9 @@ public class ClientPacketHandler {
         // 2. 视觉反馈 (粒子 + 高亮)
         if (success && targetPos != null) {
             // A. 触发高亮框
-            ClientDivinationRenderer.setHighlight(targetPos, entityId);
+            if (density < 0) {
+                ClientDivinationRenderer.setHighlight(targetPos, entityId);
+            }
 
             // B. 粒子特效
             // 起始点：眼睛位置 + 视线方向 * 1.0 (推远一点，防止在脑袋里生成看不到)
@@ -3,6 +3,7 @@ package com.lotm.lotm.client.util;
 import com.lotm.lotm.client.renderer.ClientDivinationRenderer;
 import com.lotm.lotm.common.capability.AbilityContainerProvider;
 import com.lotm.lotm.content.skill.base.SpiritVision;
+import com.lotm.lotm.util.LineOfSight;
 import com.lotm.lotm.util.PerceptionEvaluator;
 import com.mojang.blaze3d.vertex.PoseStack;
 import com.mojang.blaze3d.vertex.VertexConsumer;
@@ -60,7 +61,7 @@ public class VisualEffectHelper {
 
         if (!isSpiritVisionActive) return false;
 
-        if (player.hasLineOfSight(target)) return false;
+        if (LineOfSight.hasLineOfSight(player, target)) return false;
         if (!PerceptionEvaluator.canPerceive(player, target)) return false;
 
         return true;
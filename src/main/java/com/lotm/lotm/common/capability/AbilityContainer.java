@@ -1,8 +1,10 @@
 package com.lotm.lotm.common.capability;
 
 import com.lotm.lotm.api.capability.IAbilityContainer;
+import com.lotm.lotm.api.capability.IBeyonderState;
 import com.lotm.lotm.common.capability.skillbar.ISkillBarContainer;
 import com.lotm.lotm.common.registry.LotMSkills;
+import com.lotm.lotm.content.logic.ability.DangerSenseRegistry;
 import com.lotm.lotm.content.skill.AbstractSkill;
 import com.lotm.lotm.content.skill.SkillCastType;
 import net.minecraft.nbt.CompoundTag;
@@ -10,8 +12,10 @@ import net.minecraft.nbt.ListTag;
 import net.minecraft.nbt.StringTag;
 import net.minecraft.nbt.Tag;
 import net.minecraft.resources.ResourceLocation;
+import net.minecraft.server.level.ServerPlayer;
 import net.minecraft.world.entity.player.Player;
 
+import javax.annotation.Nullable;
 import java.util.*;
 
 /**
@@ -19,11 +23,17 @@ import java.util.*;
  * <p>
  * 负责管理玩家已习得的技能、冷却时间、持续状态以及预设栏位。
  * 实现了被动技能的缓存与开关逻辑。
+ * <p>
+ * 技能的习得 / 遗忘 / 开关发生变化时，会通知 {@link DangerSenseRegistry} 重新评估持有者。
  */
 public class AbilityContainer implements IAbilityContainer {
 
     public static final int MAX_PAGES = 5;
 
+    // 持有者 (用于变化通知，可为 null)
+    @Nullable
+    private final Player owner;
+
     // 已习得的技能列表
     private final List<ResourceLocation> learnedAbilities = new ArrayList<>();
 
@@ -43,6 +53,14 @@ public class AbilityContainer implements IAbilityContainer {
     // 技能激活时长映射 (Skill ID -> Ticks Active)
     private final Map<ResourceLocation, Integer> activeTimeMap = new HashMap<>();
 
+    public AbilityContainer() {
+        this(null);
+    }
+
+    public AbilityContainer(@Nullable Player owner) {
+        this.owner = owner;
+    }
+
     @Override
     public void learnAbility(ResourceLocation abilityId) {
         if (!learnedAbilities.contains(abilityId)) {
@@ -58,6 +76,7 @@ public class AbilityContainer implements IAbilityContainer {
             if (skill != null && skill.getCastType() == SkillCastType.PASSIVE) {
                 activateSkill(abilityId);
             }
+            onAbilitiesChanged();
         }
     }
 
@@ -72,6 +91,7 @@ public class AbilityContainer implements IAbilityContainer {
         for (Map<Integer, ResourceLocation> page : presets.values()) {
             page.values().removeIf(id -> id.equals(abilityId));
         }
+        onAbilitiesChanged();
     }
 
     /**
@@ -87,6 +107,7 @@ public class AbilityContainer implements IAbilityContainer {
         this.activeTimeMap.clear();
         this.presets.clear();
         // activePage 可以保留，也可以重置，这里选择保留用户习惯
+        onAbilitiesChanged();
     }
 
     @Override
@@ -121,6 +142,7 @@ public class AbilityContainer implements IAbilityContainer {
         if (hasAbility(abilityId)) {
             activeSkills.add(abilityId);
             activeTimeMap.put(abilityId, 0);
+            onAbilitiesChanged();
         }
     }
 
@@ -128,6 +150,7 @@ public class AbilityContainer implements IAbilityContainer {
     public void deactivateSkill(ResourceLocation abilityId) {
         activeSkills.remove(abilityId);
         activeTimeMap.remove(abilityId);
+        onAbilitiesChanged();
     }
 
     @Override
@@ -251,6 +274,7 @@ public class AbilityContainer implements IAbilityContainer {
             }
         }
         this.activePage = other.getActivePage();
+        onAbilitiesChanged();
     }
 
     @Override
@@ -338,6 +362,21 @@ public class AbilityContainer implements IAbilityContainer {
         }
 
         this.activePage = nbt.getInt("activePage");
+        onAbilitiesChanged();
+    }
+
+    /**
+     * 通知依赖技能状态的缓存与服务端注册表
+     * <p>
+     * 登录加载存档时玩家尚未建立连接，此时跳过注册表，由登录事件统一评估。
+     */
+    private void onAbilitiesChanged() {
+        if (owner != null) {
+            owner.getCapability(BeyonderStateProvider.CAPABILITY).ifPresent(IBeyonderState::invalidatePerception);
+        }
+        if (owner instanceof ServerPlayer serverPlayer && serverPlayer.connection != null) {
+            DangerSenseRegistry.update(serverPlayer, this);
+        }
     }
 
     /**
@@ -3,6 +3,7 @@ package com.lotm.lotm.common.capability;
 import com.lotm.lotm.api.capability.IAbilityContainer;
 import net.minecraft.core.Direction;
 import net.minecraft.nbt.CompoundTag;
+import net.minecraft.world.entity.player.Player;
 import net.minecraftforge.common.capabilities.Capability;
 import net.minecraftforge.common.capabilities.CapabilityManager;
 import net.minecraftforge.common.capabilities.CapabilityToken;
@@ -14,8 +15,17 @@ import org.jetbrains.annotations.Nullable;
 public class AbilityContainerProvider implements ICapabilitySerializable<CompoundTag> {
     public static final Capability<IAbilityContainer> CAPABILITY = CapabilityManager.get(new CapabilityToken<>() {});
 
-    private final IAbilityContainer backend = new AbilityContainer();
-    private final LazyOptional<IAbilityContainer> optional = LazyOptional.of(() -> backend);
+    private final IAbilityContainer backend;
+    private final LazyOptional<IAbilityContainer> optional;
+
+    public AbilityContainerProvider() {
+        this(null);
+    }
+
+    public AbilityContainerProvider(@Nullable Player owner) {
+        this.backend = new AbilityContainer(owner);
+        this.optional = LazyOptional.of(() -> backend);
+    }
 
     @Override
     public @NotNull <T> LazyOptional<T> getCapability(@NotNull Capability<T> cap, @Nullable Direction side) {
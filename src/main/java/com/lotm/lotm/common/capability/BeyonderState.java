@@ -1,16 +1,29 @@
 package com.lotm.lotm.common.capability;
 
+import com.lotm.lotm.api.capability.IAbilityContainer;
 import com.lotm.lotm.api.capability.IBeyonderState;
+import com.lotm.lotm.api.capability.PerceptionProfile;
 import com.lotm.lotm.common.config.LotMCommonConfig;
 import com.lotm.lotm.common.registry.LotMAttributes;
 import com.lotm.lotm.common.registry.LotMPathways;
+import com.lotm.lotm.common.registry.LotMSkills;
+import com.lotm.lotm.content.logic.ability.DangerSenseHandler;
+import com.lotm.lotm.content.logic.ability.MentionRegistry;
 import com.lotm.lotm.content.pathway.BeyonderPathway;
+import com.lotm.lotm.content.skill.base.SpiritVision;
 import net.minecraft.nbt.CompoundTag;
 import net.minecraft.resources.ResourceLocation;
+import net.minecraft.server.level.ServerPlayer;
 import net.minecraft.world.entity.ai.attributes.AttributeInstance;
 import net.minecraft.world.entity.player.Player;
 
+import javax.annotation.Nullable;
+
 public class BeyonderState implements IBeyonderState {
+    // 宿主玩家 (用于通知依赖序列的服务端注册表)
+    @Nullable
+    private final Player owner;
+
     private boolean isBeyonder = false;
     private ResourceLocation pathwayId = new ResourceLocation("minecraft", "empty");
     private int sequence = 9;
@@ -24,6 +37,19 @@ public class BeyonderState implements IBeyonderState {
     private int combatTimer = 0; // 战斗状态剩余 ticks (0 表示脱战)
     private int attributeUpdateTimer = 0; // 属性更新计时器 (新增)
 
+    // 感知档案缓存
+    private PerceptionProfile perception = null;
+    private boolean perceptionDirty = true;
+    private int perceptionCheckedTick = -1; // 上次比对属性时的实体 tickCount
+
+    public BeyonderState() {
+        this(null);
+    }
+
+    public BeyonderState(@Nullable Player owner) {
+        this.owner = owner;
+    }
+
     @Override
     public boolean isBeyonder() { return isBeyonder; }
 
@@ -122,6 +148,51 @@ public class BeyonderState implements IBeyonderState {
         }
     }
 
+    // --- 感知档案 ---
+
+    @Override
+    public PerceptionProfile getPerceptionProfile(Player owner) {
+        // 属性修正 (装备、药水等) 没有变化通知，每个实体 Tick 最多比对一次
+        if (perception != null && owner.tickCount != perceptionCheckedTick) {
+            perceptionCheckedTick = owner.tickCount;
+            if (perception.detection() != owner.getAttributeValue(LotMAttributes.SPIRITUAL_DETECTION.get())
+                    || perception.concealment() != owner.getAttributeValue(LotMAttributes.SPIRITUAL_CONCEALMENT.get())) {
+                perceptionDirty = true;
+            }
+        }
+
+        if (perception == null || perceptionDirty) {
+            perception = buildPerception(owner);
+            perceptionDirty = false;
+            perceptionCheckedTick = owner.tickCount;
+        }
+        return perception;
+    }
+
+    @Override
+    public void invalidatePerception() {
+        this.perceptionDirty = true;
+    }
+
+    private PerceptionProfile buildPerception(Player owner) {
+        IAbilityContainer abilities = owner.getCapability(AbilityContainerProvider.CAPABILITY).orElse(null);
+        boolean intuition = abilities != null
+                && abilities.hasAbility(LotMSkills.SPIRITUAL_INTUITION.getId())
+                && abilities.isSkillActive(LotMSkills.SPIRITUAL_INTUITION.getId());
+        boolean vision = abilities != null && abilities.isSkillActive(SpiritVision.ID);
+
+        double detection = owner.getAttributeValue(LotMAttributes.SPIRITUAL_DETECTION.get());
+        double concealment = owner.getAttributeValue(LotMAttributes.SPIRITUAL_CONCEALMENT.get());
+
+        // 灵视加成：序列 9 -> 10.0，序列 0 -> 100.0
+        double effectiveDetection = vision ? detection + (10 - sequence) * 10.0 : detection;
+
+        DangerSenseHandler.SenseConfig sense = DangerSenseHandler.getSensitivity(sequence, pathwayId);
+        return new PerceptionProfile(isBeyonder, sequence, pathwayId, intuition, vision,
+                detection, concealment, effectiveDetection,
+                sense.hitBuffer(), sense.baseTriggerTicks(), sense.maxDistance());
+    }
+
     /**
      * 根据当前途径和序列，更新 Attribute Base Value
      */
@@ -176,6 +247,12 @@ public class BeyonderState implements IBeyonderState {
 
     private void markDirty() {
         this.dirty = true;
+        this.perceptionDirty = true;
+
+        // 登录加载存档时玩家尚未建立连接，此时跳过，由登录事件统一评估
+        if (owner instanceof ServerPlayer serverPlayer && serverPlayer.connection != null) {
+            MentionRegistry.update(serverPlayer, this);
+        }
     }
 
     private void recalculateStatsIfNeeded() {
@@ -3,6 +3,7 @@ package com.lotm.lotm.common.capability;
 import com.lotm.lotm.api.capability.IBeyonderState;
 import net.minecraft.core.Direction;
 import net.minecraft.nbt.CompoundTag;
+import net.minecraft.world.entity.player.Player;
 import net.minecraftforge.common.capabilities.Capability;
 import net.minecraftforge.common.capabilities.CapabilityManager;
 import net.minecraftforge.common.capabilities.CapabilityToken;
@@ -14,8 +15,17 @@ import org.jetbrains.annotations.Nullable;
 public class BeyonderStateProvider implements ICapabilitySerializable<CompoundTag> {
     public static final Capability<IBeyonderState> CAPABILITY = CapabilityManager.get(new CapabilityToken<>() {});
 
-    private final IBeyonderState backend = new BeyonderState();
-    private final LazyOptional<IBeyonderState> optional = LazyOptional.of(() -> backend);
+    private final IBeyonderState backend;
+    private final LazyOptional<IBeyonderState> optional;
+
+    public BeyonderStateProvider() {
+        this(null);
+    }
+
+    public BeyonderStateProvider(@Nullable Player owner) {
+        this.backend = new BeyonderState(owner);
+        this.optional = LazyOptional.of(() -> backend);
+    }
 
     @Override
     public @NotNull <T> LazyOptional<T> getCapability(@NotNull Capability<T> cap, @Nullable Direction side) {
@@ -5,6 +5,7 @@ import com.lotm.lotm.common.capability.AbilityContainerProvider;
 import com.lotm.lotm.common.capability.BeyonderStateProvider;
 import com.lotm.lotm.common.event.CommonCapabilityEvents;
 import com.lotm.lotm.common.registry.LotMPathways;
+import com.lotm.lotm.content.logic.ability.GazeStats;
 import com.lotm.lotm.content.pathway.BeyonderPathway;
 import com.mojang.brigadier.CommandDispatcher;
 import com.mojang.brigadier.arguments.IntegerArgumentType;
@@ -29,6 +30,7 @@ import java.util.concurrent.atomic.AtomicInteger;
  * 模组指令注册类
  * <p>
  * 提供 /lotm init <pathway> [sequence] 指令。
+ * 提供 /lotm gazestats [reset] 指令 (查看视线感知流水线各阶段的拒绝计数)。
  * 完全数据驱动，支持动态参数和自动补全。
  */
 @Mod.EventBusSubscriber(modid = LotMMod.MODID)
@@ -71,9 +73,36 @@ public class LotMCommands {
                                 ))
                         )
                 )
+                .then(Commands.literal("gazestats")
+                        .executes(LotMCommands::handleGazeStats)
+                        .then(Commands.literal("reset")
+                                .executes(context -> {
+                                    GazeStats.reset();
+                                    context.getSource().sendSuccess(() -> Component.literal("§a[LotM] Gaze stats reset."), true);
+                                    return 1;
+                                })
+                        )
+                )
         );
     }
 
+    /**
+     * 输出视线感知流水线各阶段的拒绝计数 (按流水线顺序)
+     */
+    private static int handleGazeStats(CommandContext<CommandSourceStack> context) {
+        long total = GazeStats.total();
+        context.getSource().sendSuccess(() -> Component.literal(
+                String.format("§e[LotM] Gaze pipeline: %d pair checks", total)), false);
+
+        for (GazeStats.Stage stage : GazeStats.Stage.values()) {
+            long count = GazeStats.get(stage);
+            double percent = total == 0 ? 0.0 : count * 100.0 / total;
+            context.getSource().sendSuccess(() -> Component.literal(
+                    String.format("§7  %-12s %10d (%5.1f%%)", stage.name(), count, percent)), false);
+        }
+        return 1;
+    }
+
     /**
      * 核心初始化逻辑
      * <p>
@@ -3,6 +3,8 @@ package com.lotm.lotm.common.config;
 import net.minecraftforge.common.ForgeConfigSpec;
 import org.apache.commons.lang3.tuple.Pair;
 
+import java.util.List;
+
 /**
  * 通用配置 (Common Config)
  * 包含游戏逻辑、数值平衡等需要服务端同步的设置。
@@ -22,6 +24,16 @@ public class LotMCommonConfig {
     public final ForgeConfigSpec.DoubleValue spiritualityCostMultiplier;
     public final ForgeConfigSpec.IntValue baseSpiritualityRegen;
 
+    // ==================== 占卜 ====================
+    public final ForgeConfigSpec.ConfigValue<List<? extends String>> divinationIndexedBlocks;
+    public final ForgeConfigSpec.LongValue divinationScanBudgetNanos;
+    public final ForgeConfigSpec.BooleanValue divinationAsyncSearch;
+    public final ForgeConfigSpec.IntValue divinationWorkerThreads;
+
+    // ==================== 危险感知 ====================
+    public final ForgeConfigSpec.BooleanValue gazeAsyncEvaluation;
+    public final ForgeConfigSpec.IntValue gazeWorkerThreads;
+
     public LotMCommonConfig(ForgeConfigSpec.Builder builder) {
         builder.push("General_Settings");
 
@@ -50,5 +62,99 @@ public class LotMCommonConfig {
                 .defineInRange("BaseSpiritualityRegen", 1, 0, 1000);
 
         builder.pop();
+
+        builder.push("Divination_Settings");
+
+        divinationIndexedBlocks = builder
+                .comment(" ",
+                        "================================================================",
+                        " [Indexed Blocks]",
+                        " Blocks whose positions are indexed per loaded chunk, so divination",
+                        " and whispers can look them up without scanning the world.",
+                        " Accepts block ids (minecraft:spawner) or block tags (#forge:ores).",
+                        "----------------------------------------------------------------",
+                        " [索引方块]",
+                        " 在已加载区块中记录坐标的方块列表，占卜与呓语可直接查表而无需扫描世界。",
+                        " 支持方块 ID (minecraft:spawner) 或方块标签 (#forge:ores)。",
+                        "================================================================")
+                .translation("config.lotmmod.common.indexed_blocks")
+                .defineList("IndexedBlocks", List.of("#forge:ores", "minecraft:spawner"), o -> o instanceof String);
+
+        divinationScanBudgetNanos = builder
+                .comment(" ",
+                        "================================================================",
+                        " [Scan Budget (ns)]",
+                        " Time budget per server tick, in nanoseconds, shared by all",
+                        " divination scans for non-indexed blocks and density counts.",
+                        " Unfinished scans resume on the next tick.",
+                        "----------------------------------------------------------------",
+                        " [扫描预算 (纳秒)]",
+                        " 每个服务器 Tick 留给所有未索引方块占卜扫描与数量占卜的总时间 (纳秒)。",
+                        " 未完成的扫描会在下一 Tick 继续。",
+                        "================================================================")
+                .translation("config.lotmmod.common.scan_budget")
+                .defineInRange("ScanBudgetNanos", 2_000_000L, 50_000L, 50_000_000L);
+
+        divinationAsyncSearch = builder
+                .comment(" ",
+                        "================================================================",
+                        " [Async Search]",
+                        " Search non-indexed blocks and count density targets on worker threads",
+                        " over snapshots of the relevant chunk sections instead of time-slicing",
+                        " on the server thread.",
+                        "----------------------------------------------------------------",
+                        " [异步搜索]",
+                        " 对未索引方块的占卜与数量占卜，在工作线程上基于区块分段快照进行搜索，",
+                        " 而不是在服务器主线程上分时扫描。",
+                        "================================================================")
+                .translation("config.lotmmod.common.async_search")
+                .define("AsyncSearch", true);
+
+        divinationWorkerThreads = builder
+                .comment(" ",
+                        "================================================================",
+                        " [Worker Threads]",
+                        " Number of worker threads used by async divination search.",
+                        " Takes effect after a server restart.",
+                        "----------------------------------------------------------------",
+                        " [工作线程数]",
+                        " 异步占卜搜索使用的工作线程数量，重启服务器后生效。",
+                        "================================================================")
+                .translation("config.lotmmod.common.worker_threads")
+                .defineInRange("WorkerThreads", 2, 1, 16);
+
+        builder.pop();
+
+        builder.push("Danger_Sense_Settings");
+
+        gazeAsyncEvaluation = builder
+                .comment(" ",
+                        "================================================================",
+                        " [Async Gaze Evaluation]",
+                        " Evaluate gaze sensing on worker threads over a snapshot taken at",
+                        " the end of each tick. Results are applied one tick later; pairs",
+                        " the snapshot cannot decide fall back to the server thread.",
+                        "----------------------------------------------------------------",
+                        " [异步视线感知]",
+                        " 在工作线程上基于每 Tick 末采集的快照判定视线感知，结果延迟一 Tick 生效；",
+                        " 快照无法判断的配对回到服务器主线程处理。",
+                        "================================================================")
+                .translation("config.lotmmod.common.async_gaze")
+                .define("AsyncGazeEvaluation", false);
+
+        gazeWorkerThreads = builder
+                .comment(" ",
+                        "================================================================",
+                        " [Gaze Worker Threads]",
+                        " Number of worker threads used by async gaze evaluation.",
+                        " Takes effect after a server restart.",
+                        "----------------------------------------------------------------",
+                        " [视线感知工作线程数]",
+                        " 异步视线感知使用的工作线程数量，重启服务器后生效。",
+                        "================================================================")
+                .translation("config.lotmmod.common.gaze_worker_threads")
+                .defineInRange("GazeWorkerThreads", 2, 1, 16);
+
+        builder.pop();
     }
 }
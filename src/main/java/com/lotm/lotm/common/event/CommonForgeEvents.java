@@ -12,7 +12,6 @@ import com.lotm.lotm.common.network.packet.s2c.S2CSyncDivinationDataPacket;
 import com.lotm.lotm.common.network.packet.s2c.S2CSyncSkillBarPacket;
 import com.lotm.lotm.common.registry.LotMPathways;
 import com.lotm.lotm.common.registry.LotMSkills;
-import com.lotm.lotm.content.logic.ability.DangerSenseHandler;
 import com.lotm.lotm.content.pathway.BeyonderPathway;
 import com.lotm.lotm.content.skill.AbstractSkill;
 import net.minecraft.network.chat.Component;
@@ -42,12 +41,12 @@ public class CommonForgeEvents {
 
     @SubscribeEvent
     public static void onAttachCapabilitiesPlayer(AttachCapabilitiesEvent<Entity> event) {
-        if (event.getObject() instanceof Player) {
+        if (event.getObject() instanceof Player player) {
             if (!event.getObject().getCapability(BeyonderStateProvider.CAPABILITY).isPresent()) {
-                event.addCapability(new ResourceLocation(LotMMod.MODID, "beyonder_state"), new BeyonderStateProvider());
+                event.addCapability(new ResourceLocation(LotMMod.MODID, "beyonder_state"), new BeyonderStateProvider(player));
             }
             if (!event.getObject().getCapability(AbilityContainerProvider.CAPABILITY).isPresent()) {
-                event.addCapability(new ResourceLocation(LotMMod.MODID, "abilities"), new AbilityContainerProvider());
+                event.addCapability(new ResourceLocation(LotMMod.MODID, "abilities"), new AbilityContainerProvider(player));
             }
             if (!event.getObject().getCapability(SkillBarProvider.CAPABILITY).isPresent()) {
                 event.addCapability(new ResourceLocation(LotMMod.MODID, "skill_bar"), new SkillBarProvider());
@@ -241,19 +240,7 @@ public class CommonForgeEvents {
                 }
             });
 
-            // 3. 危险感知检测 (每 5 ticks / 0.25秒 执行一次)
-            if (serverPlayer.tickCount % 5 == 0) {
-                // 获取周围 64 格内的玩家作为潜在观察者
-                List<Player> nearbyPlayers = serverPlayer.level().getEntitiesOfClass(
-                        Player.class,
-                        serverPlayer.getBoundingBox().inflate(64.0)
-                );
-
-                for (Player observer : nearbyPlayers) {
-                    // 检查观察者是否正在注视当前玩家 (serverPlayer)
-                    DangerSenseHandler.checkGazeDanger(observer, serverPlayer);
-                }
-            }
+            // 3. 危险感知检测由 GazePass 按维度统一执行
         }
     }
 }
@@ -17,7 +17,8 @@ import net.minecraftforge.network.simple.SimpleChannel;
  * 遵循协议版本控制，确保客户端和服务端版本一致。
  */
 public class PacketHandler {
-    private static final String PROTOCOL_VERSION = "1";
+    // 包格式变化时递增 (2: S2CDivinationResultPacket 增加数量字段)
+    private static final String PROTOCOL_VERSION = "2";
 
     public static final SimpleChannel CHANNEL = NetworkRegistry.newSimpleChannel(
             new ResourceLocation(LotMMod.MODID, "main"),
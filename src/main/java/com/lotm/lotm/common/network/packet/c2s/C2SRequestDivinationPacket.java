@@ -1,6 +1,7 @@
 package com.lotm.lotm.common.network.packet.c2s;
 
 import com.lotm.lotm.common.registry.LotMRegistries;
+import com.lotm.lotm.content.logic.seer.divination.DivinationSessionManager;
 import net.minecraft.nbt.CompoundTag;
 import net.minecraft.network.FriendlyByteBuf;
 import net.minecraft.network.chat.Component;
@@ -50,6 +51,11 @@ public class C2SRequestDivinationPacket {
             tag.putString("DivinationType", targetType);
             tag.putString("DivinationTarget", targetId.toString());
 
+            // 激活中更换目标 -> 按新目标重建会话
+            if (tag.getBoolean("DivinationActive")) {
+                DivinationSessionManager.start(player, stack);
+            }
+
             player.displayClientMessage(Component.translatable("message.lotm.divination.target_set"), true);
         });
         ctx.get().setPacketHandled(true);
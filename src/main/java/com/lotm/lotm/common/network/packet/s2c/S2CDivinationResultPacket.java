@@ -16,6 +16,7 @@ import java.util.function.Supplier;
  * 2. 携带目标坐标 (用于生成指向性粒子和方块高亮)。
  * 3. 携带目标实体ID (用于实体高亮)。
  * 4. 携带是否成功标志。
+ * 5. 数量占卜时携带范围内的目标数量，此时目标坐标为最密集区域的中心 (只指方向，不高亮方块)。
  */
 public class S2CDivinationResultPacket {
 
@@ -23,8 +24,13 @@ public class S2CDivinationResultPacket {
     private final Component message;
     private final double targetX, targetY, targetZ;
     private final int targetEntityId; // -1 表示无实体目标或目标是方块
+    private final int density; // -1 表示不是数量占卜
 
     public S2CDivinationResultPacket(boolean success, Component message, Vec3 targetPos, int targetEntityId) {
+        this(success, message, targetPos, targetEntityId, -1);
+    }
+
+    public S2CDivinationResultPacket(boolean success, Component message, Vec3 targetPos, int targetEntityId, int density) {
         this.success = success;
         this.message = message;
         if (targetPos != null) {
@@ -37,6 +43,7 @@ public class S2CDivinationResultPacket {
             this.targetZ = 0;
         }
         this.targetEntityId = targetEntityId;
+        this.density = density;
     }
 
     public S2CDivinationResultPacket(FriendlyByteBuf buf) {
@@ -46,6 +53,7 @@ public class S2CDivinationResultPacket {
         this.targetY = buf.readDouble();
         this.targetZ = buf.readDouble();
         this.targetEntityId = buf.readInt();
+        this.density = buf.readVarInt();
     }
 
     public void encode(FriendlyByteBuf buf) {
@@ -55,6 +63,7 @@ public class S2CDivinationResultPacket {
         buf.writeDouble(targetY);
         buf.writeDouble(targetZ);
         buf.writeInt(targetEntityId);
+        buf.writeVarInt(density);
     }
 
     public void handle(Supplier<NetworkEvent.Context> ctx) {
@@ -64,11 +73,13 @@ public class S2CDivinationResultPacket {
             // 2. Component message
             // 3. Vec3 targetPos
             // 4. int entityId
+            // 5. int density
             ClientPacketHandler.handleDivinationResult(
                     success,
                     message,
                     new Vec3(targetX, targetY, targetZ),
-                    targetEntityId
+                    targetEntityId,
+                    density
             );
         });
         ctx.get().setPacketHandled(true);
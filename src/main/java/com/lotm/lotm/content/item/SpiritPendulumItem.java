@@ -3,6 +3,7 @@ package com.lotm.lotm.content.item;
 import com.lotm.lotm.client.gui.screen.DivinationSelectionScreen;
 import com.lotm.lotm.common.capability.BeyonderStateProvider;
 import com.lotm.lotm.content.logic.seer.divination.DivinationLogic;
+import com.lotm.lotm.content.logic.seer.divination.DivinationSessionManager;
 import net.minecraft.ChatFormatting;
 import net.minecraft.client.Minecraft;
 import net.minecraft.nbt.CompoundTag;
@@ -39,6 +40,7 @@ public class SpiritPendulumItem extends Item {
         if (tag.getBoolean("DivinationActive")) {
             if (!level.isClientSide) {
                 tag.putBoolean("DivinationActive", false);
+                if (player instanceof ServerPlayer serverPlayer) DivinationSessionManager.stop(serverPlayer);
                 player.sendSystemMessage(Component.translatable("message.lotm.divination.stop").withStyle(ChatFormatting.YELLOW));
                 level.playSound(null, player.getX(), player.getY(), player.getZ(),
                         SoundEvents.EXPERIENCE_ORB_PICKUP, SoundSource.PLAYERS, 0.5f, 0.5f);
@@ -130,6 +132,7 @@ public class SpiritPendulumItem extends Item {
         if (stack.getOrCreateTag().getBoolean("DivinationActive")) return;
 
         stack.getOrCreateTag().putBoolean("DivinationActive", true);
+        if (player instanceof ServerPlayer serverPlayer) DivinationSessionManager.start(serverPlayer, stack);
         level.playSound(null, player.getX(), player.getY(), player.getZ(),
                 SoundEvents.PLAYER_LEVELUP, SoundSource.PLAYERS, 0.5f, 1.0f);
         player.sendSystemMessage(Component.translatable("message.lotm.divination.start_continuous").withStyle(ChatFormatting.AQUA));
@@ -145,6 +148,7 @@ public class SpiritPendulumItem extends Item {
         boolean isHolding = (player.getMainHandItem() == stack) || (player.getOffhandItem() == stack);
         if (!isHolding) {
             tag.putBoolean("DivinationActive", false);
+            DivinationSessionManager.stop(player);
             player.sendSystemMessage(Component.translatable("message.lotm.divination.stop_unequipped").withStyle(ChatFormatting.RED));
             return;
         }
@@ -170,9 +174,11 @@ public class SpiritPendulumItem extends Item {
                 if (!keepRunning) {
                     // 如果返回 false (说明找不到目标了)，则自动关闭
                     tag.putBoolean("DivinationActive", false);
+                    DivinationSessionManager.stop(player);
                 }
             } else {
                 tag.putBoolean("DivinationActive", false);
+                DivinationSessionManager.stop(player);
                 player.sendSystemMessage(Component.translatable("message.lotm.divination.fail.no_spirit_continuous").withStyle(ChatFormatting.RED));
             }
         }
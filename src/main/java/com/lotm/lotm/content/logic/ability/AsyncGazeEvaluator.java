@@ -0,0 +1,323 @@
+package com.lotm.lotm.content.logic.ability;
+
+import com.lotm.lotm.LotMMod;
+import com.lotm.lotm.api.capability.PerceptionProfile;
+import com.lotm.lotm.common.config.LotMCommonConfig;
+import com.lotm.lotm.util.GazeKernel;
+import com.lotm.lotm.util.LineOfSight;
+import com.lotm.lotm.util.PerceptionEvaluator;
+import com.lotm.lotm.util.PlayerGazeHelper;
+import it.unimi.dsi.fastutil.ints.Int2ObjectOpenHashMap;
+import net.minecraft.resources.ResourceKey;
+import net.minecraft.server.level.ServerLevel;
+import net.minecraft.server.level.ServerPlayer;
+import net.minecraft.world.level.Level;
+import net.minecraft.world.phys.AABB;
+import net.minecraft.world.phys.Vec3;
+import net.minecraftforge.event.server.ServerStoppedEvent;
+import net.minecraftforge.eventbus.api.SubscribeEvent;
+import net.minecraftforge.fml.common.Mod;
+
+import javax.annotation.Nullable;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * 异步视线感知 (Async Gaze Evaluator)
+ * <p>
+ * 职责：
+ * 1. 由 {@link GazePass} 在 Tick 末调用：把本 Tick 需要检测的配对连同双方的不可变快照
+ *    (位置、视角、碰撞箱、感知档案) 打包成一批，并为可能发射射线的配对采集 {@link LineOfSight.Snapshot}。
+ * 2. 整批交给工作线程池，按与 {@link DangerSenseHandler#checkGazeDanger} 相同的流水线判定，
+ *    工作线程只读取快照，不接触实体与 Level。
+ * 3. 判定结果在下一 Tick 回到主线程后才写入注视计数、发出高亮与提示；届时已下线、换维度或不再是感知目标的配对直接丢弃。
+ * 4. 快照无法判断的配对 (射线经过部分方块，需要读取 Level 做精确裁剪) 回到主线程按同步流程重新检测。
+ * <p>
+ * 每个维度同时最多一批在途；上一批尚未返回时，该维度本 Tick 的配对仍在主线程同步检测，不丢采样。
+ * 开关见 {@link LotMCommonConfig#gazeAsyncEvaluation}。
+ */
+@Mod.EventBusSubscriber(modid = LotMMod.MODID)
+public class AsyncGazeEvaluator {
+
+    // 原版 hasLineOfSight 的最大距离
+    private static final double VANILLA_SIGHT_DISTANCE = 128.0;
+
+    // 已提交、结果尚未应用的维度 (仅主线程访问)
+    private static final Set<ResourceKey<Level>> IN_FLIGHT = new HashSet<>();
+
+    // 工作线程写入、主线程取走的结果
+    private static final Map<ResourceKey<Level>, List<Verdict>> COMPLETED = new ConcurrentHashMap<>();
+
+    private static ExecutorService executor = null;
+
+    /**
+     * 玩家在 Tick 末的不可变快照
+     */
+    private record PlayerSnapshot(int id, Vec3 position, Vec3 eye, @Nullable PlayerGazeHelper.ObserverView view,
+                                  AABB box, PerceptionProfile profile) {
+        static PlayerSnapshot of(ServerPlayer player, @Nullable PlayerGazeHelper.ObserverView view, PerceptionProfile profile) {
+            return new PlayerSnapshot(player.getId(), player.position(), player.getEyePosition(), view,
+                    player.getBoundingBox(), profile);
+        }
+    }
+
+    /**
+     * @param gazing 提交时该配对是否有注视计数 (没有时瞄准失败不必再看后面的阶段)
+     */
+    private record Job(PlayerSnapshot observer, PlayerSnapshot target, int intervalTicks, boolean gazing) {}
+
+    /**
+     * 判定结果
+     *
+     * @param stage        流水线结束的阶段；null 表示快照无法判断，需回到主线程
+     * @param triggerTicks 属性对抗后的触发延迟
+     * @param visible      距离 / 碰撞箱相交失败时，后续的隐蔽、视锥、遮挡是否都已通过 (通过才清零计数)
+     */
+    private record Verdict(int observerId, int targetId, PerceptionProfile targetProfile, int intervalTicks,
+                           @Nullable GazeStats.Stage stage, int triggerTicks, boolean visible) {}
+
+    // ==================================================
+    //                 主线程：采集
+    // ==================================================
+
+    /**
+     * 开始采集本 Tick 的一批配对
+     *
+     * @return 该维度仍有一批在途时返回 null (调用方改为同步检测)
+     */
+    @Nullable
+    public static Batch begin(ServerLevel level) {
+        return IN_FLIGHT.contains(level.dimension()) ? null : new Batch(level);
+    }
+
+    public static final class Batch {
+        private final ServerLevel level;
+        private final LineOfSight.Snapshot.Builder sight;
+        private final Int2ObjectOpenHashMap<PlayerSnapshot> players = new Int2ObjectOpenHashMap<>();
+        private final List<Job> jobs = new ArrayList<>();
+
+        private Batch(ServerLevel level) {
+            this.level = level;
+            this.sight = LineOfSight.snapshot(level);
+        }
+
+        /**
+         * 登记一个配对 (参数含义同 {@link DangerSenseHandler#checkGazeDanger})
+         */
+        public void add(ServerPlayer observer, PlayerGazeHelper.ObserverView view, PerceptionProfile observerProfile,
+                        ServerPlayer target, PerceptionProfile targetProfile, int intervalTicks) {
+            PlayerSnapshot o = capture(observer, view, observerProfile);
+            PlayerSnapshot t = capture(target, null, targetProfile);
+            boolean gazing = DangerSenseHandler.isGazing(target, observer);
+            jobs.add(new Job(o, t, intervalTicks, gazing));
+
+            // 只有准星可能落在目标上、或需要确认能否清零计数的配对才会发射射线，只为它们采集分段
+            if (!targetProfile.hasIntuition() || (!gazing
+                    && !PlayerGazeHelper.isWithinReach(view, t.box(), targetProfile.maxDistance(), targetProfile.hitBuffer()))) {
+                return;
+            }
+
+            // 目标眼睛、中心、脚底、头顶与瞄准交点都在中心周围 (碰撞箱尺寸 + 膨胀范围) 之内
+            double margin = Math.max(t.box().getXsize(), t.box().getYsize()) + targetProfile.hitBuffer();
+            sight.include(view.eyePos(), t.box().getCenter(), margin);
+        }
+
+        private PlayerSnapshot capture(ServerPlayer player, @Nullable PlayerGazeHelper.ObserverView view, PerceptionProfile profile) {
+            PlayerSnapshot snapshot = players.get(player.getId());
+            if (snapshot == null || (view != null && snapshot.view() == null)) {
+                snapshot = PlayerSnapshot.of(player, view, profile);
+                players.put(player.getId(), snapshot);
+            }
+            return snapshot;
+        }
+
+        /**
+         * 提交到工作线程 (没有配对时什么也不做)
+         */
+        public void submit() {
+            if (jobs.isEmpty()) return;
+
+            ResourceKey<Level> dimension = level.dimension();
+            LineOfSight.Snapshot snapshot = sight.build();
+            List<Job> batch = List.copyOf(jobs);
+
+            IN_FLIGHT.add(dimension);
+            CompletableFuture.supplyAsync(() -> evaluateAll(batch, snapshot), getExecutor())
+                    .whenComplete((verdicts, error) -> {
+                        if (error != null) {
+                            LotMMod.LOGGER.error("Async gaze evaluation failed", error);
+                            verdicts = List.of();
+                        }
+                        COMPLETED.put(dimension, verdicts);
+                    });
+        }
+    }
+
+    // ==================================================
+    //                 工作线程：判定
+    // ==================================================
+
+    private static List<Verdict> evaluateAll(List<Job> jobs, LineOfSight.Snapshot sight) {
+        // 几何阶段整批计算
+        GazeKernel kernel = new GazeKernel(jobs.size());
+        for (Job job : jobs) {
+            PlayerSnapshot observer = job.observer();
+            PlayerSnapshot target = job.target();
+            kernel.add(observer.view(), target.box(), observer.position().distanceToSqr(target.position()),
+                    target.profile().hitBuffer(), target.profile().maxDistance());
+        }
+        kernel.compute(DangerSenseHandler.VIEW_CONE_COS);
+
+        List<Verdict> verdicts = new ArrayList<>(jobs.size());
+        for (int i = 0; i < jobs.size(); i++) {
+            verdicts.add(evaluate(jobs.get(i), sight, kernel, i));
+        }
+        return verdicts;
+    }
+
+    /**
+     * 纯函数版本的检测流水线 (阶段顺序与 {@link DangerSenseHandler#checkGazeDanger} 相同)
+     */
+    private static Verdict evaluate(Job job, LineOfSight.Snapshot sight, GazeKernel kernel, int index) {
+        PlayerSnapshot observer = job.observer();
+        PlayerSnapshot target = job.target();
+        PerceptionProfile profile = target.profile();
+        PlayerGazeHelper.ObserverView view = observer.view();
+
+        // 1. 档案
+        if (!profile.hasIntuition()) return verdict(job, GazeStats.Stage.PROFILE, 0);
+
+        // 2. 距离 (瞄准已确定失败；有计数时继续判定能否清零)
+        GazeStats.Stage aimMiss = null;
+        if (!kernel.isWithinReach(index)) {
+            if (!job.gazing()) return verdict(job, GazeStats.Stage.DISTANCE, 0);
+            aimMiss = GazeStats.Stage.DISTANCE;
+        }
+
+        // 3. 绝对隐蔽
+        int triggerTicks = DangerSenseHandler.calculateDynamicTriggerTicks(
+                observer.profile().concealment(), profile.detection(), profile.baseTriggerTicks());
+        if (triggerTicks > DangerSenseHandler.ABSOLUTE_CONCEALMENT_THRESHOLD) {
+            return verdict(job, GazeStats.Stage.CONCEALMENT, triggerTicks);
+        }
+
+        // 4. 视锥
+        if (!kernel.isInCone(index)) {
+            return verdict(job, GazeStats.Stage.VIEW_CONE, triggerTicks);
+        }
+
+        // 5. 碰撞箱相交
+        Vec3 aimPoint = aimMiss == null ? kernel.getAimPoint(index) : null;
+        if (aimMiss == null && aimPoint == null) {
+            if (!job.gazing()) return verdict(job, GazeStats.Stage.AIM_BOX, triggerTicks);
+            aimMiss = GazeStats.Stage.AIM_BOX;
+        }
+
+        // 6. 遮挡：任意一点可见即可；全部被挡且有无法判断的射线时交回主线程
+        Boolean visible = canSeeAnyPart(sight, view.eyePos(), target);
+        if (visible == null) return verdict(job, null, triggerTicks);
+        if (!visible) return verdict(job, GazeStats.Stage.OCCLUSION, triggerTicks);
+
+        // 目标可见但准星不在目标上 -> 清零
+        if (aimMiss != null) return verdict(job, aimMiss, triggerTicks, true);
+
+        // 7. 瞄准射线 (阻挡点比交点更远同样算通畅)
+        Vec3 blockHit = sight.clip(view.eyePos(), aimPoint);
+        if (blockHit == LineOfSight.UNKNOWN) return verdict(job, null, triggerTicks);
+
+        boolean clear = blockHit == null || view.eyePos().distanceTo(blockHit) >= view.eyePos().distanceTo(aimPoint);
+        return verdict(job, clear ? GazeStats.Stage.PASSED : GazeStats.Stage.AIM_RAY, triggerTicks);
+    }
+
+    /**
+     * 快照版 {@link PlayerGazeHelper#canSeeAnyPart}
+     *
+     * @return null 表示无法判断
+     */
+    @Nullable
+    private static Boolean canSeeAnyPart(LineOfSight.Snapshot sight, Vec3 eye, PlayerSnapshot target) {
+        boolean unknown = false;
+
+        // 眼对眼 (原版语义，128 格以内)
+        if (target.eye().distanceTo(eye) <= VANILLA_SIGHT_DISTANCE) {
+            Vec3 hit = sight.clip(eye, target.eye());
+            if (hit == null) return true;
+            unknown = hit == LineOfSight.UNKNOWN;
+        }
+
+        for (Vec3 point : PlayerGazeHelper.getSightPoints(target.box())) {
+            Vec3 hit = sight.clip(eye, point);
+            if (hit == null) return true;
+            unknown |= hit == LineOfSight.UNKNOWN;
+        }
+        return unknown ? null : Boolean.FALSE;
+    }
+
+    private static Verdict verdict(Job job, @Nullable GazeStats.Stage stage, int triggerTicks) {
+        return verdict(job, stage, triggerTicks, false);
+    }
+
+    private static Verdict verdict(Job job, @Nullable GazeStats.Stage stage, int triggerTicks, boolean visible) {
+        return new Verdict(job.observer().id(), job.target().id(), job.target().profile(), job.intervalTicks(),
+                stage, triggerTicks, visible);
+    }
+
+    // ==================================================
+    //                 主线程：应用
+    // ==================================================
+
+    /**
+     * 应用该维度已返回的结果 (由 {@link GazePass} 在采集新一批之前调用)
+     */
+    public static void applyCompleted(ServerLevel level) {
+        List<Verdict> verdicts = COMPLETED.remove(level.dimension());
+        if (verdicts == null || !IN_FLIGHT.remove(level.dimension())) return; // 服务器已停止
+
+        Collection<ServerPlayer> targets = DangerSenseRegistry.getTargets();
+        for (Verdict verdict : verdicts) {
+            if (!(level.getEntity(verdict.targetId()) instanceof ServerPlayer target) || !targets.contains(target)) continue;
+            if (!(level.getEntity(verdict.observerId()) instanceof ServerPlayer observer)) continue;
+
+            if (verdict.stage() == null) {
+                // 快照无法判断：按当前状态同步重新检测
+                DangerSenseHandler.checkGazeDanger(observer, PlayerGazeHelper.ObserverView.of(observer),
+                        PerceptionEvaluator.getProfile(observer), target, PerceptionEvaluator.getProfile(target),
+                        verdict.intervalTicks());
+            } else {
+                DangerSenseHandler.applyVerdict(observer, target, verdict.targetProfile(),
+                        verdict.stage(), verdict.triggerTicks(), verdict.intervalTicks(), verdict.visible());
+            }
+        }
+    }
+
+    private static ExecutorService getExecutor() {
+        if (executor == null) {
+            AtomicInteger counter = new AtomicInteger();
+            executor = Executors.newFixedThreadPool(LotMCommonConfig.COMMON.gazeWorkerThreads.get(), runnable -> {
+                Thread thread = new Thread(runnable, "LotM-Gaze-Worker-" + counter.incrementAndGet());
+                thread.setDaemon(true);
+                return thread;
+            });
+        }
+        return executor;
+    }
+
+    @SubscribeEvent
+    public static void onServerStopped(ServerStoppedEvent event) {
+        IN_FLIGHT.clear();
+        COMPLETED.clear();
+        if (executor != null) {
+            executor.shutdownNow();
+            executor = null;
+        }
+    }
+}
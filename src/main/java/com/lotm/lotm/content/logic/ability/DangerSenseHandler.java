@@ -1,12 +1,12 @@
 package com.lotm.lotm.content.logic.ability;
 
 import com.lotm.lotm.LotMMod;
-import com.lotm.lotm.common.capability.AbilityContainerProvider;
-import com.lotm.lotm.common.capability.BeyonderStateProvider;
+import com.lotm.lotm.api.capability.PerceptionProfile;
 import com.lotm.lotm.common.network.PacketHandler;
 import com.lotm.lotm.common.network.packet.s2c.S2CSetDivinationHighlightPacket;
 import com.lotm.lotm.common.registry.LotMAttributes;
-import com.lotm.lotm.common.registry.LotMSkills;
+import com.lotm.lotm.util.GazeKernel;
+import com.lotm.lotm.util.PerceptionEvaluator;
 import com.lotm.lotm.util.PlayerGazeHelper;
 import com.mojang.brigadier.ParseResults;
 import com.mojang.brigadier.context.ParsedCommandNode;
@@ -14,20 +14,22 @@ import net.minecraft.ChatFormatting;
 import net.minecraft.commands.CommandSourceStack;
 import net.minecraft.network.chat.Component;
 import net.minecraft.resources.ResourceLocation;
+import net.minecraft.server.level.ServerLevel;
 import net.minecraft.server.level.ServerPlayer;
 import net.minecraft.world.entity.player.Player;
+import net.minecraft.world.level.Level;
+import net.minecraft.world.phys.Vec3;
 import net.minecraftforge.event.CommandEvent;
 import net.minecraftforge.event.ServerChatEvent;
+import net.minecraftforge.event.TickEvent;
 import net.minecraftforge.event.entity.player.PlayerEvent;
+import net.minecraftforge.event.server.ServerStoppedEvent;
 import net.minecraftforge.eventbus.api.SubscribeEvent;
 import net.minecraftforge.fml.common.Mod;
 
 import java.util.Arrays;
-import java.util.HashMap;
 import java.util.HashSet;
-import java.util.Iterator;
 import java.util.List;
-import java.util.Map;
 import java.util.Set;
 
 /**
@@ -58,7 +60,7 @@ public class DangerSenseHandler {
 
     // 绝对隐蔽阈值 (Ticks)
     // 如果计算出的发现时间超过此值 (3.5秒)，则判定为无法发现，直接短路逻辑。
-    private static final int ABSOLUTE_CONCEALMENT_THRESHOLD = 70;
+    static final int ABSOLUTE_CONCEALMENT_THRESHOLD = 70;
 
     // 文本提示冷却时间 (Ticks)
     // 20秒内不再重复提示同一个人的注视/提及，防止 Action Bar 闪烁过快。
@@ -70,13 +72,26 @@ public class DangerSenseHandler {
     private static final double MONSTER_BUFFER_MULTIPLIER = 1.2;
     private static final double MONSTER_DELAY_MULTIPLIER = 0.85;
 
-    // 用于存储每个玩家被注视的状态追踪器
-    // Key: "TargetUUID_ObserverUUID"
-    private static final Map<String, PlayerGazeHelper.GazeTracker> TRACKERS = new HashMap<>();
+    // 触发延迟的计量单位 (Ticks)：SenseConfig 中的延迟以“每 5 Tick 一次检测”为单位配置
+    private static final int TRIGGER_UNIT_TICKS = 5;
 
-    // 用于存储上次发送提示的时间戳
-    // Key: "TargetUUID_ObserverUUID"
-    private static final Map<String, Long> LAST_ALERT_TIMES = new HashMap<>();
+    // 闲置配对的回收时长 (Ticks)：超过警报冷却后，配对中已没有需要保留的状态
+    private static final long PAIR_IDLE_TICKS = ALERT_COOLDOWN_TICKS;
+
+    // 闲置配对的扫描间隔 (Ticks)
+    private static final int PAIR_EXPIRY_INTERVAL = 200;
+
+    // 视锥粗筛：FOV 90 度 (阈值预先计算)；距离上限取目标档案的最大感知距离
+    static final double VIEW_CONE_COS = GazeKernel.cosThreshold(90.0);
+
+    // 单独检测时复用的单配对内核 (仅主线程)
+    private static final GazeKernel SINGLE = new GazeKernel(1);
+
+    // 每个 (目标, 观察者) 对的注视计数与上次提示时间
+    private static final GazePairStore PAIRS = new GazePairStore();
+
+    // 每个 (目标, 观察者) 对的射线检测结果缓存
+    private static final GazeOcclusionCache OCCLUSION = new GazeOcclusionCache();
 
     // 需要监听的通讯类指令集合 (支持原版常用私聊指令)
     // 这些指令通常包含目标玩家名，触发名字感知逻辑
@@ -102,95 +117,212 @@ public class DangerSenseHandler {
     /**
      * 检查视线危险 (Check Gaze Danger)
      * <p>
-     * 建议在 ServerTick 或 PlayerTick 中调用。
+     * 由 {@link GazePass} 按距离分级调度 (近处更频繁，远处更稀疏)。
      *
      * @param observer 观察者 (看的人)
      * @param target   目标 (拥有危险感知的非凡者)
      */
     public static void checkGazeDanger(Player observer, ServerPlayer target) {
+        checkGazeDanger(observer, PlayerGazeHelper.ObserverView.of(observer), PerceptionEvaluator.getProfile(observer),
+                target, PerceptionEvaluator.getProfile(target), TRIGGER_UNIT_TICKS);
+    }
+
+    /**
+     * 按开销从低到高排列的检测流水线，任一阶段失败即返回 (见 {@link GazeStats.Stage})：
+     * 档案 → 距离 → 绝对隐蔽 → 视锥 → 碰撞箱相交 → 遮挡射线 → 瞄准射线。
+     * 前四个阶段只有字段读取与少量算术，绝大多数配对在发射任何射线之前就被过滤。
+     * <p>
+     * 清零规则与原版流程一致：被隐蔽、视锥或遮挡挡下的配对保留注视计数；
+     * 只有这三项都通过而准星没有落在目标上 (距离、碰撞箱相交或瞄准射线失败) 时才清零。
+     * 距离与碰撞箱相交虽然排在前面，失败时也要等后面三项通过后才清零；计数本来就是 0 时直接返回。
+     *
+     * @param view            观察者视角 (批量检测时由调用方复用)
+     * @param observerProfile 观察者的感知档案
+     * @param targetProfile   目标的感知档案
+     * @param intervalTicks   该配对的采样间隔 (注视时长按实际经过的 Tick 累加，最多累加一个间隔)
+     */
+    public static void checkGazeDanger(Player observer, PlayerGazeHelper.ObserverView view, PerceptionProfile observerProfile,
+                                       ServerPlayer target, PerceptionProfile targetProfile, int intervalTicks) {
         if (observer == target) return;
 
-        // 1. 智能遮挡检查 (Smart Occlusion Check)
-        // 使用多点检测替代原版 hasLineOfSight。
-        // 只要能看到目标的头、脚、中心任意一点，就算“可见”。
-        if (!PlayerGazeHelper.canSeeAnyPart(observer, target)) return;
+        SINGLE.clear();
+        int index = addPair(SINGLE, observer, view, target, targetProfile);
+        SINGLE.compute(VIEW_CONE_COS);
+        checkGazeDanger(observer, view, observerProfile, target, targetProfile, intervalTicks, SINGLE, index);
+    }
 
-        // 2. 视锥检查 (View Cone Check)
-        // 确保目标在观察者的屏幕范围内 (FOV 90度，距离 128米内粗筛)。
-        if (!PlayerGazeHelper.isInViewCone(observer, target, 128.0, 90.0)) return;
+    /**
+     * 把一个配对登记到批量几何内核 (距离、视锥、碰撞箱相交三个阶段由内核统一计算)
+     */
+    public static int addPair(GazeKernel kernel, Player observer, PlayerGazeHelper.ObserverView view,
+                              Player target, PerceptionProfile targetProfile) {
+        return kernel.add(view, target.getBoundingBox(), observer.distanceToSqr(target),
+                targetProfile.hitBuffer(), targetProfile.maxDistance());
+    }
 
-        // 3. 检查目标是否拥有“灵性直觉”技能
-        // 只有开启了该被动技能的玩家才能感知视线。
-        boolean hasIntuition = target.getCapability(AbilityContainerProvider.CAPABILITY)
-                .map(abilities -> abilities.hasAbility(LotMSkills.SPIRITUAL_INTUITION.getId()))
-                .orElse(false);
+    /**
+     * 批量检测：几何阶段的结果取自已经 {@link GazeKernel#compute} 过的内核
+     *
+     * @param kernel 由 {@link #addPair} 登记并以 {@link #VIEW_CONE_COS} 计算过的内核
+     * @param index  该配对在内核中的下标
+     */
+    public static void checkGazeDanger(Player observer, PlayerGazeHelper.ObserverView view, PerceptionProfile observerProfile,
+                                       ServerPlayer target, PerceptionProfile targetProfile, int intervalTicks,
+                                       GazeKernel kernel, int index) {
+        if (observer == target) return;
 
-        if (!hasIntuition) return;
+        // 1. 档案检查：只有开启了“灵性直觉”的玩家才能感知视线
+        if (!targetProfile.hasIntuition()) {
+            GazeStats.record(GazeStats.Stage.PROFILE);
+            return;
+        }
+
+        long gameTime = target.level().getGameTime();
 
-        // 4. 获取目标的非凡能力状态
-        target.getCapability(BeyonderStateProvider.CAPABILITY).ifPresent(state -> {
-            int sequence = state.getSequence();
-            ResourceLocation pathwayId = state.getPathwayId();
+        // 2. 距离检查：超出序列对应的最大感知距离，准星不可能落在目标上
+        // 瞄准已确定失败：没有计数可清零时直接结束，否则记下结果，等隐蔽、视锥、遮挡都通过后再清零
+        GazeStats.Stage aimMiss = null;
+        if (!kernel.isWithinReach(index)) {
+            if (!isGazing(target, observer)) {
+                GazeStats.record(GazeStats.Stage.DISTANCE);
+                return;
+            }
+            aimMiss = GazeStats.Stage.DISTANCE;
+        }
 
-            // 5. 获取基础配置 (基于途径和序列)
-            SenseConfig config = getSensitivity(sequence, pathwayId);
+        // 3. 计算动态延迟 (属性对抗)
+        // 观察者隐蔽越高，发现越慢；目标侦测越高，发现越快。
+        int finalTriggerTicks = calculateDynamicTriggerTicks(
+                observerProfile.concealment(), targetProfile.detection(), targetProfile.baseTriggerTicks());
 
-            // 6. 计算动态延迟 (属性对抗)
-            // 观察者隐蔽越高，发现越慢；目标侦测越高，发现越快。
-            int finalTriggerTicks = calculateDynamicTriggerTicks(observer, target, config.baseTriggerTicks);
+        // 绝对隐蔽判定：如果延迟太高，说明对方隐蔽极好，无法感知。
+        if (finalTriggerTicks > ABSOLUTE_CONCEALMENT_THRESHOLD) {
+            GazeStats.record(GazeStats.Stage.CONCEALMENT);
+            return;
+        }
 
-            // 绝对隐蔽判定：如果延迟太高，说明对方隐蔽极好，无法感知。
-            if (finalTriggerTicks > ABSOLUTE_CONCEALMENT_THRESHOLD) {
+        // 4. 视锥检查 (View Cone Check)
+        // 确保目标在观察者的屏幕范围内 (FOV 90度，距离按目标的最大感知距离粗筛，最远 384 x 1.2 米)。
+        if (!kernel.isInCone(index)) {
+            GazeStats.record(GazeStats.Stage.VIEW_CONE);
+            return;
+        }
+
+        // 5. 碰撞箱相交 (Slab Test)
+        // 判断视线是否穿过目标的碰撞箱 (考虑膨胀范围)，纯几何计算。
+        Vec3 aimPoint = aimMiss == null ? kernel.getAimPoint(index) : null;
+        if (aimMiss == null && aimPoint == null) {
+            if (!isGazing(target, observer)) {
+                GazeStats.record(GazeStats.Stage.AIM_BOX);
                 return;
             }
+            aimMiss = GazeStats.Stage.AIM_BOX;
+        }
 
-            // 7. 执行精准视线检测 (Ray Trace)
-            // 判断准星是否精确瞄准了目标的碰撞箱 (考虑膨胀范围)。
-            // 此时已经通过了遮挡预检，isAimingAt 内部会再次进行物理射线检测以确保准确性。
-            boolean isLooking = PlayerGazeHelper.isAimingAt(observer, target, config.maxDistance, config.hitBuffer);
-
-            // 8. 更新时间追踪器
-            String key = target.getStringUUID() + "_" + observer.getStringUUID();
-            PlayerGazeHelper.GazeTracker tracker = TRACKERS.computeIfAbsent(key, k -> new PlayerGazeHelper.GazeTracker());
-
-            tracker.update(isLooking);
-
-            // 9. 判定触发
-            if (tracker.isTriggered(finalTriggerTicks)) {
-                long gameTime = target.level().getGameTime();
-                long lastAlert = LAST_ALERT_TIMES.getOrDefault(key, 0L);
-
-                // A. 视觉高亮 (Visual Highlight) - 始终触发
-                // 高序列 (Seq 4+) 才能看到高亮轮廓。
-                if (sequence <= 4) {
-                    int durationSeconds = switch (sequence) {
-                        case 4 -> 20;
-                        case 3 -> 40;
-                        case 2 -> 60;
-                        case 1 -> 80;
-                        case 0 -> 120;
-                        default -> 0;
-                    };
-
-                    if (durationSeconds > 0) {
-                        PacketHandler.sendToPlayer(
-                                new S2CSetDivinationHighlightPacket(observer.getId(), durationSeconds * 20),
-                                target
-                        );
-                    }
-                }
+        // 6. 智能遮挡检查 (Smart Occlusion Check)
+        // 使用多点检测替代原版 hasLineOfSight。
+        // 只要能看到目标的头、脚、中心任意一点，就算“可见”。双方未移动且途经分段无方块变化时直接复用上次结果。
+        if (!OCCLUSION.canSeeAnyPart(observer, view, target, gameTime)) {
+            GazeStats.record(GazeStats.Stage.OCCLUSION);
+            return;
+        }
+
+        // 目标可见但准星不在目标上 -> 清零
+        if (aimMiss != null) {
+            GazeStats.record(aimMiss);
+            stopGazing(target, observer);
+            return;
+        }
 
-                // B. 文本提示 (Text Alert) - 带冷却
-                // 发送到 Action Bar，防止刷屏。
-                if (gameTime - lastAlert > ALERT_COOLDOWN_TICKS) {
-                    triggerDangerAlert(target, observer, "gaze");
-                    LAST_ALERT_TIMES.put(key, gameTime);
+        // 7. 瞄准射线：眼睛到交点之间没有方块阻挡 (结果同样走缓存)
+        boolean isLooking = OCCLUSION.isPathClear(observer, view, target, aimPoint, gameTime);
+        GazeStats.record(isLooking ? GazeStats.Stage.PASSED : GazeStats.Stage.AIM_RAY);
+
+        updateGaze(observer, target, targetProfile.sequence(), isLooking, finalTriggerTicks, intervalTicks, gameTime);
+    }
+
+    /**
+     * 应用工作线程给出的判定结果 (由 {@link AsyncGazeEvaluator} 在主线程调用)
+     * <p>
+     * 与同步流水线在同一阶段结束时的处理完全一致。
+     *
+     * @param stage        流水线结束的阶段
+     * @param triggerTicks 属性对抗后的触发延迟 (只在通过隐蔽阶段后有意义)
+     * @param visible      距离 / 碰撞箱相交失败时，隐蔽、视锥、遮挡是否都已通过 (通过才清零计数)
+     */
+    static void applyVerdict(Player observer, ServerPlayer target, PerceptionProfile targetProfile,
+                             GazeStats.Stage stage, int triggerTicks, int intervalTicks, boolean visible) {
+        GazeStats.record(stage);
+        switch (stage) {
+            case DISTANCE, AIM_BOX -> {
+                if (visible) stopGazing(target, observer);
+            }
+            case AIM_RAY, PASSED -> updateGaze(observer, target, targetProfile.sequence(), stage == GazeStats.Stage.PASSED,
+                    triggerTicks, intervalTicks, target.level().getGameTime());
+            default -> {} // 其余阶段不改变配对状态
+        }
+    }
+
+    /**
+     * 累加注视时长，达到触发延迟时发出高亮与提示
+     */
+    private static void updateGaze(Player observer, ServerPlayer target, int sequence, boolean isLooking,
+                                   int finalTriggerTicks, int intervalTicks, long gameTime) {
+        // 更新时间追踪器
+        int pair = PAIRS.slot(target.getId(), observer.getId(), gameTime);
+
+        PAIRS.updateGaze(pair, isLooking, gameTime, intervalTicks);
+
+        // 8. 判定触发 (延迟单位换算为 Tick)
+        if (PAIRS.isTriggered(pair, finalTriggerTicks * TRIGGER_UNIT_TICKS)) {
+            long lastAlert = PAIRS.getLastAlert(pair);
+
+            // A. 视觉高亮 (Visual Highlight) - 始终触发
+            // 高序列 (Seq 4+) 才能看到高亮轮廓。
+            if (sequence <= 4) {
+                int durationSeconds = switch (sequence) {
+                    case 4 -> 20;
+                    case 3 -> 40;
+                    case 2 -> 60;
+                    case 1 -> 80;
+                    case 0 -> 120;
+                    default -> 0;
+                };
+
+                if (durationSeconds > 0) {
+                    PacketHandler.sendToPlayer(
+                            new S2CSetDivinationHighlightPacket(observer.getId(), durationSeconds * 20),
+                            target
+                    );
                 }
+            }
 
-                // 重置追踪器，准备下一次判定
-                tracker.reset();
+            // B. 文本提示 (Text Alert) - 带冷却
+            // 发送到 Action Bar，防止刷屏。
+            if (gameTime - lastAlert > ALERT_COOLDOWN_TICKS) {
+                triggerDangerAlert(target, observer, "gaze");
+                PAIRS.setLastAlert(pair, gameTime);
             }
-        });
+
+            // 重置追踪器，准备下一次判定
+            PAIRS.resetGaze(pair);
+        }
+    }
+
+    /**
+     * 该配对当前是否有注视计数 (配对不存在视为没有)
+     */
+    static boolean isGazing(ServerPlayer target, Player observer) {
+        int pair = PAIRS.find(target.getId(), observer.getId());
+        return pair >= 0 && PAIRS.isGazing(pair);
+    }
+
+    /**
+     * 准星已不在目标上：清零注视计数 (与瞄准射线失败等价；配对不存在时不创建)
+     */
+    private static void stopGazing(ServerPlayer target, Player observer) {
+        int pair = PAIRS.find(target.getId(), observer.getId());
+        if (pair >= 0) PAIRS.resetGaze(pair);
     }
 
     /**
@@ -198,16 +330,12 @@ public class DangerSenseHandler {
      * <p>
      * 公式：最终延迟 = 基础延迟 + (观察者隐蔽 - 目标侦测) * 系数
      *
-     * @param observer 观察者
-     * @param target 目标
+     * @param obsConcealment 观察者隐蔽值
+     * @param tgtDetection 目标侦测值
      * @param baseTicks 基础延迟
      * @return 修正后的延迟 (最小为 0)
      */
-    private static int calculateDynamicTriggerTicks(Player observer, Player target, int baseTicks) {
-        // 获取属性值 (默认为 0.0)
-        double obsConcealment = observer.getAttributeValue(LotMAttributes.SPIRITUAL_CONCEALMENT.get());
-        double tgtDetection = target.getAttributeValue(LotMAttributes.SPIRITUAL_DETECTION.get());
-
+    static int calculateDynamicTriggerTicks(double obsConcealment, double tgtDetection, int baseTicks) {
         // 计算差值：正值表示观察者隐蔽高，负值表示目标侦测高
         double diff = obsConcealment - tgtDetection;
 
@@ -225,8 +353,9 @@ public class DangerSenseHandler {
      * 根据序列等级和途径类型返回感知灵敏度配置
      * <p>
      * 优化：以普通途径为基准，怪物途径在此基础上应用倍率修正。
+     * 结果缓存在 {@link PerceptionProfile} 中，只在序列或途径变化时重新计算。
      */
-    private static SenseConfig getSensitivity(int sequence, ResourceLocation pathwayId) {
+    public static SenseConfig getSensitivity(int sequence, ResourceLocation pathwayId) {
         // 1. 获取基准配置 (普通途径标准)
         SenseConfig baseConfig = switch (sequence) {
             case 9 -> new SenseConfig(0.1, 40, 32.0);  // 占卜家：基础需注视2秒
@@ -317,32 +446,24 @@ public class DangerSenseHandler {
 
     /**
      * 统一的名字提及检查逻辑
+     * <p>
+     * 被提及者由 {@link MentionRegistry} 的多模式自动机一次扫描得出 (全服范围，只含序列 4 及以上的玩家)。
      *
      * @param sender 发言者
      * @param content 内容 (聊天内容或指令全名)
      */
     private static void checkNameMention(ServerPlayer sender, String content) {
-        // 遍历所有在线玩家
-        for (ServerPlayer target : sender.serverLevel().players()) {
+        for (ServerPlayer target : MentionRegistry.findMentioned(content)) {
             // 排除自己提到自己
             if (target == sender) continue;
 
-            // 检查内容是否包含目标名字
-            if (content.contains(target.getName().getString())) {
-                target.getCapability(BeyonderStateProvider.CAPABILITY).ifPresent(state -> {
-                    // 统一阈值：半神 (Seq 4) 以上才能感知名字被提及
-                    if (state.getSequence() <= 4) {
-                        // 同样应用冷却机制，防止连续刷屏
-                        String key = target.getStringUUID() + "_" + sender.getStringUUID();
-                        long gameTime = target.level().getGameTime();
-                        long lastAlert = LAST_ALERT_TIMES.getOrDefault(key, 0L);
-
-                        if (gameTime - lastAlert > ALERT_COOLDOWN_TICKS) {
-                            triggerDangerAlert(target, sender, "chat");
-                            LAST_ALERT_TIMES.put(key, gameTime);
-                        }
-                    }
-                });
+            // 同样应用冷却机制，防止连续刷屏
+            long gameTime = target.level().getGameTime();
+            int pair = PAIRS.slot(target.getId(), sender.getId(), gameTime);
+
+            if (gameTime - PAIRS.getLastAlert(pair) > ALERT_COOLDOWN_TICKS) {
+                triggerDangerAlert(target, sender, "chat");
+                PAIRS.setLastAlert(pair, gameTime);
             }
         }
     }
@@ -357,24 +478,25 @@ public class DangerSenseHandler {
      */
     @SubscribeEvent
     public static void onPlayerLoggedOut(PlayerEvent.PlayerLoggedOutEvent event) {
-        String playerUuid = event.getEntity().getStringUUID();
-
-        // 清理该玩家相关的追踪器数据
-        Iterator<Map.Entry<String, PlayerGazeHelper.GazeTracker>> it = TRACKERS.entrySet().iterator();
-        while (it.hasNext()) {
-            Map.Entry<String, PlayerGazeHelper.GazeTracker> entry = it.next();
-            if (entry.getKey().contains(playerUuid)) {
-                it.remove();
-            }
-        }
+        PAIRS.removeEntity(event.getEntity().getId());
+        OCCLUSION.removeEntity(event.getEntity().getId());
+    }
 
-        // 清理该玩家相关的警报冷却数据
-        Iterator<Map.Entry<String, Long>> itAlert = LAST_ALERT_TIMES.entrySet().iterator();
-        while (itAlert.hasNext()) {
-            Map.Entry<String, Long> entry = itAlert.next();
-            if (entry.getKey().contains(playerUuid)) {
-                itAlert.remove();
-            }
-        }
+    /**
+     * 定期回收闲置配对 (例如重生后旧实体 ID 留下的条目)
+     */
+    @SubscribeEvent
+    public static void onLevelTick(TickEvent.LevelTickEvent event) {
+        if (event.phase != TickEvent.Phase.END || !(event.level instanceof ServerLevel level)) return;
+        if (level.dimension() != Level.OVERWORLD || level.getGameTime() % PAIR_EXPIRY_INTERVAL != 0) return;
+
+        PAIRS.expire(level.getGameTime(), PAIR_IDLE_TICKS);
+        OCCLUSION.expire(level.getGameTime(), PAIR_IDLE_TICKS);
+    }
+
+    @SubscribeEvent
+    public static void onServerStopped(ServerStoppedEvent event) {
+        PAIRS.clear();
+        OCCLUSION.clear();
     }
 }
@@ -0,0 +1,97 @@
+package com.lotm.lotm.content.logic.ability;
+
+import com.lotm.lotm.LotMMod;
+import com.lotm.lotm.api.capability.IAbilityContainer;
+import com.lotm.lotm.common.capability.AbilityContainerProvider;
+import com.lotm.lotm.common.registry.LotMSkills;
+import net.minecraft.server.level.ServerPlayer;
+import net.minecraftforge.event.entity.player.PlayerEvent;
+import net.minecraftforge.event.server.ServerStoppedEvent;
+import net.minecraftforge.eventbus.api.EventPriority;
+import net.minecraftforge.eventbus.api.SubscribeEvent;
+import net.minecraftforge.fml.common.Mod;
+
+import java.util.Collection;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.UUID;
+
+/**
+ * 危险感知目标注册表 (Danger Sense Registry)
+ * <p>
+ * 职责：
+ * 1. 实时维护“已习得并开启灵性直觉”的在线玩家集合，视线感知只需遍历这些玩家。
+ * 2. 由 AbilityContainer 的习得 / 遗忘 / 开启 / 关闭 / 清空 / 复制增量更新，
+ *    登录时重新评估，登出时移除。
+ * <p>
+ * 以 UUID 为键：玩家重生 (Clone) 后新的玩家对象会直接替换旧对象。
+ * 仅在服务端主线程访问。
+ */
+@Mod.EventBusSubscriber(modid = LotMMod.MODID)
+public class DangerSenseRegistry {
+
+    private static final Map<UUID, ServerPlayer> TARGETS = new LinkedHashMap<>();
+
+    /**
+     * 根据玩家当前的能力重新评估是否为感知目标
+     */
+    public static void update(ServerPlayer player, IAbilityContainer abilities) {
+        if (canSense(abilities)) {
+            TARGETS.put(player.getUUID(), player);
+        } else {
+            TARGETS.remove(player.getUUID());
+        }
+    }
+
+    public static boolean isTarget(ServerPlayer player) {
+        return TARGETS.get(player.getUUID()) == player;
+    }
+
+    /**
+     * 所有在线的感知目标 (只读视图，遍历期间不要修改能力)
+     */
+    public static Collection<ServerPlayer> getTargets() {
+        return Collections.unmodifiableCollection(TARGETS.values());
+    }
+
+    private static boolean canSense(IAbilityContainer abilities) {
+        return abilities.hasAbility(LotMSkills.SPIRITUAL_INTUITION.getId())
+                && abilities.isSkillActive(LotMSkills.SPIRITUAL_INTUITION.getId());
+    }
+
+    private static void refresh(ServerPlayer player) {
+        player.getCapability(AbilityContainerProvider.CAPABILITY).ifPresent(abilities -> update(player, abilities));
+    }
+
+    // ==================================================
+    //                 事件监听
+    // ==================================================
+
+    @SubscribeEvent
+    public static void onPlayerLoggedIn(PlayerEvent.PlayerLoggedInEvent event) {
+        if (event.getEntity() instanceof ServerPlayer player) {
+            refresh(player);
+        }
+    }
+
+    /**
+     * 取最低优先级：能力已在 CommonForgeEvents.onPlayerClone 中复制，这里按新对象重新评估
+     */
+    @SubscribeEvent(priority = EventPriority.LOWEST)
+    public static void onPlayerClone(PlayerEvent.Clone event) {
+        if (event.getEntity() instanceof ServerPlayer player) {
+            refresh(player);
+        }
+    }
+
+    @SubscribeEvent
+    public static void onPlayerLoggedOut(PlayerEvent.PlayerLoggedOutEvent event) {
+        TARGETS.remove(event.getEntity().getUUID());
+    }
+
+    @SubscribeEvent
+    public static void onServerStopped(ServerStoppedEvent event) {
+        TARGETS.clear();
+    }
+}
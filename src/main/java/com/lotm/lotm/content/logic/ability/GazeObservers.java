@@ -0,0 +1,74 @@
+package com.lotm.lotm.content.logic.ability;
+
+import com.lotm.lotm.LotMMod;
+import it.unimi.dsi.fastutil.ints.Int2ObjectOpenHashMap;
+import it.unimi.dsi.fastutil.objects.ReferenceOpenHashSet;
+import net.minecraft.server.level.ServerPlayer;
+import net.minecraftforge.event.entity.player.PlayerEvent;
+import net.minecraftforge.event.server.ServerStoppedEvent;
+import net.minecraftforge.eventbus.api.SubscribeEvent;
+import net.minecraftforge.fml.common.Mod;
+
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Set;
+
+/**
+ * 视线候选观察者 (Gaze Observers)
+ * <p>
+ * 职责：
+ * 1. 镜像服务端实体追踪关系 (ChunkMap 中 TrackedEntity 的 seenBy 集合)：
+ *    只有客户端正在追踪某玩家的观察者，才可能真正“看到”他。
+ * 2. 由 Forge 的 StartTracking / StopTracking 事件增量维护，复用服务端本来就要做的追踪计算，
+ *    范围也自然遵循服务端视距与实体追踪距离，而不是写死的 64 格。
+ * <p>
+ * 以目标的实体 ID 为键，只记录“玩家追踪玩家”的关系。仅在服务端主线程访问。
+ */
+@Mod.EventBusSubscriber(modid = LotMMod.MODID)
+public class GazeObservers {
+
+    private static final Int2ObjectOpenHashMap<Set<ServerPlayer>> OBSERVERS = new Int2ObjectOpenHashMap<>();
+
+    /**
+     * 正在追踪该目标的玩家 (只读视图，遍历期间不要修改)
+     */
+    public static Collection<ServerPlayer> of(ServerPlayer target) {
+        Set<ServerPlayer> observers = OBSERVERS.get(target.getId());
+        return observers == null ? Collections.emptySet() : Collections.unmodifiableSet(observers);
+    }
+
+    // ==================================================
+    //                 事件监听
+    // ==================================================
+
+    @SubscribeEvent
+    public static void onStartTracking(PlayerEvent.StartTracking event) {
+        if (event.getTarget() instanceof ServerPlayer target && event.getEntity() instanceof ServerPlayer observer) {
+            OBSERVERS.computeIfAbsent(target.getId(), k -> new ReferenceOpenHashSet<>()).add(observer);
+        }
+    }
+
+    @SubscribeEvent
+    public static void onStopTracking(PlayerEvent.StopTracking event) {
+        if (!(event.getTarget() instanceof ServerPlayer target)) return;
+
+        Set<ServerPlayer> observers = OBSERVERS.get(target.getId());
+        if (observers != null && observers.remove(event.getEntity()) && observers.isEmpty()) {
+            OBSERVERS.remove(target.getId());
+        }
+    }
+
+    /**
+     * 兜底清理：正常情况下实体移除时追踪关系已由 StopTracking 拆除
+     */
+    @SubscribeEvent
+    public static void onPlayerLoggedOut(PlayerEvent.PlayerLoggedOutEvent event) {
+        OBSERVERS.remove(event.getEntity().getId());
+        OBSERVERS.values().removeIf(observers -> observers.remove(event.getEntity()) && observers.isEmpty());
+    }
+
+    @SubscribeEvent
+    public static void onServerStopped(ServerStoppedEvent event) {
+        OBSERVERS.clear();
+    }
+}
@@ -0,0 +1,181 @@
+package com.lotm.lotm.content.logic.ability;
+
+import com.lotm.lotm.util.PlayerGazeHelper;
+import com.lotm.lotm.util.SectionChangeTracker;
+import it.unimi.dsi.fastutil.longs.Long2ObjectOpenHashMap;
+import it.unimi.dsi.fastutil.longs.LongOpenHashSet;
+import net.minecraft.core.SectionPos;
+import net.minecraft.util.Mth;
+import net.minecraft.world.entity.player.Player;
+import net.minecraft.world.level.Level;
+import net.minecraft.world.phys.AABB;
+import net.minecraft.world.phys.Vec3;
+
+/**
+ * 视线遮挡结果缓存 (Gaze Occlusion Cache)
+ * <p>
+ * 职责：
+ * 1. 缓存每个 (目标, 观察者) 对的两类射线结果：
+ *    - 可见性 ({@link PlayerGazeHelper#canSeeAnyPart}，最多 4 条射线)；
+ *    - 瞄准路径是否通畅 ({@link PlayerGazeHelper#isPathClear}，1 条射线)。
+ * 2. 键为量化后的输入 (眼睛位置、目标碰撞箱、瞄准交点，精度 {@link #QUANT_STEP} 格)：
+ *    任意一方移动超过量化精度即重新计算。
+ * 3. 计算时记下射线途经的分段与 {@link SectionChangeTracker} 的纪元号，途经分段有方块变化时结果失效。
+ *    变更记录挂在 LevelChunk.setBlockState 上，任何途径的方块变化都会被捕获，因此结果没有额外的有效期。
+ * <p>
+ * 稳态 (双方站着不动对视) 下每次检测不再发射任何射线。仅在服务端主线程访问。
+ */
+public class GazeOcclusionCache {
+
+    // 量化精度：每格 4 份 (0.25 格)
+    private static final double QUANT_SCALE = 4.0;
+    private static final double QUANT_STEP = 1.0 / QUANT_SCALE;
+
+    // 记录途经分段时的采样步长 (格)
+    private static final double SAMPLE_STEP = 2.0;
+
+    private static final long[] NO_SECTIONS = new long[0];
+
+    private final Long2ObjectOpenHashMap<Entry> entries = new Long2ObjectOpenHashMap<>();
+
+    // 途经分段的临时集合 (只在未命中时使用)
+    private final LongOpenHashSet scratch = new LongOpenHashSet();
+
+    /**
+     * 单条缓存结果
+     */
+    private static final class CachedRay {
+        boolean valid;
+        boolean value;
+        int k0, k1, k2, k3, k4, k5, k6;
+        long epoch;
+        long[] sections = NO_SECTIONS;
+
+        boolean matches(Level level, int a0, int a1, int a2, int a3, int a4, int a5, int a6) {
+            return valid
+                    && k0 == a0 && k1 == a1 && k2 == a2 && k3 == a3 && k4 == a4 && k5 == a5 && k6 == a6
+                    && SectionChangeTracker.unchangedSince(level, sections, epoch);
+        }
+
+        void store(boolean result, long[] touched, int a0, int a1, int a2, int a3, int a4, int a5, int a6) {
+            valid = true;
+            value = result;
+            k0 = a0; k1 = a1; k2 = a2; k3 = a3; k4 = a4; k5 = a5; k6 = a6;
+            epoch = SectionChangeTracker.currentEpoch();
+            sections = touched;
+        }
+    }
+
+    private static final class Entry {
+        final CachedRay visibility = new CachedRay();
+        final CachedRay aim = new CachedRay();
+        long touched;
+    }
+
+    private static long pack(int targetId, int observerId) {
+        return ((long) targetId << 32) | (observerId & 0xFFFFFFFFL);
+    }
+
+    private static int quantize(double v) {
+        return Mth.floor(v * QUANT_SCALE);
+    }
+
+    private Entry entry(Player observer, Player target, long now) {
+        Entry entry = entries.computeIfAbsent(pack(target.getId(), observer.getId()), k -> new Entry());
+        entry.touched = now;
+        return entry;
+    }
+
+    /**
+     * 带缓存的 {@link PlayerGazeHelper#canSeeAnyPart}
+     */
+    public boolean canSeeAnyPart(Player observer, PlayerGazeHelper.ObserverView view, Player target, long now) {
+        Vec3 eye = view.eyePos();
+        AABB box = target.getBoundingBox();
+        int ex = quantize(eye.x), ey = quantize(eye.y), ez = quantize(eye.z);
+        int bx = quantize(box.minX), by = quantize(box.minY), bz = quantize(box.minZ), bh = quantize(box.maxY);
+
+        Level level = observer.level();
+        CachedRay cached = entry(observer, target, now).visibility;
+        if (cached.matches(level, ex, ey, ez, bx, by, bz, bh)) return cached.value;
+
+        boolean visible = PlayerGazeHelper.canSeeAnyPart(observer, view, target);
+        double margin = Math.max(box.getXsize(), box.getYsize()) + QUANT_STEP;
+        cached.store(visible, collectSections(eye, box.getCenter(), margin), ex, ey, ez, bx, by, bz, bh);
+        return visible;
+    }
+
+    /**
+     * 带缓存的 {@link PlayerGazeHelper#isAimingAt}
+     * <p>
+     * 几何部分 (视线是否穿过碰撞箱) 每次都算，很廉价；只有方块射线被缓存，键为眼睛与交点的量化位置。
+     */
+    public boolean isAimingAt(Player observer, PlayerGazeHelper.ObserverView view, Player target,
+                              double maxDistance, double buffer, long now) {
+        Vec3 hit = PlayerGazeHelper.getAimPoint(view, target, maxDistance, buffer);
+        return hit != null && isPathClear(observer, view, target, hit, now);
+    }
+
+    /**
+     * 带缓存的 {@link PlayerGazeHelper#isPathClear} (交点由调用方预先算好)
+     */
+    public boolean isPathClear(Player observer, PlayerGazeHelper.ObserverView view, Player target, Vec3 hit, long now) {
+        Vec3 eye = view.eyePos();
+        int ex = quantize(eye.x), ey = quantize(eye.y), ez = quantize(eye.z);
+        int hx = quantize(hit.x), hy = quantize(hit.y), hz = quantize(hit.z);
+
+        Level level = observer.level();
+        CachedRay cached = entry(observer, target, now).aim;
+        if (cached.matches(level, ex, ey, ez, hx, hy, hz, 0)) return cached.value;
+
+        boolean clear = PlayerGazeHelper.isPathClear(observer, eye, hit);
+        cached.store(clear, collectSections(eye, hit, QUANT_STEP), ex, ey, ez, hx, hy, hz, 0);
+        return clear;
+    }
+
+    /**
+     * 收集线段 from → to 周围 margin 格内经过的所有分段
+     */
+    private long[] collectSections(Vec3 from, Vec3 to, double margin) {
+        scratch.clear();
+
+        // 分段内的射线被方块边缘擦到也算途经，额外留出 1 格
+        double pad = margin + 1.0;
+        double length = from.distanceTo(to);
+        int steps = Math.max(1, Mth.ceil(length / SAMPLE_STEP));
+
+        for (int i = 0; i <= steps; i++) {
+            double t = (double) i / steps;
+            double x = Mth.lerp(t, from.x, to.x), y = Mth.lerp(t, from.y, to.y), z = Mth.lerp(t, from.z, to.z);
+
+            int sx0 = SectionPos.blockToSectionCoord(Mth.floor(x - pad)), sx1 = SectionPos.blockToSectionCoord(Mth.floor(x + pad));
+            int sy0 = SectionPos.blockToSectionCoord(Mth.floor(y - pad)), sy1 = SectionPos.blockToSectionCoord(Mth.floor(y + pad));
+            int sz0 = SectionPos.blockToSectionCoord(Mth.floor(z - pad)), sz1 = SectionPos.blockToSectionCoord(Mth.floor(z + pad));
+
+            for (int sx = sx0; sx <= sx1; sx++) {
+                for (int sy = sy0; sy <= sy1; sy++) {
+                    for (int sz = sz0; sz <= sz1; sz++) {
+                        scratch.add(SectionPos.asLong(sx, sy, sz));
+                    }
+                }
+            }
+        }
+        return scratch.toLongArray();
+    }
+
+    // ==================================================
+    //                 回收
+    // ==================================================
+
+    public void removeEntity(int entityId) {
+        entries.long2ObjectEntrySet().removeIf(e -> (int) (e.getLongKey() >>> 32) == entityId || (int) e.getLongKey() == entityId);
+    }
+
+    public void expire(long now, long idleTicks) {
+        entries.values().removeIf(entry -> now - entry.touched > idleTicks);
+    }
+
+    public void clear() {
+        entries.clear();
+    }
+}
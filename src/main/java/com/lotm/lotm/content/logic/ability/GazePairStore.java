@@ -0,0 +1,218 @@
+package com.lotm.lotm.content.logic.ability;
+
+import it.unimi.dsi.fastutil.ints.Int2ObjectOpenHashMap;
+import it.unimi.dsi.fastutil.ints.IntArrayList;
+import it.unimi.dsi.fastutil.ints.IntIterator;
+import it.unimi.dsi.fastutil.ints.IntOpenHashSet;
+import it.unimi.dsi.fastutil.longs.Long2IntOpenHashMap;
+
+import java.util.Arrays;
+
+/**
+ * 感知配对状态表 (Gaze Pair Store)
+ * <p>
+ * 职责：
+ * 1. 保存每个 (目标, 观察者) 对的注视累计时长 (Ticks)、上次采样与上次警报时间，替代以 "UUID_UUID" 字符串为键的 HashMap。
+ * 2. 键为两个实体 ID 打包成的 long，经开放寻址的原始类型哈希表映射到槽位；
+ *    状态按列存放在并行数组中 (注视计数 / 警报时间 / 最近访问时间)，热路径不产生任何对象。
+ * 3. 反向索引记录每个实体参与的槽位，玩家下线时只删除与之相关的条目。
+ * 4. 长时间未访问的条目由 {@link #expire} 回收，槽位复用，长期运行的服务器内存保持有界。
+ * <p>
+ * 仅在服务端主线程访问。
+ */
+public class GazePairStore {
+
+    private static final int INITIAL_CAPACITY = 64;
+
+    private final Long2IntOpenHashMap index = new Long2IntOpenHashMap();
+    private final Int2ObjectOpenHashMap<IntOpenHashSet> byEntity = new Int2ObjectOpenHashMap<>();
+    private final IntArrayList freeSlots = new IntArrayList();
+
+    // 并行数组 (按槽位)
+    private long[] keys = new long[INITIAL_CAPACITY];
+    private int[] gazeTicks = new int[INITIAL_CAPACITY];
+    private long[] lastGaze = new long[INITIAL_CAPACITY];
+    private long[] lastAlert = new long[INITIAL_CAPACITY];
+    private long[] lastTouched = new long[INITIAL_CAPACITY];
+    private boolean[] used = new boolean[INITIAL_CAPACITY];
+    private int size = 0; // 已分配过的槽位数 (含空闲)
+
+    public GazePairStore() {
+        index.defaultReturnValue(-1);
+    }
+
+    private static long pack(int targetId, int observerId) {
+        return ((long) targetId << 32) | (observerId & 0xFFFFFFFFL);
+    }
+
+    private static int targetOf(long key) {
+        return (int) (key >>> 32);
+    }
+
+    private static int observerOf(long key) {
+        return (int) key;
+    }
+
+    /**
+     * 查找或创建配对槽位，并记录访问时间
+     */
+    public int slot(int targetId, int observerId, long now) {
+        long key = pack(targetId, observerId);
+        int slot = index.get(key);
+        if (slot < 0) {
+            slot = allocate(key);
+            index.put(key, slot);
+            link(targetId, slot);
+            link(observerId, slot);
+        }
+        lastTouched[slot] = now;
+        return slot;
+    }
+
+    /**
+     * 查找已有的配对槽位 (不创建)
+     *
+     * @return 槽位；不存在时返回 -1
+     */
+    public int find(int targetId, int observerId) {
+        return index.get(pack(targetId, observerId));
+    }
+
+    // ==================================================
+    //                 注视计数
+    // ==================================================
+
+    /**
+     * 更新注视状态：正在注视则累加距上次采样经过的 Tick 数，否则清零
+     * <p>
+     * 不同距离的配对采样间隔不同，按实际经过的时间累加才能保证触发时间一致。
+     *
+     * @param maxElapsed 单次最多累加的 Tick 数 (当前采样间隔；首次采样也按此计)
+     */
+    public void updateGaze(int slot, boolean looking, long now, int maxElapsed) {
+        long last = lastGaze[slot];
+        int elapsed = last == Long.MIN_VALUE ? maxElapsed : (int) Math.min(now - last, maxElapsed);
+        lastGaze[slot] = now;
+        gazeTicks[slot] = looking ? gazeTicks[slot] + elapsed : 0;
+    }
+
+    /**
+     * 连续注视时长达到要求 (计数大于 0 即表示当前仍在注视)
+     */
+    public boolean isTriggered(int slot, int requiredTicks) {
+        return gazeTicks[slot] > 0 && gazeTicks[slot] >= requiredTicks;
+    }
+
+    /**
+     * 计数是否大于 0 (为 0 时清零没有任何效果)
+     */
+    public boolean isGazing(int slot) {
+        return gazeTicks[slot] > 0;
+    }
+
+    public void resetGaze(int slot) {
+        gazeTicks[slot] = 0;
+    }
+
+    // ==================================================
+    //                 警报冷却
+    // ==================================================
+
+    public long getLastAlert(int slot) {
+        return lastAlert[slot];
+    }
+
+    public void setLastAlert(int slot, long time) {
+        lastAlert[slot] = time;
+    }
+
+    // ==================================================
+    //                 回收
+    // ==================================================
+
+    /**
+     * 删除与某实体相关的所有配对 (无论其作为目标还是观察者)
+     */
+    public void removeEntity(int entityId) {
+        IntOpenHashSet slots = byEntity.remove(entityId);
+        if (slots == null) return;
+
+        IntIterator it = slots.iterator();
+        while (it.hasNext()) {
+            int slot = it.nextInt();
+            long key = keys[slot];
+            int other = targetOf(key) == entityId ? observerOf(key) : targetOf(key);
+            unlink(other, slot);
+            release(slot);
+        }
+    }
+
+    /**
+     * 回收超过 idleTicks 未被访问的配对
+     */
+    public void expire(long now, long idleTicks) {
+        for (int slot = 0; slot < size; slot++) {
+            if (!used[slot] || now - lastTouched[slot] <= idleTicks) continue;
+
+            long key = keys[slot];
+            unlink(targetOf(key), slot);
+            unlink(observerOf(key), slot);
+            release(slot);
+        }
+    }
+
+    public void clear() {
+        index.clear();
+        byEntity.clear();
+        freeSlots.clear();
+        Arrays.fill(used, false);
+        size = 0;
+    }
+
+    // ==================================================
+    //                 槽位管理
+    // ==================================================
+
+    private int allocate(long key) {
+        int slot;
+        if (!freeSlots.isEmpty()) {
+            slot = freeSlots.popInt();
+        } else {
+            if (size == keys.length) grow();
+            slot = size++;
+        }
+        keys[slot] = key;
+        gazeTicks[slot] = 0;
+        lastGaze[slot] = Long.MIN_VALUE;
+        lastAlert[slot] = 0L;
+        used[slot] = true;
+        return slot;
+    }
+
+    private void release(int slot) {
+        index.remove(keys[slot]);
+        used[slot] = false;
+        freeSlots.add(slot);
+    }
+
+    private void grow() {
+        int capacity = keys.length * 2;
+        keys = Arrays.copyOf(keys, capacity);
+        gazeTicks = Arrays.copyOf(gazeTicks, capacity);
+        lastGaze = Arrays.copyOf(lastGaze, capacity);
+        lastAlert = Arrays.copyOf(lastAlert, capacity);
+        lastTouched = Arrays.copyOf(lastTouched, capacity);
+        used = Arrays.copyOf(used, capacity);
+    }
+
+    private void link(int entityId, int slot) {
+        byEntity.computeIfAbsent(entityId, k -> new IntOpenHashSet()).add(slot);
+    }
+
+    private void unlink(int entityId, int slot) {
+        IntOpenHashSet slots = byEntity.get(entityId);
+        if (slots != null && slots.remove(slot) && slots.isEmpty()) {
+            byEntity.remove(entityId);
+        }
+    }
+}
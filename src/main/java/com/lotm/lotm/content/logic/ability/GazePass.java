@@ -0,0 +1,140 @@
+package com.lotm.lotm.content.logic.ability;
+
+import com.lotm.lotm.LotMMod;
+import com.lotm.lotm.api.capability.PerceptionProfile;
+import com.lotm.lotm.common.config.LotMCommonConfig;
+import com.lotm.lotm.util.GazeKernel;
+import com.lotm.lotm.util.PerceptionEvaluator;
+import com.lotm.lotm.util.PlayerGazeHelper;
+import it.unimi.dsi.fastutil.ints.Int2ObjectOpenHashMap;
+import it.unimi.dsi.fastutil.ints.IntArrayList;
+import net.minecraft.server.level.ServerLevel;
+import net.minecraft.server.level.ServerPlayer;
+import net.minecraftforge.event.TickEvent;
+import net.minecraftforge.eventbus.api.SubscribeEvent;
+import net.minecraftforge.fml.common.Mod;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * 视线感知批处理 (Gaze Pass)
+ * <p>
+ * 职责：
+ * 1. 每个维度每 Tick 执行一次，但每个 (观察者, 目标) 对按距离分级采样：
+ *    近处 (&lt; {@link #NEAR_RANGE} 格) 每 {@link #NEAR_INTERVAL} Tick，
+ *    中距离 (&lt; {@link #MID_RANGE} 格) 每 {@link #MID_INTERVAL} Tick，更远 (直到最大感知距离，不另设上限) 每 {@link #FAR_INTERVAL} Tick。
+ *    注视时长按实际经过的 Tick 累加，触发时间与采样频率无关。
+ * 2. 只遍历 {@link DangerSenseRegistry} 中的感知目标；没有目标的维度直接跳过。
+ * 3. 每个目标的候选观察者取自服务端实体追踪关系 ({@link GazeObservers})，
+ *    无需任何空间查询，范围遵循服务端视距；具体距离由序列对应的最大感知距离决定。
+ * 4. 每个观察者的眼睛位置与视线方向在本轮中最多计算一次 ({@link PlayerGazeHelper.ObserverView})，
+ *    面对所有目标时复用；感知档案同理。
+ * 5. 本 Tick 到期的配对先全部登记到 {@link GazeKernel}，距离、视锥、碰撞箱相交三个几何阶段一次批量算完，
+ *    再逐个进入后续的属性对抗与射线阶段。
+ * 6. 开启异步模式时，配对交给 {@link AsyncGazeEvaluator} 在工作线程上判定，结果于下一 Tick 应用。
+ */
+@Mod.EventBusSubscriber(modid = LotMMod.MODID)
+public class GazePass {
+
+    // 距离分级 (格) 与对应的采样间隔 (Ticks)
+    private static final double NEAR_RANGE = 16.0;
+    private static final double MID_RANGE = 48.0;
+    private static final int NEAR_INTERVAL = 2;
+    private static final int MID_INTERVAL = 5;
+    private static final int FAR_INTERVAL = 20;
+
+    /**
+     * 本轮中观察者的快照
+     */
+    private record Observer(PlayerGazeHelper.ObserverView view, PerceptionProfile profile) {}
+
+    // 本轮到期的配对 (与内核下标一一对应，跨 Tick 复用，仅主线程访问)
+    private static final GazeKernel KERNEL = new GazeKernel();
+    private static final List<ServerPlayer> PENDING_OBSERVERS = new ArrayList<>();
+    private static final List<Observer> PENDING_VIEWS = new ArrayList<>();
+    private static final List<ServerPlayer> PENDING_TARGETS = new ArrayList<>();
+    private static final List<PerceptionProfile> PENDING_PROFILES = new ArrayList<>();
+    private static final IntArrayList PENDING_INTERVALS = new IntArrayList();
+
+    @SubscribeEvent
+    public static void onLevelTick(TickEvent.LevelTickEvent event) {
+        if (event.phase != TickEvent.Phase.END || !(event.level instanceof ServerLevel level)) return;
+
+        // 先应用上一批异步判定的结果
+        AsyncGazeEvaluator.applyCompleted(level);
+
+        long gameTime = level.getGameTime();
+        Int2ObjectOpenHashMap<Observer> observers = null;
+        AsyncGazeEvaluator.Batch batch = LotMCommonConfig.COMMON.gazeAsyncEvaluation.get()
+                ? AsyncGazeEvaluator.begin(level) : null;
+
+        // 只有开启了灵性直觉的玩家才需要检测 (绝大多数服务器上这是少数)
+        for (ServerPlayer target : DangerSenseRegistry.getTargets()) {
+            if (target.level() != level) continue;
+
+            PerceptionProfile targetProfile = null;
+            for (ServerPlayer observer : GazeObservers.of(target)) {
+                if (observer == target || observer.level() != level) continue;
+
+                // 按距离决定采样间隔，并用实体 ID 错开相位，避免所有配对挤在同一 Tick
+                int interval = intervalFor(observer.distanceToSqr(target));
+                if ((gameTime + observer.getId() + target.getId()) % interval != 0) continue;
+
+                if (observers == null) observers = new Int2ObjectOpenHashMap<>();
+                Observer snapshot = observers.get(observer.getId());
+                if (snapshot == null) {
+                    snapshot = new Observer(PlayerGazeHelper.ObserverView.of(observer), PerceptionEvaluator.getProfile(observer));
+                    observers.put(observer.getId(), snapshot);
+                }
+                if (targetProfile == null) targetProfile = PerceptionEvaluator.getProfile(target);
+
+                if (batch != null) {
+                    batch.add(observer, snapshot.view(), snapshot.profile(), target, targetProfile, interval);
+                } else {
+                    DangerSenseHandler.addPair(KERNEL, observer, snapshot.view(), target, targetProfile);
+                    PENDING_OBSERVERS.add(observer);
+                    PENDING_VIEWS.add(snapshot);
+                    PENDING_TARGETS.add(target);
+                    PENDING_PROFILES.add(targetProfile);
+                    PENDING_INTERVALS.add(interval);
+                }
+            }
+        }
+
+        if (batch != null) {
+            batch.submit();
+        } else if (KERNEL.size() > 0) {
+            runPending();
+        }
+    }
+
+    /**
+     * 批量计算几何阶段，再逐个完成检测
+     */
+    private static void runPending() {
+        KERNEL.compute(DangerSenseHandler.VIEW_CONE_COS);
+
+        try {
+            for (int i = 0; i < KERNEL.size(); i++) {
+                Observer snapshot = PENDING_VIEWS.get(i);
+                DangerSenseHandler.checkGazeDanger(PENDING_OBSERVERS.get(i), snapshot.view(), snapshot.profile(),
+                        PENDING_TARGETS.get(i), PENDING_PROFILES.get(i), PENDING_INTERVALS.getInt(i), KERNEL, i);
+            }
+        } finally {
+            // 不持有玩家引用到下一 Tick
+            KERNEL.clear();
+            PENDING_OBSERVERS.clear();
+            PENDING_VIEWS.clear();
+            PENDING_TARGETS.clear();
+            PENDING_PROFILES.clear();
+            PENDING_INTERVALS.clear();
+        }
+    }
+
+    private static int intervalFor(double distSqr) {
+        if (distSqr < NEAR_RANGE * NEAR_RANGE) return NEAR_INTERVAL;
+        if (distSqr < MID_RANGE * MID_RANGE) return MID_INTERVAL;
+        return FAR_INTERVAL;
+    }
+}
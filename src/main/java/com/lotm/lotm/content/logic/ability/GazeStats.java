@@ -0,0 +1,50 @@
+package com.lotm.lotm.content.logic.ability;
+
+import java.util.Arrays;
+
+/**
+ * 视线感知流水线统计 (Gaze Pipeline Stats)
+ * <p>
+ * 职责：
+ * 1. 按阶段记录被拒绝的 (观察者, 目标) 对数量，便于确认绝大多数配对在射线检测之前就被过滤。
+ * 2. 通过 /lotm gazestats 查看与清零。
+ * <p>
+ * 仅在服务端主线程写入。
+ */
+public class GazeStats {
+
+    /**
+     * 流水线阶段 (按开销从低到高排列)
+     */
+    public enum Stage {
+        PROFILE,     // 目标未开启灵性直觉
+        DISTANCE,    // 超出序列对应的最大感知距离
+        CONCEALMENT, // 观察者隐蔽过高 (绝对隐蔽)
+        VIEW_CONE,   // 不在观察者视锥内
+        AIM_BOX,     // 视线没有穿过 (膨胀后的) 碰撞箱
+        OCCLUSION,   // 目标完全被方块遮挡
+        AIM_RAY,     // 瞄准路径被方块阻挡
+        PASSED       // 通过全部检测 (正在注视)
+    }
+
+    private static final Stage[] STAGES = Stage.values();
+    private static final long[] COUNTS = new long[STAGES.length];
+
+    static void record(Stage stage) {
+        COUNTS[stage.ordinal()]++;
+    }
+
+    public static long get(Stage stage) {
+        return COUNTS[stage.ordinal()];
+    }
+
+    public static long total() {
+        long total = 0L;
+        for (long count : COUNTS) total += count;
+        return total;
+    }
+
+    public static void reset() {
+        Arrays.fill(COUNTS, 0L);
+    }
+}
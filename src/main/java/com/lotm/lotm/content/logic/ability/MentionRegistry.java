@@ -0,0 +1,127 @@
+package com.lotm.lotm.content.logic.ability;
+
+import com.lotm.lotm.LotMMod;
+import com.lotm.lotm.api.capability.IBeyonderState;
+import com.lotm.lotm.common.capability.BeyonderStateProvider;
+import com.lotm.lotm.util.AhoCorasick;
+import net.minecraft.server.level.ServerPlayer;
+import net.minecraftforge.event.entity.player.PlayerEvent;
+import net.minecraftforge.event.server.ServerStoppedEvent;
+import net.minecraftforge.eventbus.api.EventPriority;
+import net.minecraftforge.eventbus.api.SubscribeEvent;
+import net.minecraftforge.fml.common.Mod;
+
+import javax.annotation.Nullable;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+
+/**
+ * 名字感知注册表 (Mention Registry)
+ * <p>
+ * 职责：
+ * 1. 维护全服 (跨维度) 能感知名字被提及的在线玩家 (序列 {@link #MAX_SEQUENCE} 及以上)。
+ * 2. 用这些玩家的名字构建 Aho–Corasick 自动机，一条消息只需线性扫描一次即可得到所有被提及者，
+ *    开销与在线人数无关。
+ * 3. 由 BeyonderState 的序列 / 途径变化增量更新，登录时重新评估，登出时移除；
+ *    成员变化后自动机在下一条消息到来时重建。
+ * <p>
+ * 仅在服务端主线程访问。
+ */
+@Mod.EventBusSubscriber(modid = LotMMod.MODID)
+public class MentionRegistry {
+
+    // 统一阈值：半神 (Seq 4) 以上才能感知名字被提及
+    private static final int MAX_SEQUENCE = 4;
+
+    private static final Map<UUID, ServerPlayer> SENSERS = new LinkedHashMap<>();
+
+    // 与自动机模式下标一一对应的玩家
+    private static List<ServerPlayer> indexed = Collections.emptyList();
+    @Nullable
+    private static AhoCorasick automaton = null;
+
+    /**
+     * 根据玩家当前的非凡状态重新评估是否能感知名字
+     */
+    public static void update(ServerPlayer player, IBeyonderState state) {
+        if (state.getSequence() <= MAX_SEQUENCE) {
+            if (SENSERS.put(player.getUUID(), player) != player) automaton = null;
+        } else if (SENSERS.remove(player.getUUID()) != null) {
+            automaton = null;
+        }
+    }
+
+    /**
+     * 找出内容中被提及的所有感知者 (每人最多出现一次)
+     */
+    public static List<ServerPlayer> findMentioned(String content) {
+        if (SENSERS.isEmpty()) return Collections.emptyList();
+
+        if (automaton == null) rebuild();
+
+        List<ServerPlayer> players = indexed;
+        boolean[] seen = new boolean[players.size()];
+        List<ServerPlayer> mentioned = new ArrayList<>();
+        automaton.forEachMatch(content, index -> {
+            if (!seen[index]) {
+                seen[index] = true;
+                mentioned.add(players.get(index));
+            }
+        });
+        return mentioned;
+    }
+
+    private static void rebuild() {
+        indexed = new ArrayList<>(SENSERS.values());
+        List<String> names = new ArrayList<>(indexed.size());
+        for (ServerPlayer player : indexed) {
+            names.add(player.getName().getString());
+        }
+        automaton = AhoCorasick.build(names);
+    }
+
+    private static void remove(UUID id) {
+        if (SENSERS.remove(id) != null) automaton = null;
+    }
+
+    private static void refresh(ServerPlayer player) {
+        player.getCapability(BeyonderStateProvider.CAPABILITY).ifPresent(state -> update(player, state));
+    }
+
+    // ==================================================
+    //                 事件监听
+    // ==================================================
+
+    @SubscribeEvent
+    public static void onPlayerLoggedIn(PlayerEvent.PlayerLoggedInEvent event) {
+        if (event.getEntity() instanceof ServerPlayer player) {
+            refresh(player);
+        }
+    }
+
+    /**
+     * 取最低优先级：非凡状态已在 CommonForgeEvents.onPlayerClone 中复制，这里按新对象重新评估
+     */
+    @SubscribeEvent(priority = EventPriority.LOWEST)
+    public static void onPlayerClone(PlayerEvent.Clone event) {
+        if (event.getEntity() instanceof ServerPlayer player) {
+            refresh(player);
+        }
+    }
+
+    @SubscribeEvent
+    public static void onPlayerLoggedOut(PlayerEvent.PlayerLoggedOutEvent event) {
+        remove(event.getEntity().getUUID());
+    }
+
+    @SubscribeEvent
+    public static void onServerStopped(ServerStoppedEvent event) {
+        SENSERS.clear();
+        indexed = Collections.emptyList();
+        automaton = null;
+    }
+}
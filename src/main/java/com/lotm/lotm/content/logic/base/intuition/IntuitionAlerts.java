@@ -0,0 +1,147 @@
+package com.lotm.lotm.content.logic.base.intuition;
+
+import com.lotm.lotm.LotMMod;
+import com.lotm.lotm.api.capability.PerceptionProfile;
+import com.lotm.lotm.common.network.PacketHandler;
+import com.lotm.lotm.common.network.packet.s2c.S2CIntuitionAlertPacket;
+import com.lotm.lotm.content.logic.ability.DangerSenseRegistry;
+import com.lotm.lotm.util.PerceptionEvaluator;
+import com.lotm.lotm.util.ThreatEvaluator;
+import net.minecraft.resources.ResourceLocation;
+import net.minecraft.server.level.ServerPlayer;
+import net.minecraft.world.entity.LivingEntity;
+import net.minecraft.world.entity.Mob;
+import net.minecraftforge.event.TickEvent;
+import net.minecraftforge.event.entity.living.LivingAttackEvent;
+import net.minecraftforge.event.entity.living.LivingChangeTargetEvent;
+import net.minecraftforge.event.entity.player.PlayerEvent;
+import net.minecraftforge.event.server.ServerStoppedEvent;
+import net.minecraftforge.eventbus.api.SubscribeEvent;
+import net.minecraftforge.fml.common.Mod;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+
+/**
+ * 灵性直觉预警 (Intuition Alerts)
+ * <p>
+ * 职责：
+ * 1. 记录每个玩家当前已知的最高威胁等级，{@link S2CIntuitionAlertPacket} 只在等级上升时发送 (边沿触发)。
+ * 2. 事件驱动：生物把开启灵性直觉的玩家设为目标、或攻击该玩家时，于本 Tick 末评估这个生物的威胁并立即推送，
+ *    不必等下一次周期扫描。
+ * 3. 周期扫描 ({@link IntuitionLogic#scanForDanger} 与怪物途径的灵性直觉) 只作为低频校准：
+ *    用扫描得到的真实最大值覆盖记录 (威胁消退时静默下调，上升时同样发送)。
+ * <p>
+ * 事件路径只评估触发事件的那一个生物，不做实体查询；范围与过滤规则与对应途径的扫描一致：
+ * 怪物途径按灵性直觉的范围、感知一切；其他途径按危险扫描的范围，感知不到隐形生物，且只感知锁定自己或贴身的生物。
+ * 范围按碰撞箱间隙计算 (与 {@link PerceptionSnapshot.Entry#within} 相同)。
+ * 锁定事件在 Tick 末还会确认生物的目标仍是该玩家 (事件可能被取消，或同一 Tick 内又换了目标)。
+ * 仅在服务端主线程访问。
+ */
+@Mod.EventBusSubscriber(modid = LotMMod.MODID)
+public class IntuitionAlerts {
+
+    private static final ResourceLocation PATHWAY_MONSTER = new ResourceLocation(LotMMod.MODID, "monster");
+
+    // 每个玩家当前已知的最高威胁等级
+    private static final Map<UUID, Integer> CURRENT = new HashMap<>();
+
+    // 本 Tick 内触发的 (生物, 玩家) 对；Tick 末再评估，届时重新确认锁定与范围
+    private static final List<Pending> PENDING = new ArrayList<>();
+
+    /**
+     * @param targeting true 表示由锁定事件触发 (Tick 末要求生物的目标仍是该玩家)
+     */
+    private record Pending(LivingEntity source, ServerPlayer player, boolean targeting) {}
+
+    /**
+     * 周期扫描校准：以扫描结果为准，等级上升时发送预警
+     */
+    public static void reconcile(ServerPlayer player, int maxThreat) {
+        Integer previous = CURRENT.put(player.getUUID(), maxThreat);
+        if (maxThreat > 0 && maxThreat > (previous == null ? 0 : previous)) {
+            PacketHandler.sendToPlayer(new S2CIntuitionAlertPacket(maxThreat), player);
+        }
+    }
+
+    /**
+     * 事件推送：只会抬高记录
+     */
+    private static void raise(ServerPlayer player, int threat) {
+        int previous = CURRENT.getOrDefault(player.getUUID(), 0);
+        if (threat <= previous) return;
+
+        CURRENT.put(player.getUUID(), threat);
+        PacketHandler.sendToPlayer(new S2CIntuitionAlertPacket(threat), player);
+    }
+
+    private static void queue(LivingEntity source, LivingEntity victim, boolean targeting) {
+        if (source == victim || !(victim instanceof ServerPlayer player) || !DangerSenseRegistry.isTarget(player)) return;
+        PENDING.add(new Pending(source, player, targeting));
+    }
+
+    /**
+     * Tick 末的复核：锁定是否仍然成立、是否在该途径扫描的范围内、是否通过扫描的过滤
+     */
+    private static boolean isSensed(Pending pending) {
+        LivingEntity source = pending.source();
+        ServerPlayer player = pending.player();
+        if (!source.isAlive() || player.isRemoved() || source.level() != player.level()) return false;
+        if (pending.targeting() && !(source instanceof Mob mob && mob.getTarget() == player)) return false;
+
+        PerceptionProfile profile = PerceptionEvaluator.getProfile(player);
+        boolean isMonster = PATHWAY_MONSTER.equals(profile.pathwayId());
+        double range = isMonster
+                ? MonsterIntuitionLogic.getSenseRange(profile.sequence())
+                : IntuitionLogic.getSenseRange(profile.sequence(), false);
+        if (PerceptionSnapshot.boxGap(player.getBoundingBox(), source.getBoundingBox()) >= range) return false;
+
+        return IntuitionLogic.isNoticed(player, source, source.distanceToSqr(player), isMonster);
+    }
+
+    // ==================================================
+    //                 事件监听
+    // ==================================================
+
+    @SubscribeEvent
+    public static void onChangeTarget(LivingChangeTargetEvent event) {
+        if (event.getEntity().level().isClientSide || event.getNewTarget() == null) return;
+        queue(event.getEntity(), event.getNewTarget(), true);
+    }
+
+    @SubscribeEvent
+    public static void onLivingAttack(LivingAttackEvent event) {
+        if (event.getEntity().level().isClientSide) return;
+        if (event.getSource().getEntity() instanceof LivingEntity attacker) {
+            queue(attacker, event.getEntity(), false);
+        }
+    }
+
+    @SubscribeEvent
+    public static void onServerTick(TickEvent.ServerTickEvent event) {
+        if (event.phase != TickEvent.Phase.END || PENDING.isEmpty()) return;
+
+        try {
+            for (Pending pending : PENDING) {
+                if (!isSensed(pending)) continue;
+                raise(pending.player(), ThreatEvaluator.evaluate(pending.player(), pending.source()).value);
+            }
+        } finally {
+            PENDING.clear();
+        }
+    }
+
+    @SubscribeEvent
+    public static void onPlayerLoggedOut(PlayerEvent.PlayerLoggedOutEvent event) {
+        CURRENT.remove(event.getEntity().getUUID());
+    }
+
+    @SubscribeEvent
+    public static void onServerStopped(ServerStoppedEvent event) {
+        CURRENT.clear();
+        PENDING.clear();
+    }
+}
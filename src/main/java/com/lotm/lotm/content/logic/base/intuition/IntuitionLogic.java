@@ -1,20 +1,45 @@
 package com.lotm.lotm.content.logic.base.intuition;
 
-import com.lotm.lotm.util.ThreatEvaluator;
 import net.minecraft.server.level.ServerPlayer;
 import net.minecraft.world.entity.LivingEntity;
-import net.minecraft.world.phys.AABB;
-
-import java.util.List;
+import net.minecraft.world.entity.Mob;
 
 /**
  * 直觉系统通用逻辑
  * <p>
  * 职责：封装危险扫描算法，供技能类调用。
  * 将计算逻辑从 Skill 类中剥离，实现解耦。
+ * 周围生物与威胁等级取自 {@link PerceptionSnapshot}。
  */
 public class IntuitionLogic {
 
+    // 普通途径无视“是否锁定我”的贴身距离 (5 格) 的平方
+    private static final double CLOSE_RANGE_SQR = 25.0;
+
+    /**
+     * 危险扫描的感知范围 (碰撞箱间隙，格)
+     */
+    static double getSenseRange(int sequence, boolean isMonsterPathway) {
+        double range = 10.0 + (9 - sequence) * 4.0;
+        return isMonsterPathway ? range * 1.5 : range; // 怪物途径范围更大
+    }
+
+    /**
+     * 扫描的过滤规则：该生物是否能被感知
+     * <p>
+     * 怪物途径感知所有环境威胁 (包括隐形单位)；普通途径感知不到隐形单位，
+     * 且只感知针对自己的威胁 (Targeting Me) 或极近距离的敌人。
+     *
+     * @param distSqr 生物到玩家的距离平方
+     */
+    static boolean isNoticed(ServerPlayer player, LivingEntity entity, double distSqr, boolean isMonsterPathway) {
+        if (isMonsterPathway) return true;
+        if (entity.isInvisible()) return false;
+
+        boolean isTargetingMe = entity instanceof Mob mob && mob.getTarget() == player;
+        return isTargetingMe || distSqr <= CLOSE_RANGE_SQR;
+    }
+
     /**
      * 扫描周围的危险等级
      *
@@ -25,34 +50,20 @@ public class IntuitionLogic {
      */
     public static int scanForDanger(ServerPlayer player, int sequence, boolean isMonsterPathway) {
         // 1. 计算感知范围
-        double range = 10.0 + (9 - sequence) * 4.0;
-        if (isMonsterPathway) range *= 1.5; // 怪物途径范围更大
-
-        AABB searchBox = player.getBoundingBox().inflate(range);
-
-        // 2. 获取范围内实体
-        List<LivingEntity> entities = player.level().getEntitiesOfClass(LivingEntity.class, searchBox, e -> e != player && e.isAlive());
+        double range = getSenseRange(sequence, isMonsterPathway);
 
+        // 2. 获取范围内实体 (本 Tick 的共享快照)
         int maxThreat = 0;
 
-        for (LivingEntity entity : entities) {
-            // 怪物途径能感知隐形单位
-            if (!isMonsterPathway && entity.isInvisible()) continue;
+        for (PerceptionSnapshot.Entry entry : PerceptionSnapshot.of(player, range).entries()) {
+            if (!entry.within(range)) continue;
 
-            // 3. 评估威胁
-            ThreatEvaluator.ThreatLevel threat = ThreatEvaluator.evaluate(player, entity);
-
-            // 4. 过滤逻辑
-            // 普通途径只感知针对自己的威胁 (Targeting Me) 或极近距离的敌人
-            if (!isMonsterPathway) {
-                boolean isTargetingMe = (entity instanceof net.minecraft.world.entity.Mob mob && mob.getTarget() == player);
-                // 如果没有针对我，且距离较远，忽略
-                if (!isTargetingMe && entity.distanceToSqr(player) > 25.0) continue;
-            }
-            // 怪物途径感知所有环境威胁 (Map Hack 模式)
+            // 3. 过滤逻辑 (隐形单位、是否针对我)
+            if (!isNoticed(player, entry.entity(), entry.distSqr(), isMonsterPathway)) continue;
 
-            if (threat.value > maxThreat) {
-                maxThreat = threat.value;
+            // 4. 威胁等级 (构建快照时已评估)
+            if (entry.threat().value > maxThreat) {
+                maxThreat = entry.threat().value;
             }
         }
 
@@ -3,24 +3,18 @@ package com.lotm.lotm.content.logic.base.intuition;
 import com.lotm.lotm.api.capability.IBeyonderState;
 import com.lotm.lotm.common.network.PacketHandler;
 import com.lotm.lotm.common.network.packet.s2c.S2CHallucinationPacket;
-import com.lotm.lotm.common.network.packet.s2c.S2CIntuitionAlertPacket;
 import com.lotm.lotm.content.logic.monster.whisper.WhisperManager;
+import com.lotm.lotm.util.LineOfSight;
 import com.lotm.lotm.util.ThreatEvaluator;
 import net.minecraft.core.BlockPos;
 import net.minecraft.network.chat.Component;
 import net.minecraft.server.level.ServerPlayer;
 import net.minecraft.sounds.SoundEvents;
 import net.minecraft.sounds.SoundSource;
-import net.minecraft.world.entity.LivingEntity;
-import net.minecraft.world.level.ClipContext;
 import net.minecraft.world.level.Level;
-import net.minecraft.world.phys.AABB;
-import net.minecraft.world.phys.BlockHitResult;
-import net.minecraft.world.phys.HitResult;
 import net.minecraft.world.phys.Vec3;
 
 import java.util.HashMap;
-import java.util.List;
 import java.util.Map;
 import java.util.Random;
 import java.util.UUID;
@@ -88,17 +82,24 @@ public class MonsterIntuitionLogic {
         if (RANDOM.nextFloat() < chance) triggerVisualHallucination(player);
     }
 
+    /**
+     * 灵性直觉的感知范围 (碰撞箱间隙，格)
+     */
+    static double getSenseRange(int seq) {
+        return 16.0 + (9 - seq) * 4.0;
+    }
+
     private static void handleSpiritualIntuition(ServerPlayer player, int seq) {
-        double range = 16.0 + (9 - seq) * 4.0;
-        AABB searchBox = player.getBoundingBox().inflate(range);
-        List<LivingEntity> entities = player.level().getEntitiesOfClass(LivingEntity.class, searchBox, e -> e != player && e.isAlive());
+        double range = getSenseRange(seq);
         int maxThreatValue = 0;
-        for (LivingEntity target : entities) {
-            ThreatEvaluator.ThreatLevel level = ThreatEvaluator.evaluate(player, target);
-            if (level.value > maxThreatValue) maxThreatValue = level.value;
+        // 与同一 Tick 的呓语扫描共用快照 (呓语先执行且范围更大，这里不会再次查询实体)
+        for (PerceptionSnapshot.Entry entry : PerceptionSnapshot.of(player, range).entries()) {
+            if (!entry.within(range)) continue;
+            if (entry.threat().value > maxThreatValue) maxThreatValue = entry.threat().value;
             if (maxThreatValue >= ThreatEvaluator.ThreatLevel.FATAL.value) break;
         }
-        if (maxThreatValue > 0) PacketHandler.sendToPlayer(new S2CIntuitionAlertPacket(maxThreatValue), player);
+        // 周期校准：只有等级上升时才会发出预警 (生物锁定 / 攻击由 IntuitionAlerts 即时推送)
+        IntuitionAlerts.reconcile(player, maxThreatValue);
     }
 
     /**
@@ -126,18 +127,12 @@ public class MonsterIntuitionLogic {
         Vec3 endPos = startPos.add(targetDir.scale(distance));
 
         // 发射射线，检测方块碰撞
-        BlockHitResult hitResult = level.clip(new ClipContext(
-                startPos,
-                endPos,
-                ClipContext.Block.COLLIDER,
-                ClipContext.Fluid.NONE,
-                player
-        ));
+        Vec3 hitPos = LineOfSight.clip(level, startPos, endPos, player);
 
         Vec3 spawnPos;
-        if (hitResult.getType() != HitResult.Type.MISS) {
+        if (hitPos != null) {
             // 如果撞墙了，生成在墙壁前面一点点 (退回 0.5 格)，防止嵌在墙里
-            spawnPos = hitResult.getLocation().subtract(targetDir.scale(0.5));
+            spawnPos = hitPos.subtract(targetDir.scale(0.5));
         } else {
             // 没撞墙，就用最大距离
             spawnPos = endPos;
@@ -0,0 +1,129 @@
+package com.lotm.lotm.content.logic.base.intuition;
+
+import com.lotm.lotm.LotMMod;
+import com.lotm.lotm.client.util.EntityRelationEvaluator;
+import com.lotm.lotm.util.PerceptionEvaluator;
+import com.lotm.lotm.util.ThreatEvaluator;
+import net.minecraft.server.level.ServerPlayer;
+import net.minecraft.world.entity.LivingEntity;
+import net.minecraft.world.entity.player.Player;
+import net.minecraft.world.phys.AABB;
+import net.minecraftforge.event.TickEvent;
+import net.minecraftforge.event.server.ServerStoppedEvent;
+import net.minecraftforge.eventbus.api.SubscribeEvent;
+import net.minecraftforge.fml.common.Mod;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+
+/**
+ * 玩家周边感知快照 (Perception Snapshot)
+ * <p>
+ * 职责：
+ * 1. 每个玩家每 Tick 最多构建一次 (按需)：一次实体查询取得周围存活的生物，
+ *    并为每个生物缓存距离平方、与玩家的关系、威胁等级与序列。
+ * 2. 危险扫描 ({@link IntuitionLogic})、怪物途径的灵性直觉与威胁呓语都从同一份快照读取，
+ *    同一 Tick 内不再各自查询实体、各自评估威胁。
+ * <p>
+ * 快照按请求的最大范围构建；同一 Tick 内有更大范围的请求时会重建一次。
+ * 因此同一 Tick 内的多个调用方应先请求范围最大的那个。每个服务器 Tick 结束时清空，不持有实体引用。
+ * 仅在服务端主线程访问。
+ */
+@Mod.EventBusSubscriber(modid = LotMMod.MODID)
+public class PerceptionSnapshot {
+
+    private static final Map<UUID, PerceptionSnapshot> SNAPSHOTS = new HashMap<>();
+
+    private final long gameTime;
+    private final double range;
+    private final List<Entry> entries;
+
+    /**
+     * 快照中的一个生物
+     *
+     * @param distSqr  到玩家的距离平方
+     * @param boxGap   两者碰撞箱在各轴上的最大间隙 (碰撞箱膨胀 r 后相交 ⇔ boxGap &lt; r，与原实体查询的范围语义一致)
+     * @param sequence 玩家目标的序列；非玩家为 -1
+     */
+    public record Entry(LivingEntity entity, double distSqr, double boxGap,
+                        EntityRelationEvaluator.RelationType relation, ThreatEvaluator.ThreatLevel threat, int sequence) {
+
+        /**
+         * 是否在 {@code player.getBoundingBox().inflate(range)} 的查询范围内
+         */
+        public boolean within(double range) {
+            return boxGap < range;
+        }
+    }
+
+    private PerceptionSnapshot(long gameTime, double range, List<Entry> entries) {
+        this.gameTime = gameTime;
+        this.range = range;
+        this.entries = entries;
+    }
+
+    /**
+     * 获取玩家本 Tick 的感知快照 (至少覆盖 range 范围)
+     */
+    public static PerceptionSnapshot of(ServerPlayer player, double range) {
+        long now = player.level().getGameTime();
+        PerceptionSnapshot snapshot = SNAPSHOTS.get(player.getUUID());
+        if (snapshot == null || snapshot.gameTime != now || snapshot.range < range) {
+            snapshot = build(player, range, now);
+            SNAPSHOTS.put(player.getUUID(), snapshot);
+        }
+        return snapshot;
+    }
+
+    private static PerceptionSnapshot build(ServerPlayer player, double range, long now) {
+        AABB own = player.getBoundingBox();
+        List<LivingEntity> entities = player.level().getEntitiesOfClass(LivingEntity.class, own.inflate(range),
+                e -> e != player && e.isAlive());
+
+        List<Entry> entries = new ArrayList<>(entities.size());
+        for (LivingEntity entity : entities) {
+            EntityRelationEvaluator.RelationType relation = EntityRelationEvaluator.evaluate(entity, player);
+            ThreatEvaluator.ThreatLevel threat = ThreatEvaluator.evaluate(player, entity, relation);
+            int sequence = entity instanceof Player target ? PerceptionEvaluator.getProfile(target).sequence() : -1;
+
+            entries.add(new Entry(entity, entity.distanceToSqr(player), boxGap(own, entity.getBoundingBox()),
+                    relation, threat, sequence));
+        }
+        return new PerceptionSnapshot(now, range, Collections.unmodifiableList(entries));
+    }
+
+    /**
+     * 两个碰撞箱在各轴上的最大间隙 (a 膨胀 r 后与 b 相交 ⇔ 结果 &lt; r)
+     */
+    static double boxGap(AABB a, AABB b) {
+        double gx = Math.max(b.minX - a.maxX, a.minX - b.maxX);
+        double gy = Math.max(b.minY - a.maxY, a.minY - b.maxY);
+        double gz = Math.max(b.minZ - a.maxZ, a.minZ - b.maxZ);
+        return Math.max(gx, Math.max(gy, gz));
+    }
+
+    /**
+     * 快照中的全部生物 (可能超出调用方自己的范围，用 {@link Entry#within} 过滤)
+     */
+    public List<Entry> entries() {
+        return entries;
+    }
+
+    // ==================================================
+    //                 清理
+    // ==================================================
+
+    @SubscribeEvent
+    public static void onServerTick(TickEvent.ServerTickEvent event) {
+        if (event.phase == TickEvent.Phase.END) SNAPSHOTS.clear();
+    }
+
+    @SubscribeEvent
+    public static void onServerStopped(ServerStoppedEvent event) {
+        SNAPSHOTS.clear();
+    }
+}
@@ -2,15 +2,19 @@ package com.lotm.lotm.content.logic.monster.whisper.provider;
 
 import com.lotm.lotm.content.logic.monster.whisper.IWhisperProvider;
 import com.lotm.lotm.content.logic.monster.whisper.WhisperManager;
+import com.lotm.lotm.content.logic.seer.divination.search.BlockPositionIndex;
 import net.minecraft.core.BlockPos;
+import net.minecraft.core.SectionPos;
 import net.minecraft.network.chat.Component;
+import net.minecraft.server.level.ServerLevel;
 import net.minecraft.server.level.ServerPlayer;
-import net.minecraft.world.level.Level;
 import net.minecraft.world.level.block.entity.BlockEntity;
-import net.minecraft.world.level.block.state.BlockState;
+import net.minecraft.world.level.chunk.LevelChunk;
 import net.minecraftforge.common.Tags;
 import net.minecraftforge.common.capabilities.ForgeCapabilities;
 
+import javax.annotation.Nullable;
+
 /**
  * 环境呓语：高价值物品探测
  * <p>
@@ -18,70 +22,115 @@ import net.minecraftforge.common.capabilities.ForgeCapabilities;
  * 1. 废弃了“单点随机抽样”的愚蠢逻辑。
  * 2. 改为“范围遍历扫描”，确保只要范围内有东西就一定能扫到。
  * 3. 增加了距离判断，优先报告最近的目标。
+ * 4. 矿物改为查询 {@link BlockPositionIndex}，容器改为只遍历附近区块的方块实体表，不再逐格扫描体积。
  */
 public class EnvironmentWhisper implements IWhisperProvider {
 
-    // 扫描半径 (水平 8 格，垂直 4 格)
-    // 扫描体积约 17x9x17 = 2601 个方块，对于 5 秒一次的频率，性能消耗可忽略不计。
+    // 扫描半径 (水平 8 格，垂直 8 格)
     private static final int H_RANGE = 8;
     private static final int V_RANGE = 8;
 
     @Override
     public Component tryGenerateWhisper(ServerPlayer player, int sequence) {
-        Level level = player.level();
+        ServerLevel level = player.serverLevel();
         BlockPos center = player.blockPosition();
 
+        // 1. 检查矿物 (索引查表)
+        BlockPos orePos = findNearestOre(level, center);
+        double oreDistSq = orePos != null ? center.distSqr(orePos) : Double.MAX_VALUE;
+
+        // 2. 检查容器 (优先级略高：距离相同时报告容器)
+        BlockPos containerPos = findNearestContainer(level, center, oreDistSq);
+
+        // 如果扫描到了目标，生成提示文本
+        if (containerPos != null) {
+            Component dir = WhisperManager.getFuzzyDirection(player, containerPos.getCenter());
+            return Component.translatable("message.lotm.whisper.treasure.chest", dir);
+        }
+        if (orePos != null) {
+            Component dir = WhisperManager.getFuzzyDirection(player, orePos.getCenter());
+            return Component.translatable("message.lotm.whisper.treasure.ore", dir);
+        }
+
+        return null;
+    }
+
+    @Nullable
+    private BlockPos findNearestOre(ServerLevel level, BlockPos center) {
+        if (BlockPositionIndex.isIndexed(Tags.Blocks.ORES)) {
+            return BlockPositionIndex.findNearest(level, center, H_RANGE, V_RANGE,
+                    block -> block.defaultBlockState().is(Tags.Blocks.ORES),
+                    packed -> !isAtFeet(center, BlockPos.getX(packed), BlockPos.getY(packed), BlockPos.getZ(packed)));
+        }
+
+        // 兜底：矿物标签未被索引 (配置移除了 #forge:ores) 时退回逐格扫描
         BlockPos foundPos = null;
         double minDistSq = Double.MAX_VALUE;
-        boolean isContainer = false;
+        BlockPos.MutableBlockPos pos = new BlockPos.MutableBlockPos();
 
-        // 遍历扫描
         for (int x = -H_RANGE; x <= H_RANGE; x++) {
             for (int y = -V_RANGE; y <= V_RANGE; y++) {
                 for (int z = -H_RANGE; z <= H_RANGE; z++) {
-                    // 忽略玩家脚下极近距离的方块 (避免一直报脚下的矿)
-                    if (Math.abs(x) <= 1 && Math.abs(y) <= 1 && Math.abs(z) <= 1) continue;
+                    pos.setWithOffset(center, x, y, z);
+                    if (isAtFeet(center, pos.getX(), pos.getY(), pos.getZ())) continue;
 
-                    BlockPos pos = center.offset(x, y, z);
                     double distSq = center.distSqr(pos);
-
-                    // 优化：如果已经找到了一个目标，且当前方块比已找到的目标更远，则直接跳过详细检查
-                    // 我们只关心最近的那个
                     if (distSq >= minDistSq) continue;
 
-                    BlockState state = level.getBlockState(pos);
-
-                    // 1. 检查容器 (优先级略高，或者视为同等)
-                    if (state.hasBlockEntity()) {
-                        BlockEntity be = level.getBlockEntity(pos);
-                        if (be != null && be.getCapability(ForgeCapabilities.ITEM_HANDLER).isPresent()) {
-                            minDistSq = distSq;
-                            foundPos = pos;
-                            isContainer = true;
-                            continue; // 找到后继续循环，看有没有更近的
-                        }
-                    }
-
-                    // 2. 检查矿物
-                    if (state.is(Tags.Blocks.ORES)) {
+                    if (level.getBlockState(pos).is(Tags.Blocks.ORES)) {
                         minDistSq = distSq;
-                        foundPos = pos;
-                        isContainer = false;
+                        foundPos = pos.immutable();
                     }
                 }
             }
         }
+        return foundPos;
+    }
 
-        // 如果扫描到了目标，生成提示文本
-        if (foundPos != null) {
-            Component dir = WhisperManager.getFuzzyDirection(player, foundPos.getCenter());
-            if (isContainer) {
-                return Component.translatable("message.lotm.whisper.treasure.chest", dir);
-            } else {
-                return Component.translatable("message.lotm.whisper.treasure.ore", dir);
+    /**
+     * 查找最近的物品容器
+     * <p>
+     * 容器一定是方块实体，因此只需遍历范围内区块的方块实体表，无需扫描方块。
+     */
+    @Nullable
+    private BlockPos findNearestContainer(ServerLevel level, BlockPos center, double maxDistSq) {
+        BlockPos foundPos = null;
+        double minDistSq = maxDistSq;
+
+        int minChunkX = SectionPos.blockToSectionCoord(center.getX() - H_RANGE);
+        int maxChunkX = SectionPos.blockToSectionCoord(center.getX() + H_RANGE);
+        int minChunkZ = SectionPos.blockToSectionCoord(center.getZ() - H_RANGE);
+        int maxChunkZ = SectionPos.blockToSectionCoord(center.getZ() + H_RANGE);
+
+        for (int cx = minChunkX; cx <= maxChunkX; cx++) {
+            for (int cz = minChunkZ; cz <= maxChunkZ; cz++) {
+                LevelChunk chunk = level.getChunkSource().getChunkNow(cx, cz);
+                if (chunk == null) continue;
+
+                for (BlockEntity be : chunk.getBlockEntities().values()) {
+                    BlockPos pos = be.getBlockPos();
+                    if (Math.abs(pos.getX() - center.getX()) > H_RANGE
+                            || Math.abs(pos.getY() - center.getY()) > V_RANGE
+                            || Math.abs(pos.getZ() - center.getZ()) > H_RANGE) continue;
+                    if (isAtFeet(center, pos.getX(), pos.getY(), pos.getZ())) continue;
+
+                    double distSq = center.distSqr(pos);
+                    if (distSq > minDistSq) continue;
+
+                    if (be.getCapability(ForgeCapabilities.ITEM_HANDLER).isPresent()) {
+                        minDistSq = distSq;
+                        foundPos = pos;
+                    }
+                }
             }
         }
+        return foundPos;
+    }
 
-        return null;
+    /**
+     * 忽略玩家脚下极近距离的方块 (避免一直报脚下的矿)
+     */
+    private static boolean isAtFeet(BlockPos center, int x, int y, int z) {
+        return Math.abs(x - center.getX()) <= 1 && Math.abs(y - center.getY()) <= 1 && Math.abs(z - center.getZ()) <= 1;
     }
 }
@@ -0,0 +1,332 @@
+package com.lotm.lotm.content.logic.seer.divination;
+
+import com.lotm.lotm.content.logic.seer.divination.search.SectionBlockScanner;
+import com.lotm.lotm.content.logic.seer.divination.search.SnapshotBlockSearch;
+import com.lotm.lotm.content.logic.seer.divination.search.TargetStateSet;
+import it.unimi.dsi.fastutil.longs.LongArrayList;
+import net.minecraft.core.BlockPos;
+import net.minecraft.server.level.ServerLevel;
+import net.minecraft.server.level.ServerPlayer;
+import net.minecraft.world.level.levelgen.structure.BoundingBox;
+
+import javax.annotation.Nullable;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+import java.util.function.Predicate;
+
+/**
+ * 占卜方块扫描 (一次实际的世界扫描，可被多个请求共享)
+ * <p>
+ * 两种模式：
+ * 1. 独占 (Exclusive)：只服务一个 {@link DivinationScanJob}，由近及远搜索并提前终止。这是默认模式。
+ *    结束时若范围内一个都没有，这个“没有”也可以交给搜索盒被它覆盖的其他请求。
+ * 2. 共享 (Shared)：不单独发起，只由进行中的独占扫描在第二个请求者到达时升级而来 ({@link #promote})：
+ *    扫描盒以原扫描的中心向外扩展 {@link #SHARE_MARGIN}，原扫描已确认为空的圈层不再重读。
+ *    记录扫描盒内的所有命中 (上限 {@link #MAX_SHARED_HITS})，每个订阅的请求从命中列表中各取自己范围内最近的一个。
+ *    扫描结束后命中列表还会保留一小段时间，供随后到达的同类请求直接复用。
+ * <p>
+ * 命中数超过上限说明目标过于常见 (例如石头)，此时共享扫描标记为溢出，由调度器把订阅者转为独占扫描，
+ * 常见目标的独占扫描会很快提前终止。
+ * <p>
+ * 扫描本身可以在主线程分时推进 ({@link #startSliced} + {@link #tick})，
+ * 也可以采集快照后交给工作线程 ({@link #capture} + {@link #complete})。
+ * <p>
+ * 目标是一个预展开的 {@link TargetStateSet} (单个方块或整个标签)，每个分段只测试一次。
+ */
+public class DivinationBlockScan {
+
+    // 共享扫描命中数上限
+    static final int MAX_SHARED_HITS = 4096;
+
+    // 共享扫描结束后，命中列表可被复用的时长 (Tick)
+    private static final int SHARE_TTL_TICKS = 100;
+
+    // 升级为共享扫描时扫描盒向外扩展的距离：中心相距不超过此值 (各轴) 的同半径请求都能加入
+    static final int SHARE_MARGIN = 8;
+
+    private final ServerLevel level;
+    private final TargetStateSet targets;
+    private final boolean shared;
+
+    // 扫描盒：center 周围水平 ±rangeH，垂直 ±rangeV
+    private final BlockPos center;
+    private final int rangeH, rangeV;
+
+    private final List<DivinationScanJob> subscribers = new ArrayList<>();
+
+    // 独占扫描的发起者 (共享扫描为 null)
+    @Nullable
+    private final UUID requester;
+
+    @Nullable
+    private SectionBlockScanner scanner; // 分时模式
+    @Nullable
+    private LongArrayList hits;          // 共享模式的命中列表
+    @Nullable
+    private BlockPos nearest;            // 独占异步模式的结果
+    @Nullable
+    private BoundingBox knownEmpty;      // 升级而来的共享扫描：原独占扫描已确认为空的区域
+
+    private boolean finished;
+    private boolean overflowed;
+    private long finishedAt;
+
+    /**
+     * 工作线程的搜索结果
+     *
+     * @param nearest 独占模式：最近坐标
+     * @param hits    共享模式：命中列表 (溢出时为 null)
+     */
+    public record SearchResult(@Nullable BlockPos nearest, @Nullable LongArrayList hits) {}
+
+    private DivinationBlockScan(ServerLevel level, TargetStateSet targets, boolean shared, @Nullable UUID requester,
+                                BlockPos center, int rangeH, int rangeV) {
+        this.level = level;
+        this.targets = targets;
+        this.shared = shared;
+        this.requester = requester;
+        this.center = center;
+        this.rangeH = rangeH;
+        this.rangeV = rangeV;
+    }
+
+    /**
+     * 只服务单个请求的扫描
+     */
+    public static DivinationBlockScan exclusive(DivinationScanJob job, TargetStateSet targets) {
+        DivinationBlockScan scan = new DivinationBlockScan(job.getLevel(), targets, false, job.getPlayer().getUUID(),
+                job.getOrigin(), job.getRangeH(), job.getRangeV());
+        scan.subscribers.add(job);
+        return scan;
+    }
+
+    /**
+     * 能否把这个进行中的独占扫描升级为共享扫描，并让该请求加入
+     * <p>
+     * 分时扫描只有在尚未找到任何命中时才能升级：此时没有发生过距离剪枝，已扫过的部分可以原样沿用；
+     * 已有命中说明目标就在附近，原扫描很快就会结束，第二个请求单独扫描更便宜。
+     * 异步扫描在工作线程上进行，不占主线程，随时可以升级。
+     */
+    public boolean canPromote(DivinationScanJob job) {
+        return !shared && !finished && job.getLevel() == level
+                && (scanner == null || !scanner.hasResult())
+                && covers(center, rangeH + SHARE_MARGIN, rangeV + SHARE_MARGIN, job);
+    }
+
+    /**
+     * 升级为共享扫描 (主线程)
+     * <p>
+     * 新扫描以原扫描的中心为中心、向外扩展 {@link #SHARE_MARGIN}，接管原扫描的订阅者；
+     * 原扫描已经扫完且确认为空的圈层不会再读取。原扫描随后应被丢弃。
+     */
+    public DivinationBlockScan promote() {
+        DivinationBlockScan promoted = new DivinationBlockScan(level, targets, true, null,
+                center, rangeH + SHARE_MARGIN, rangeV + SHARE_MARGIN);
+        promoted.knownEmpty = scanner != null ? scanner.getScannedEmptyBox() : null;
+        promoted.subscribers.addAll(subscribers);
+        subscribers.clear();
+        return promoted;
+    }
+
+    public ServerLevel getLevel() {
+        return level;
+    }
+
+    public TargetStateSet getTargets() {
+        return targets;
+    }
+
+    public boolean isShared() {
+        return shared;
+    }
+
+    /**
+     * 是否为该玩家发起的独占扫描
+     */
+    public boolean isRequestedBy(ServerPlayer player) {
+        return player.getUUID().equals(requester);
+    }
+
+    public boolean isFinished() {
+        return finished;
+    }
+
+    public boolean isOverflowed() {
+        return overflowed;
+    }
+
+    /**
+     * 是否为已结束且范围内一个都没有找到的独占扫描
+     */
+    public boolean isEmptyResult() {
+        return !shared && finished && nearest == null;
+    }
+
+    public boolean hasSubscribers() {
+        return !subscribers.isEmpty();
+    }
+
+    public List<DivinationScanJob> getSubscribers() {
+        return subscribers;
+    }
+
+    /**
+     * 共享结果是否已过期 (过期后不再接受新的订阅)
+     */
+    public boolean isExpired() {
+        return finished && level.getGameTime() - finishedAt > SHARE_TTL_TICKS;
+    }
+
+    /**
+     * 该请求的搜索盒是否完全落在本扫描盒内
+     */
+    public boolean covers(DivinationScanJob job) {
+        return job.getLevel() == level && covers(center, rangeH, rangeV, job);
+    }
+
+    private static boolean covers(BlockPos center, int rangeH, int rangeV, DivinationScanJob job) {
+        BlockPos o = job.getOrigin();
+        return Math.abs(o.getX() - center.getX()) + job.getRangeH() <= rangeH
+                && Math.abs(o.getY() - center.getY()) + job.getRangeV() <= rangeV
+                && Math.abs(o.getZ() - center.getZ()) + job.getRangeH() <= rangeH;
+    }
+
+    /**
+     * 订阅本扫描；扫描已结束时立即交付结果
+     */
+    public void join(DivinationScanJob job) {
+        if (finished) {
+            job.report(nearestFor(job), true);
+        } else {
+            subscribers.add(job);
+        }
+    }
+
+    public void removeSubscribers(Predicate<DivinationScanJob> filter) {
+        subscribers.removeIf(filter);
+    }
+
+    // ==================================================
+    //                 分时模式
+    // ==================================================
+
+    public void startSliced() {
+        scanner = shared
+                ? SectionBlockScanner.collecting(level, center, rangeH, rangeV, targets, MAX_SHARED_HITS, knownEmpty)
+                : new SectionBlockScanner(level, center, rangeH, rangeV, targets);
+        if (shared) hits = scanner.getCollected();
+    }
+
+    /**
+     * 在预算内推进扫描，并向订阅者回报进度
+     *
+     * @return true 表示还有剩余工作
+     */
+    public boolean tick(long deadlineNanos) {
+        if (scanner == null) return false;
+
+        boolean more = scanner.run(deadlineNanos);
+        if (shared && scanner.isOverflowed()) {
+            overflowed = true;
+            more = false;
+        }
+        if (!shared) nearest = scanner.getResult();
+
+        publish(!more);
+        return more;
+    }
+
+    // ==================================================
+    //                 异步模式
+    // ==================================================
+
+    /**
+     * 采集快照 (主线程)
+     *
+     * @return 可能命中的分段超过 maxSections 时返回 null，应改用分时模式
+     */
+    @Nullable
+    public SnapshotBlockSearch capture(int maxSections) {
+        return SnapshotBlockSearch.capture(level, center, rangeH, rangeV, targets, maxSections);
+    }
+
+    /**
+     * 在快照上执行搜索 (工作线程调用，不接触 Level)，结果通过 {@link #complete} 交回主线程
+     */
+    public SearchResult runSearch(SnapshotBlockSearch search) {
+        return shared
+                ? new SearchResult(null, search.collectAll(MAX_SHARED_HITS))
+                : new SearchResult(search.run(), null);
+    }
+
+    /**
+     * 交付异步搜索结果 (主线程)
+     */
+    public void complete(SearchResult result) {
+        if (shared) {
+            hits = result.hits();
+            overflowed = hits == null;
+        } else {
+            nearest = result.nearest();
+        }
+        publish(true);
+    }
+
+    // ==================================================
+    //                 结果分发
+    // ==================================================
+
+    private void publish(boolean done) {
+        if (done) {
+            finished = true;
+            finishedAt = level.getGameTime();
+        }
+
+        subscribers.removeIf(job -> !job.isValid());
+        if (overflowed) return; // 由调度器转为独占扫描
+
+        // 回报可能导致会话停止并反向取消订阅，遍历副本
+        for (DivinationScanJob job : List.copyOf(subscribers)) {
+            job.report(shared ? nearestFor(job) : nearest, done);
+        }
+        if (done) subscribers.clear();
+    }
+
+    /**
+     * 从共享命中列表中选出该请求范围内最近的一个
+     * <p>
+     * 选中的坐标会校验一次实际方块，已失效的条目直接剔除。
+     */
+    @Nullable
+    private BlockPos nearestFor(DivinationScanJob job) {
+        if (!shared) return nearest;
+        if (hits == null) return null;
+
+        BlockPos origin = job.getOrigin();
+        while (true) {
+            int bestIndex = -1;
+            long bestDistSqr = Long.MAX_VALUE;
+
+            for (int i = 0; i < hits.size(); i++) {
+                long packed = hits.getLong(i);
+                int x = BlockPos.getX(packed), y = BlockPos.getY(packed), z = BlockPos.getZ(packed);
+                if (!job.contains(x, y, z)) continue;
+
+                long dx = x - origin.getX(), dy = y - origin.getY(), dz = z - origin.getZ();
+                long distSqr = dx * dx + dy * dy + dz * dz;
+                if (distSqr < bestDistSqr) {
+                    bestDistSqr = distSqr;
+                    bestIndex = i;
+                }
+            }
+            if (bestIndex < 0) return null;
+
+            BlockPos pos = BlockPos.of(hits.getLong(bestIndex));
+            if (level.isLoaded(pos) && targets.test(level.getBlockState(pos))) {
+                return pos;
+            }
+            hits.removeLong(bestIndex);
+        }
+    }
+}
@@ -0,0 +1,77 @@
+package com.lotm.lotm.content.logic.seer.divination;
+
+import com.lotm.lotm.content.logic.seer.divination.search.SectionBlockCounter;
+import com.lotm.lotm.content.logic.seer.divination.search.TargetStateSet;
+import net.minecraft.world.level.block.Block;
+
+import javax.annotation.Nullable;
+
+/**
+ * 数量占卜扫描 (统计范围内目标方块的数量)
+ * <p>
+ * 与独占的 {@link DivinationBlockScan} 相同，只服务一个 {@link DivinationScanJob}，由 {@link DivinationScanScheduler} 调度：
+ * 既可以在主线程分时推进 ({@link #startSliced} + {@link #tick})，
+ * 也可以采集快照后交给工作线程 ({@link #capture} + {@link #complete})。
+ * 计数只在整个范围统计完毕后回报一次。
+ */
+public class DivinationDensityScan {
+
+    private final DivinationScanJob job;
+    private final Block block;
+    private final TargetStateSet targets;
+
+    @Nullable
+    private SectionBlockCounter counter; // 分时模式
+
+    public DivinationDensityScan(DivinationScanJob job, Block block) {
+        this.job = job;
+        this.block = block;
+        this.targets = TargetStateSet.of(block);
+    }
+
+    public DivinationScanJob getJob() {
+        return job;
+    }
+
+    // ==================================================
+    //                 分时模式
+    // ==================================================
+
+    public void startSliced() {
+        counter = new SectionBlockCounter(job.getLevel(), job.getOrigin(), job.getRangeH(), job.getRangeV(), targets);
+    }
+
+    /**
+     * 在预算内推进计数，结束时回报结果
+     *
+     * @return true 表示还有剩余工作
+     */
+    public boolean tick(long deadlineNanos) {
+        if (counter == null) return false;
+
+        boolean more = counter.run(deadlineNanos);
+        if (!more) complete(counter.getResult());
+        return more;
+    }
+
+    // ==================================================
+    //                 异步模式
+    // ==================================================
+
+    /**
+     * 采集快照 (主线程)
+     *
+     * @return 候选分段超过 maxSections 时返回 null，应改用分时模式
+     */
+    @Nullable
+    public SectionBlockCounter.Snapshot capture(int maxSections) {
+        return SectionBlockCounter.capture(job.getLevel(), job.getOrigin(), job.getRangeH(), job.getRangeV(), targets, maxSections);
+    }
+
+    /**
+     * 交付计数结果 (主线程)
+     */
+    public void complete(SectionBlockCounter.DensityResult result) {
+        if (job.isValid()) job.reportDensity(block, result);
+    }
+}
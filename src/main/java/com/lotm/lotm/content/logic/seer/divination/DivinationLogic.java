@@ -8,13 +8,13 @@ import com.lotm.lotm.common.network.PacketHandler;
 import com.lotm.lotm.common.network.packet.s2c.S2CDivinationResultPacket;
 import com.lotm.lotm.common.network.packet.s2c.S2CSyncDivinationDataPacket;
 import com.lotm.lotm.common.registry.LotMSkills;
+import com.lotm.lotm.content.logic.seer.divination.search.SectionBlockCounter;
+import com.lotm.lotm.content.logic.seer.divination.search.TargetStateSet;
 import com.lotm.lotm.util.LotMText;
 import net.minecraft.ChatFormatting;
 import net.minecraft.core.BlockPos;
-import net.minecraft.nbt.CompoundTag;
 import net.minecraft.network.chat.Component;
 import net.minecraft.network.chat.MutableComponent;
-import net.minecraft.resources.ResourceLocation;
 import net.minecraft.server.level.ServerLevel;
 import net.minecraft.server.level.ServerPlayer;
 import net.minecraft.util.Mth;
@@ -22,8 +22,10 @@ import net.minecraft.util.RandomSource;
 import net.minecraft.world.entity.Entity;
 import net.minecraft.world.entity.player.Player;
 import net.minecraft.world.item.ItemStack;
+import net.minecraft.world.level.block.Block;
 import net.minecraft.world.phys.Vec3;
 
+import javax.annotation.Nullable;
 import java.util.concurrent.atomic.AtomicBoolean;
 
 public class DivinationLogic {
@@ -49,44 +51,49 @@ public class DivinationLogic {
      * 进行随机检定 (bypassRng = false)
      */
     public static void performDivination(ServerPlayer player, ItemStack stack, RandomSource random) {
-        executeDivination(player, stack, random, false, false);
+        DivinationTarget target = DivinationTarget.fromTag(stack.getTag());
+        if (target == null) {
+            player.displayClientMessage(Component.translatable("message.lotm.divination.fail.no_target")
+                    .withStyle(ChatFormatting.YELLOW), true);
+            return;
+        }
+        executeDivination(player, stack, target, null, random, false, false);
     }
 
     /**
      * 持续占卜入口 (每秒调用)
      * ★★★ 核心修正：bypassRng = true ★★★
      * 跳过随机检定，强制成功。只要目标存在且有蓝，就一直维持，不再“反复施法”导致随机失败。
+     * <p>
+     * 目标与上次命中保存在 {@link DivinationSession} 中：稳态下每秒只复查一次缓存命中，复查失败才完整搜索。
      *
      * @return true 表示状态正常，继续维持；false 表示丢失目标，应停止。
      */
     public static boolean performContinuousDivination(ServerPlayer player, ItemStack stack, RandomSource random) {
-        return executeDivination(player, stack, random, true, true);
+        DivinationSession session = DivinationSessionManager.getOrStart(player, stack);
+        if (session == null) return false;
+        return executeDivination(player, stack, session.getTarget(), session, random, true, true);
     }
 
     /**
      * 统一执行逻辑
+     * @param session   持续占卜会话 (单次占卜为 null)
      * @param bypassRng 是否跳过随机检定 (持续施法时为 true)
      */
-    private static boolean executeDivination(ServerPlayer player, ItemStack stack, RandomSource random, boolean silent, boolean bypassRng) {
-        CompoundTag tag = stack.getTag();
-        if (tag == null || !tag.contains("DivinationTarget")) {
-            if (!silent) {
-                player.displayClientMessage(Component.translatable("message.lotm.divination.fail.no_target")
-                        .withStyle(ChatFormatting.YELLOW), true);
-            }
-            return false;
-        }
-
-        String targetIdStr = tag.getString("DivinationTarget");
-        String typeStr = tag.getString("DivinationType");
-        ResourceLocation targetId = new ResourceLocation(targetIdStr);
-
+    private static boolean executeDivination(ServerPlayer player, ItemStack stack, DivinationTarget target, @Nullable DivinationSession session,
+                                             RandomSource random, boolean silent, boolean bypassRng) {
         // 使用 AtomicBoolean 从 lambda 内部传出结果
         AtomicBoolean shouldContinue = new AtomicBoolean(false);
 
         player.getCapability(BeyonderStateProvider.CAPABILITY).ifPresent(state -> {
             player.getCapability(DivinationContainerProvider.CAPABILITY).ifPresent(divination -> {
 
+                // ★★★ 稳态：上次命中仍然有效，直接复用 ★★★
+                if (session != null && reuseCachedHit(player, session, divination, state.getSequence(), random)) {
+                    shouldContinue.set(true);
+                    return;
+                }
+
                 Result result;
                 if (bypassRng) {
                     // ★★★ 持续施法模式：直接成功，不再掷骰子 ★★★
@@ -96,7 +103,7 @@ public class DivinationLogic {
                     result = calculateResult(state.getSequence(), divination.getMastery(), 30, random);
                 }
 
-                boolean outcome = handleResult(player, result, divination, targetId, typeStr, state.getSequence(), random, silent);
+                boolean outcome = handleResult(player, stack, session, result, divination, target, state.getSequence(), random, silent);
                 shouldContinue.set(outcome);
             });
         });
@@ -104,6 +111,37 @@ public class DivinationLogic {
         return shouldContinue.get();
     }
 
+    /**
+     * 复查会话缓存的命中，仍然有效时直接回报
+     *
+     * @return true 表示已复用缓存；false 表示需要完整搜索
+     */
+    private static boolean reuseCachedHit(ServerPlayer player, DivinationSession session, IDivinationContainer divination,
+                                          int sequence, RandomSource random) {
+        Vec3 targetPos = session.recheck(getRangeH(sequence), getRangeV(sequence));
+        if (targetPos == null) return false;
+
+        int density = session.getCachedDensity();
+        Component msg = density >= 0 ? getDensityFeedback(player, session.getTarget().block(), density, targetPos) : Component.empty();
+        PacketHandler.sendToPlayer(new S2CDivinationResultPacket(true, msg, targetPos, session.getCachedEntityId(), density), player);
+        if (random.nextFloat() < 0.1f) {
+            grantXp(divination, player.getRandom());
+            PacketHandler.sendToPlayer(new S2CSyncDivinationDataPacket(divination), player);
+        }
+        return true;
+    }
+
+    /**
+     * 方块占卜的水平搜索半径 (实体占卜为其两倍)
+     */
+    static int getRangeH(int sequence) {
+        return 32 + (9 - sequence) * 20;
+    }
+
+    static int getRangeV(int sequence) {
+        return Math.max(16, getRangeH(sequence) / 2);
+    }
+
     private static Result calculateResult(int sequence, int mastery, int difficulty, RandomSource random) {
         float chance = 0.6f;
         chance += (9 - sequence) * 0.05f;
@@ -127,12 +165,12 @@ public class DivinationLogic {
      * 处理结果
      * @return true=继续; false=停止
      */
-    private static boolean handleResult(ServerPlayer player, Result result, IDivinationContainer divination,
-                                        ResourceLocation targetId, String typeStr, int sequence, RandomSource random, boolean silent) {
+    private static boolean handleResult(ServerPlayer player, ItemStack stack, @Nullable DivinationSession session, Result result,
+                                        IDivinationContainer divination, DivinationTarget target, int sequence,
+                                        RandomSource random, boolean silent) {
 
-        int baseRange = 32 + (9 - sequence) * 20;
-        int rangeH = baseRange;
-        int rangeV = Math.max(16, baseRange / 2);
+        int rangeH = getRangeH(sequence);
+        int rangeV = getRangeV(sequence);
 
         switch (result) {
             case SUCCESS -> {
@@ -140,14 +178,35 @@ public class DivinationLogic {
                 int targetEntityId = -1;
                 ServerLevel level = player.serverLevel();
 
-                if ("BLOCK".equals(typeStr)) {
-                    BlockPos pos = DivinationSearcher.findNearestBlock(level, player.position(), targetId, rangeH, rangeV);
-                    if (pos != null) targetPos = Vec3.atCenterOf(pos);
-                } else if ("ENTITY".equals(typeStr)) {
-                    Entity entity = DivinationSearcher.findNearestEntity(level, player.position(), targetId, rangeH * 2);
+                // 持续占卜时上一轮扫描尚未结束 -> 让它继续跑，不重复提交，也不清空会话缓存
+                if (silent && DivinationScanScheduler.isScanning(player)) return true;
+                if (session != null) session.beginSearch();
+
+                if (target.type() == DivinationTarget.Type.BLOCK_DENSITY && target.block() != null) {
+                    return handleDensity(player, stack, session, divination, target.block(), rangeH, rangeV, silent);
+                }
+
+                TargetStateSet states = target.blockStates();
+                boolean blockTarget = target.type() == DivinationTarget.Type.BLOCK || target.type() == DivinationTarget.Type.BLOCK_TAG;
+
+                if (blockTarget && states != null) {
+                    // 未被索引的方块 / 标签：交给扫描调度器 (可与附近同目标的请求合并)，结果由请求回报
+                    if (DivinationSearcher.needsScan(target)) {
+                        DivinationScanJob job = new DivinationScanJob(player, stack, session, divination, rangeH, rangeV, silent);
+                        return DivinationScanScheduler.request(job, states);
+                    }
+
+                    BlockPos pos = DivinationSearcher.findNearestBlock(level, player.position(), target, rangeH, rangeV);
+                    if (pos != null) {
+                        targetPos = Vec3.atCenterOf(pos);
+                        if (session != null) session.cacheBlock(pos);
+                    }
+                } else if (target.type() == DivinationTarget.Type.ENTITY || target.type() == DivinationTarget.Type.ENTITY_TAG) {
+                    Entity entity = DivinationSearcher.findNearestEntity(level, player.position(), target, rangeH * 2);
                     if (entity != null) {
                         targetPos = entity.position();
                         targetEntityId = entity.getId();
+                        if (session != null) session.cacheEntity(entity);
                     }
                 }
 
@@ -174,8 +233,15 @@ public class DivinationLogic {
                 double offsetZ = (random.nextDouble() * 2 - 1) * rangeH;
                 Vec3 fakePos = player.position().add(offsetX, offsetY, offsetZ);
 
-                Component msg = silent ? Component.empty() : getDirectionFeedback(player, fakePos);
-                PacketHandler.sendToPlayer(new S2CDivinationResultPacket(true, msg, fakePos, -1), player);
+                if (target.type() == DivinationTarget.Type.BLOCK_DENSITY && target.block() != null) {
+                    // 数量占卜被误导：连数量一起给假的
+                    int fakeCount = 1 + random.nextInt(64);
+                    Component msg = getDensityFeedback(player, target.block(), fakeCount, fakePos);
+                    PacketHandler.sendToPlayer(new S2CDivinationResultPacket(true, msg, fakePos, -1, fakeCount), player);
+                } else {
+                    Component msg = silent ? Component.empty() : getDirectionFeedback(player, fakePos);
+                    PacketHandler.sendToPlayer(new S2CDivinationResultPacket(true, msg, fakePos, -1), player);
+                }
 
                 if (random.nextBoolean()) grantXp(divination, random);
                 PacketHandler.sendToPlayer(new S2CSyncDivinationDataPacket(divination), player);
@@ -199,7 +265,27 @@ public class DivinationLogic {
         return false;
     }
 
-    private static Component getDirectionFeedback(ServerPlayer player, Vec3 targetPos) {
+    /**
+     * 数量占卜：统计范围内目标方块的数量，并指向最密集的分段
+     * <p>
+     * 计数基于分段调色板 ({@link SectionBlockCounter})，与未索引方块的搜索一样交给扫描调度器 (分时或异步)，
+     * 结果由请求回报；读数不受 silent 影响 (数量本身就是结果)。
+     *
+     * @return true=继续; false=已确定范围内一个都没有，停止
+     */
+    private static boolean handleDensity(ServerPlayer player, ItemStack stack, @Nullable DivinationSession session,
+                                         IDivinationContainer divination, Block block, int rangeH, int rangeV, boolean silent) {
+        DivinationScanJob job = new DivinationScanJob(player, stack, session, divination, rangeH, rangeV, silent);
+        return DivinationScanScheduler.requestDensity(job, block);
+    }
+
+    static Component getDensityFeedback(ServerPlayer player, @Nullable Block block, int count, Vec3 densestPos) {
+        MutableComponent msg = Component.translatable("message.lotm.divination.density", count,
+                block != null ? block.getName() : Component.empty()).withStyle(ChatFormatting.AQUA);
+        return msg.append(" ").append(getDirectionFeedback(player, densestPos));
+    }
+
+    static Component getDirectionFeedback(ServerPlayer player, Vec3 targetPos) {
         Vec3 playerPos = player.position();
         Vec3 dir = targetPos.subtract(playerPos).normalize();
         float playerYawRad = player.getYRot() * Mth.DEG_TO_RAD;
@@ -0,0 +1,179 @@
+package com.lotm.lotm.content.logic.seer.divination;
+
+import com.lotm.lotm.api.capability.IDivinationContainer;
+import com.lotm.lotm.common.network.PacketHandler;
+import com.lotm.lotm.common.network.packet.s2c.S2CDivinationResultPacket;
+import com.lotm.lotm.common.network.packet.s2c.S2CSyncDivinationDataPacket;
+import com.lotm.lotm.content.logic.seer.divination.search.SectionBlockCounter;
+import net.minecraft.ChatFormatting;
+import net.minecraft.core.BlockPos;
+import net.minecraft.nbt.CompoundTag;
+import net.minecraft.network.chat.Component;
+import net.minecraft.server.level.ServerLevel;
+import net.minecraft.server.level.ServerPlayer;
+import net.minecraft.world.item.ItemStack;
+import net.minecraft.world.level.block.Block;
+import net.minecraft.world.phys.Vec3;
+
+import javax.annotation.Nullable;
+
+/**
+ * 占卜扫描请求 (Divination Scan Job)
+ * <p>
+ * 职责：
+ * 1. 代表某个玩家的一次方块占卜请求：搜索中心、搜索范围以及结果回报方式。
+ * 2. 实际的世界扫描由 {@link DivinationBlockScan} 执行，一次扫描可以同时服务多个请求。
+ * 3. 扫描器拿到结果后，立即把“目前为止最近”的坐标发给客户端；之后结果变得更近时再发送修正。
+ * 4. 扫描结束仍无结果时，发送“未找到”，持续占卜模式下同时关闭灵摆。
+ * 5. 数量占卜 ({@link DivinationDensityScan}) 在计数结束后一次性回报总数与最密集的方向。
+ */
+public class DivinationScanJob {
+
+    private final ServerPlayer player;
+    private final ServerLevel level;
+    private final ItemStack stack;
+    @Nullable
+    private final DivinationSession session;
+    private final IDivinationContainer divination;
+    private final boolean continuous;
+
+    // 搜索盒：origin 周围水平 ±rangeH，垂直 ±rangeV
+    private final BlockPos origin;
+    private final int rangeH, rangeV;
+
+    // 最近一次发给客户端的坐标 (null 表示还没发过)
+    private BlockPos reported = null;
+    private boolean notFound = false;
+
+    /**
+     * @param session    持续占卜会话，命中会写回其缓存 (单次占卜为 null)
+     * @param continuous 是否为持续占卜 (静默反馈，找不到目标时关闭灵摆)
+     */
+    public DivinationScanJob(ServerPlayer player, ItemStack stack, @Nullable DivinationSession session,
+                             IDivinationContainer divination, int rangeH, int rangeV, boolean continuous) {
+        this.player = player;
+        this.level = player.serverLevel();
+        this.stack = stack;
+        this.session = session;
+        this.divination = divination;
+        this.continuous = continuous;
+        this.origin = player.blockPosition();
+        this.rangeH = rangeH;
+        this.rangeV = rangeV;
+    }
+
+    public ServerPlayer getPlayer() {
+        return player;
+    }
+
+    public ServerLevel getLevel() {
+        return level;
+    }
+
+    public BlockPos getOrigin() {
+        return origin;
+    }
+
+    public int getRangeH() {
+        return rangeH;
+    }
+
+    public int getRangeV() {
+        return rangeV;
+    }
+
+    /**
+     * 是否已确定找不到目标
+     */
+    public boolean isNotFound() {
+        return notFound;
+    }
+
+    /**
+     * 坐标是否落在本请求的搜索盒内
+     */
+    public boolean contains(int x, int y, int z) {
+        return Math.abs(x - origin.getX()) <= rangeH
+                && Math.abs(y - origin.getY()) <= rangeV
+                && Math.abs(z - origin.getZ()) <= rangeH;
+    }
+
+    /**
+     * 请求是否仍然有意义
+     * <p>
+     * 玩家下线、换了维度，或持续占卜已被关闭时，请求作废。
+     */
+    public boolean isValid() {
+        if (player.isRemoved() || player.serverLevel() != level) return false;
+        if (continuous) {
+            CompoundTag tag = stack.getTag();
+            return tag != null && tag.getBoolean("DivinationActive");
+        }
+        return true;
+    }
+
+    /**
+     * 回报扫描进度
+     *
+     * @param best     目前为止本请求范围内最近的命中
+     * @param finished 扫描是否已结束
+     */
+    public void report(@Nullable BlockPos best, boolean finished) {
+        if (best != null && !best.equals(reported)) {
+            reportHit(best);
+        }
+        if (finished && reported == null && !notFound) {
+            reportNotFound();
+        }
+    }
+
+    /**
+     * 回报数量占卜的结果 (读数不受持续模式影响，数量本身就是结果)
+     */
+    public void reportDensity(Block block, SectionBlockCounter.DensityResult density) {
+        BlockPos densest = density.densest();
+        if (density.total() == 0 || densest == null) {
+            reportNotFound();
+            return;
+        }
+        if (session != null) session.cacheDensity(density.total(), densest);
+
+        Vec3 targetPos = Vec3.atCenterOf(densest);
+        Component msg = DivinationLogic.getDensityFeedback(player, block, density.total(), targetPos);
+        PacketHandler.sendToPlayer(new S2CDivinationResultPacket(true, msg, targetPos, -1, density.total()), player);
+
+        if (!continuous || player.getRandom().nextFloat() < 0.1f) {
+            DivinationLogic.grantXp(divination, player.getRandom());
+            PacketHandler.sendToPlayer(new S2CSyncDivinationDataPacket(divination), player);
+        }
+    }
+
+    private void reportHit(BlockPos pos) {
+        boolean first = reported == null;
+        reported = pos;
+        if (session != null) session.cacheBlock(pos);
+
+        Vec3 targetPos = Vec3.atCenterOf(pos);
+        Component msg = continuous ? Component.empty() : DivinationLogic.getDirectionFeedback(player, targetPos);
+        PacketHandler.sendToPlayer(new S2CDivinationResultPacket(true, msg, targetPos, -1), player);
+
+        // 经验只在首次命中时结算，后续修正不重复给
+        if (first && (!continuous || player.getRandom().nextFloat() < 0.1f)) {
+            DivinationLogic.grantXp(divination, player.getRandom());
+            PacketHandler.sendToPlayer(new S2CSyncDivinationDataPacket(divination), player);
+        }
+    }
+
+    private void reportNotFound() {
+        notFound = true;
+        Component msg = Component.translatable("message.lotm.divination.not_found").withStyle(ChatFormatting.YELLOW);
+        PacketHandler.sendToPlayer(new S2CDivinationResultPacket(false, msg, null, -1), player);
+
+        // ★★★ 占卜成功，但范围内没找到 -> 停止持续占卜 ★★★
+        if (continuous) {
+            CompoundTag tag = stack.getTag();
+            if (tag != null) tag.putBoolean("DivinationActive", false);
+            DivinationSessionManager.stop(player);
+        }
+    }
+}
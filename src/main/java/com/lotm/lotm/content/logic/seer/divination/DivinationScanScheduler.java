@@ -0,0 +1,375 @@
+package com.lotm.lotm.content.logic.seer.divination;
+
+import com.lotm.lotm.LotMMod;
+import com.lotm.lotm.common.config.LotMCommonConfig;
+import com.lotm.lotm.content.logic.seer.divination.search.SectionBlockCounter;
+import com.lotm.lotm.content.logic.seer.divination.search.SnapshotBlockSearch;
+import com.lotm.lotm.content.logic.seer.divination.search.TargetStateSet;
+import net.minecraft.resources.ResourceKey;
+import net.minecraft.server.level.ServerPlayer;
+import net.minecraft.world.level.Level;
+import net.minecraft.world.level.block.Block;
+import net.minecraftforge.event.TickEvent;
+import net.minecraftforge.event.entity.player.PlayerEvent;
+import net.minecraftforge.event.server.ServerStoppedEvent;
+import net.minecraftforge.eventbus.api.SubscribeEvent;
+import net.minecraftforge.fml.common.Mod;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * 占卜扫描调度器 (Divination Scan Scheduler)
+ * <p>
+ * 职责：
+ * 1. 请求合并：单个请求默认使用由近及远、可提前终止的独占扫描。同一维度、同一目标 (方块或标签的状态集合) 的
+ *    扫描按搜索盒是否覆盖来匹配，而不是按所在分段：另一个玩家在附近发起同类请求时，进行中的独占扫描就地升级为共享扫描
+ *    (已扫过的部分不重读)，之后到达的请求直接加入；每个玩家从共享命中列表中各取自己最近的结果。
+ *    刚结束且一个都没找到的独占扫描，也把结果交给被它覆盖的请求。
+ * 2. 分时：每个服务器 Tick 按 {@link LotMCommonConfig#divinationScanBudgetNanos} 的总预算轮流推进各扫描，
+ *    超出预算的部分顺延到下一 Tick，避免大范围占卜造成卡顿。
+ * 3. 异步：搜索交给工作线程池，在主线程采集的分段快照上执行；结果经完成队列回到主线程后再发包。
+ *    可能命中的分段超过 {@link #MAX_SNAPSHOT_SECTIONS} 时不复制快照，退回分时扫描 (由近及远，常见目标很快就能提前终止)。
+ * 4. 数量占卜的计数 ({@link DivinationDensityScan}) 走同样的分时预算与工作线程池。
+ * <p>
+ * 过期结果丢弃：每个玩家同时只有一个有效请求，新请求提交前会先取消旧请求的订阅；
+ * 扫描完成时只向仍然订阅且有效 (未下线、未换维度、灵摆未关闭) 的请求交付结果。
+ */
+@Mod.EventBusSubscriber(modid = LotMMod.MODID)
+public class DivinationScanScheduler {
+
+    private static final ArrayDeque<DivinationBlockScan> SLICED = new ArrayDeque<>();
+    private static final Set<DivinationBlockScan> ASYNC = new HashSet<>();
+    private static final ConcurrentLinkedQueue<Completion> COMPLETED = new ConcurrentLinkedQueue<>();
+
+    // 数量占卜的计数 (不可共享，每个玩家至多一个)
+    private static final ArrayDeque<DivinationDensityScan> DENSITY_SLICED = new ArrayDeque<>();
+    private static final Set<DivinationDensityScan> DENSITY_ASYNC = new HashSet<>();
+    private static final ConcurrentLinkedQueue<DensityCompletion> DENSITY_COMPLETED = new ConcurrentLinkedQueue<>();
+
+    // 各维度、各目标进行中或刚结束的扫描：独占扫描可被第二个请求者升级，共享扫描供后续请求加入
+    private static final Map<ShareKey, List<DivinationBlockScan>> SHARED = new HashMap<>();
+
+    // 异步模式下单次最多复制的分段数；超过说明目标过于常见，改用分时扫描 (复制本身在主线程上进行)
+    private static final int MAX_SNAPSHOT_SECTIONS = 256;
+
+    private static ExecutorService executor = null;
+
+    // 本 Tick 是否先推进数量占卜
+    private static boolean densityFirst = false;
+
+    // 同一目标的 TargetStateSet 是缓存的同一个实例，可直接作为键
+    private record ShareKey(ResourceKey<Level> dimension, TargetStateSet targets) {}
+
+    private record Completion(DivinationBlockScan scan, DivinationBlockScan.SearchResult result) {}
+
+    private record DensityCompletion(DivinationDensityScan scan, SectionBlockCounter.DensityResult result) {}
+
+    /**
+     * 提交方块占卜请求 (会取代该玩家已有的请求)
+     * <p>
+     * 按以下顺序复用已有扫描，都不满足时才新建登记在共享表中的独占扫描 (由近及远、提前终止)：
+     * 1. 覆盖本请求的共享扫描：直接加入 (已溢出则说明目标过于常见，改用不登记的独占扫描)。
+     * 2. 其他玩家刚结束、覆盖本请求且一个都没找到的独占扫描：直接判定找不到。
+     * 3. 其他玩家进行中、可以升级的独占扫描：升级为共享扫描，两人一起订阅。
+     * <p>
+     * 因此两个玩家的开销至多是两次独占扫描，不会在进行中的扫描之外再另起一次全范围扫描。
+     * 分时模式下新扫描只排入队列，在本 Tick 末与其他扫描共用同一份预算推进 (结果同样在本 Tick 内送出)。
+     *
+     * @return true 表示请求仍在进行或已找到目标；false 表示已确定找不到
+     */
+    public static boolean request(DivinationScanJob job, TargetStateSet targets) {
+        ServerPlayer player = job.getPlayer();
+        cancel(player);
+
+        List<DivinationBlockScan> scans = SHARED.computeIfAbsent(
+                new ShareKey(job.getLevel().dimension(), targets), key -> new ArrayList<>());
+
+        for (DivinationBlockScan scan : scans) {
+            if (scan.isExpired() || !scan.isShared() || !scan.covers(job)) continue;
+
+            if (scan.isOverflowed()) {
+                // 目标过于常见，共享无意义 -> 独占扫描 (不登记，共享表里保留溢出标记)
+                start(DivinationBlockScan.exclusive(job, targets));
+            } else {
+                scan.join(job);
+            }
+            return !job.isNotFound();
+        }
+
+        for (DivinationBlockScan scan : scans) {
+            if (scan.isExpired() || scan.isShared() || scan.isRequestedBy(player)) continue;
+
+            if (scan.isEmptyResult() && scan.covers(job)) {
+                // 覆盖本请求的范围刚被完整扫过且一个都没有
+                scan.join(job);
+                return !job.isNotFound();
+            }
+            if (scan.canPromote(job)) {
+                // ★★★ 确实出现了第二个订阅者 -> 进行中的独占扫描就地升级，而不是另起一次扫描 ★★★
+                DivinationBlockScan promoted = scan.promote();
+                scans.remove(scan);
+                SLICED.remove(scan); // 异步的原扫描让它跑完，结果已无人订阅
+                promoted.join(job);
+                scans.add(promoted);
+                start(promoted);
+                return !job.isNotFound();
+            }
+        }
+
+        // 只有一个请求者：独占扫描保留由近及远的提前终止
+        DivinationBlockScan scan = DivinationBlockScan.exclusive(job, targets);
+        scans.add(scan);
+        start(scan);
+        return !job.isNotFound();
+    }
+
+    /**
+     * 提交数量占卜请求 (会取代该玩家已有的请求)
+     * <p>
+     * 计数需要遍历整个范围，无法共享也无法提前终止，同样按预算分时推进或交给工作线程。
+     *
+     * @return true 表示请求仍在进行或已有读数；false 表示已确定范围内一个都没有
+     */
+    public static boolean requestDensity(DivinationScanJob job, Block block) {
+        cancel(job.getPlayer());
+
+        DivinationDensityScan scan = new DivinationDensityScan(job, block);
+        SectionBlockCounter.Snapshot snapshot = LotMCommonConfig.COMMON.divinationAsyncSearch.get()
+                ? scan.capture(MAX_SNAPSHOT_SECTIONS) : null;
+        if (snapshot != null) {
+            DENSITY_ASYNC.add(scan);
+
+            CompletableFuture.supplyAsync(snapshot::count, getExecutor())
+                    .whenComplete((result, error) -> {
+                        if (error != null) {
+                            LotMMod.LOGGER.error("Async divination density count failed", error);
+                        }
+                        DENSITY_COMPLETED.add(new DensityCompletion(scan, result));
+                    });
+        } else {
+            scan.startSliced();
+            DENSITY_SLICED.addLast(scan);
+        }
+        return !job.isNotFound();
+    }
+
+    /**
+     * 该玩家是否有进行中的扫描
+     */
+    public static boolean isScanning(ServerPlayer player) {
+        for (DivinationBlockScan scan : SLICED) {
+            if (isSubscribed(scan, player)) return true;
+        }
+        for (DivinationBlockScan scan : ASYNC) {
+            if (isSubscribed(scan, player)) return true;
+        }
+        for (DivinationDensityScan scan : DENSITY_SLICED) {
+            if (scan.getJob().getPlayer() == player) return true;
+        }
+        for (DivinationDensityScan scan : DENSITY_ASYNC) {
+            if (scan.getJob().getPlayer() == player) return true;
+        }
+        return false;
+    }
+
+    public static void cancel(ServerPlayer player) {
+        removeSubscriber(player.getUUID());
+    }
+
+    private static boolean isSubscribed(DivinationBlockScan scan, ServerPlayer player) {
+        for (DivinationScanJob job : scan.getSubscribers()) {
+            if (job.getPlayer() == player) return true;
+        }
+        return false;
+    }
+
+    private static void removeSubscriber(UUID uuid) {
+        for (DivinationBlockScan scan : SLICED) {
+            scan.removeSubscribers(job -> job.getPlayer().getUUID().equals(uuid));
+        }
+        for (DivinationBlockScan scan : ASYNC) {
+            scan.removeSubscribers(job -> job.getPlayer().getUUID().equals(uuid));
+        }
+        // 无人订阅的分时扫描不再占用主线程 (异步扫描让它跑完，结果仍可共享)
+        SLICED.removeIf(scan -> {
+            if (scan.hasSubscribers()) return false;
+            unregister(scan);
+            return true;
+        });
+        // 计数只服务一个玩家：分时的直接丢弃，异步的完成后不再交付
+        DENSITY_SLICED.removeIf(scan -> scan.getJob().getPlayer().getUUID().equals(uuid));
+        DENSITY_ASYNC.removeIf(scan -> scan.getJob().getPlayer().getUUID().equals(uuid));
+    }
+
+    // ==================================================
+    //                 扫描执行
+    // ==================================================
+
+    private static void start(DivinationBlockScan scan) {
+        SnapshotBlockSearch search = LotMCommonConfig.COMMON.divinationAsyncSearch.get()
+                ? scan.capture(MAX_SNAPSHOT_SECTIONS) : null;
+        if (search != null) {
+            ASYNC.add(scan);
+
+            CompletableFuture.supplyAsync(() -> scan.runSearch(search), getExecutor())
+                    .whenComplete((result, error) -> {
+                        if (error != null) {
+                            LotMMod.LOGGER.error("Async divination search failed", error);
+                        }
+                        COMPLETED.add(new Completion(scan, result));
+                    });
+        } else {
+            // 未开启异步或快照过大：只排队，不在请求处另开预算：所有推进都在 Tick 末的同一份预算内完成
+            scan.startSliced();
+            SLICED.addLast(scan);
+        }
+    }
+
+    /**
+     * 共享扫描溢出：把仍在等待的订阅者转为各自的独占扫描
+     */
+    private static void handleOverflow(DivinationBlockScan scan) {
+        if (!scan.isOverflowed() || !scan.hasSubscribers()) return;
+
+        List<DivinationScanJob> waiting = new ArrayList<>(scan.getSubscribers());
+        scan.removeSubscribers(job -> true);
+        for (DivinationScanJob job : waiting) {
+            start(DivinationBlockScan.exclusive(job, scan.getTargets()));
+        }
+    }
+
+    @SubscribeEvent
+    public static void onServerTick(TickEvent.ServerTickEvent event) {
+        if (event.phase != TickEvent.Phase.END) return;
+
+        drainCompleted();
+        SHARED.values().removeIf(scans -> {
+            scans.removeIf(DivinationBlockScan::isExpired);
+            return scans.isEmpty();
+        });
+        if (SLICED.isEmpty() && DENSITY_SLICED.isEmpty()) return;
+
+        long deadline = System.nanoTime() + LotMCommonConfig.COMMON.divinationScanBudgetNanos.get();
+
+        // 数量占卜与方块扫描共用同一份预算；两个队列隔 Tick 轮流先行，任何一方都不会被另一方饿死
+        densityFirst = !densityFirst;
+        if (densityFirst) advanceDensity(deadline);
+        advanceBlocks(deadline);
+        if (!densityFirst) advanceDensity(deadline);
+    }
+
+    private static void advanceBlocks(long deadline) {
+        // 每个扫描本 Tick 最多轮到一次
+        int count = SLICED.size();
+        for (int i = 0; i < count; i++) {
+            if (System.nanoTime() - deadline >= 0) break;
+
+            DivinationBlockScan scan = SLICED.pollFirst();
+            if (scan == null) break;
+
+            advance(scan, deadline);
+        }
+    }
+
+    private static void advanceDensity(long deadline) {
+        int count = DENSITY_SLICED.size();
+        for (int i = 0; i < count; i++) {
+            if (System.nanoTime() - deadline >= 0) break;
+
+            DivinationDensityScan scan = DENSITY_SLICED.pollFirst();
+            if (scan == null) break;
+
+            if (scan.getJob().isValid() && scan.tick(deadline)) DENSITY_SLICED.addLast(scan);
+        }
+    }
+
+    /**
+     * 推进一个分时扫描；未完成且仍有人订阅的排回队尾
+     */
+    private static void advance(DivinationBlockScan scan, long deadline) {
+        boolean more = scan.tick(deadline);
+        handleOverflow(scan);
+
+        if (!more) return;
+        if (scan.hasSubscribers()) {
+            SLICED.addLast(scan);
+        } else {
+            // 订阅者全部失效：放弃扫描，且不再共享未完成的结果
+            unregister(scan);
+        }
+    }
+
+    /**
+     * 交付工作线程完成的结果 (主线程)
+     */
+    private static void drainCompleted() {
+        Completion completion;
+        while ((completion = COMPLETED.poll()) != null) {
+            DivinationBlockScan scan = completion.scan();
+            if (!ASYNC.remove(scan)) continue; // 服务器已停止
+
+            if (completion.result() == null) {
+                // 搜索异常：不交付结果，也不再共享
+                unregister(scan);
+                continue;
+            }
+            scan.complete(completion.result());
+            handleOverflow(scan);
+        }
+
+        DensityCompletion density;
+        while ((density = DENSITY_COMPLETED.poll()) != null) {
+            if (!DENSITY_ASYNC.remove(density.scan())) continue; // 已取消或服务器已停止
+            if (density.result() != null) density.scan().complete(density.result());
+        }
+    }
+
+    private static void unregister(DivinationBlockScan scan) {
+        List<DivinationBlockScan> scans = SHARED.get(new ShareKey(scan.getLevel().dimension(), scan.getTargets()));
+        if (scans != null) scans.remove(scan);
+    }
+
+    private static ExecutorService getExecutor() {
+        if (executor == null) {
+            AtomicInteger counter = new AtomicInteger();
+            executor = Executors.newFixedThreadPool(LotMCommonConfig.COMMON.divinationWorkerThreads.get(), runnable -> {
+                Thread thread = new Thread(runnable, "LotM-Divination-Worker-" + counter.incrementAndGet());
+                thread.setDaemon(true);
+                return thread;
+            });
+        }
+        return executor;
+    }
+
+    @SubscribeEvent
+    public static void onPlayerLoggedOut(PlayerEvent.PlayerLoggedOutEvent event) {
+        removeSubscriber(event.getEntity().getUUID());
+    }
+
+    @SubscribeEvent
+    public static void onServerStopped(ServerStoppedEvent event) {
+        SLICED.clear();
+        ASYNC.clear();
+        COMPLETED.clear();
+        SHARED.clear();
+        DENSITY_SLICED.clear();
+        DENSITY_ASYNC.clear();
+        DENSITY_COMPLETED.clear();
+        if (executor != null) {
+            executor.shutdownNow();
+            executor = null;
+        }
+    }
+}
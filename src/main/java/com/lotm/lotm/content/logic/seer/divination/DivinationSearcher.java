@@ -1,12 +1,16 @@
 package com.lotm.lotm.content.logic.seer.divination;
 
+import com.lotm.lotm.content.logic.seer.divination.search.BlockPositionIndex;
+import com.lotm.lotm.content.logic.seer.divination.search.EntityTypeIndex;
+import com.lotm.lotm.content.logic.seer.divination.search.SectionBlockScanner;
+import com.lotm.lotm.content.logic.seer.divination.search.TargetStateSet;
 import net.minecraft.core.BlockPos;
-import net.minecraft.resources.ResourceLocation;
 import net.minecraft.server.level.ServerLevel;
+import net.minecraft.tags.TagKey;
 import net.minecraft.world.entity.Entity;
 import net.minecraft.world.entity.EntityType;
 import net.minecraft.world.level.block.Block;
-import net.minecraft.world.level.block.state.BlockState;
+import net.minecraft.world.level.block.Blocks;
 import net.minecraft.world.phys.AABB;
 import net.minecraft.world.phys.Vec3;
 import net.minecraftforge.registries.ForgeRegistries;
@@ -15,6 +19,7 @@ import javax.annotation.Nullable;
 import java.util.Comparator;
 import java.util.List;
 import java.util.Optional;
+import java.util.function.Predicate;
 
 /**
  * 占卜搜索工具类
@@ -22,61 +27,125 @@ import java.util.Optional;
 public class DivinationSearcher {
 
     /**
-     * 搜索最近的符合 ID 的方块
+     * 搜索最近的目标方块
+     * <p>
+     * 1. 目标方块已被 {@link BlockPositionIndex} 索引 -> 直接查表。
+     * 2. 否则委托给 {@link SectionBlockScanner}：按区块分段遍历，并利用调色板整段跳过不可能命中的分段。
      */
     @Nullable
-    public static BlockPos findNearestBlock(ServerLevel level, Vec3 center, ResourceLocation blockId, int rangeH, int rangeV) {
-        Block targetBlock = ForgeRegistries.BLOCKS.getValue(blockId);
-        if (targetBlock == null || targetBlock == net.minecraft.world.level.block.Blocks.AIR) {
+    public static BlockPos findNearestBlock(ServerLevel level, Vec3 center, Block targetBlock, int rangeH, int rangeV) {
+        if (targetBlock == Blocks.AIR) {
             return null;
         }
 
         BlockPos origin = BlockPos.containing(center);
-        BlockPos.MutableBlockPos mutablePos = new BlockPos.MutableBlockPos();
-
-        BlockPos nearestPos = null;
-        double minDistanceSqr = Double.MAX_VALUE;
-
-        for (int x = -rangeH; x <= rangeH; x++) {
-            for (int y = -rangeV; y <= rangeV; y++) {
-                for (int z = -rangeH; z <= rangeH; z++) {
-                    mutablePos.setWithOffset(origin, x, y, z);
-
-                    // 优化 1: 距离剪枝
-                    if (nearestPos != null && origin.distSqr(mutablePos) >= minDistanceSqr) continue;
-
-                    // ★★★ 优化 2: 防止加载未加载的区块 ★★★
-                    // 工业级标准：严禁在主线程逻辑中意外触发区块加载
-                    if (!level.hasChunkAt(mutablePos)) continue;
-
-                    BlockState state = level.getBlockState(mutablePos);
-                    if (state.is(targetBlock)) {
-                        double distSqr = origin.distSqr(mutablePos);
-                        if (distSqr < minDistanceSqr) {
-                            minDistanceSqr = distSqr;
-                            nearestPos = mutablePos.immutable();
-                        }
-                    }
-                }
-            }
+        if (BlockPositionIndex.isIndexed(targetBlock)) {
+            return BlockPositionIndex.findNearest(level, origin, rangeH, rangeV, targetBlock);
         }
-        return nearestPos;
+        return SectionBlockScanner.findNearest(level, origin, rangeH, rangeV, TargetStateSet.of(targetBlock));
     }
 
     /**
-     * 搜索最近的符合 ID 的实体
+     * 搜索方块标签中任意成员的最近一个
+     * <p>
+     * 全部成员都被索引时查表；否则只扫描一遍世界，每个分段用预展开的 {@link TargetStateSet} 测试一次，
+     * 而不是每个成员各扫一遍。
      */
     @Nullable
-    public static Entity findNearestEntity(ServerLevel level, Vec3 center, ResourceLocation entityId, int range) {
-        EntityType<?> targetType = ForgeRegistries.ENTITY_TYPES.getValue(entityId);
-        if (targetType == null) {
-            return null;
+    public static BlockPos findNearestBlock(ServerLevel level, Vec3 center, TagKey<Block> tag, int rangeH, int rangeV) {
+        BlockPos origin = BlockPos.containing(center);
+        if (BlockPositionIndex.isIndexed(tag)) {
+            return BlockPositionIndex.findNearest(level, origin, rangeH, rangeV, tag);
+        }
+        return SectionBlockScanner.findNearest(level, origin, rangeH, rangeV, TargetStateSet.of(tag));
+    }
+
+    /**
+     * 按目标类型分派：方块或方块标签
+     */
+    @Nullable
+    public static BlockPos findNearestBlock(ServerLevel level, Vec3 center, DivinationTarget target, int rangeH, int rangeV) {
+        if (target.blockTag() != null) return findNearestBlock(level, center, target.blockTag(), rangeH, rangeV);
+        if (target.block() != null) return findNearestBlock(level, center, target.block(), rangeH, rangeV);
+        return null;
+    }
+
+    /**
+     * 目标方块是否需要扫描世界 (空气无意义；已被 {@link BlockPositionIndex} 索引的直接查表即可)
+     */
+    public static boolean needsScan(Block targetBlock) {
+        return targetBlock != Blocks.AIR && !BlockPositionIndex.isIndexed(targetBlock);
+    }
+
+    public static boolean needsScan(DivinationTarget target) {
+        if (target.blockTag() != null) return !BlockPositionIndex.isIndexed(target.blockTag());
+        return target.block() != null && needsScan(target.block());
+    }
+
+    /**
+     * 搜索最近的目标实体
+     * <p>
+     * 生物类型直接查 {@link EntityTypeIndex}，开销只与该类型的实例数有关；
+     * 非生物类型 (未被索引) 才回退到范围查询。
+     */
+    @Nullable
+    public static Entity findNearestEntity(ServerLevel level, Vec3 center, EntityType<?> targetType, int range) {
+        if (EntityTypeIndex.isIndexed(targetType)) {
+            return EntityTypeIndex.findNearest(level, center, targetType, range);
         }
 
+        return findNearestEntityInArea(level, center, type -> type == targetType, range);
+    }
+
+    /**
+     * 搜索实体标签中任意成员的最近一个
+     * <p>
+     * 成员全是生物时，只遍历索引中这些类型的实例；否则做一次范围查询，按标签过滤。
+     */
+    @Nullable
+    public static Entity findNearestEntity(ServerLevel level, Vec3 center, TagKey<EntityType<?>> tag, int range) {
+        var tagManager = ForgeRegistries.ENTITY_TYPES.tags();
+        if (tagManager == null) return null;
+
+        boolean allIndexed = true;
+        for (EntityType<?> type : tagManager.getTag(tag)) {
+            if (!EntityTypeIndex.isIndexed(type)) {
+                allIndexed = false;
+                break;
+            }
+        }
+        if (!allIndexed) {
+            return findNearestEntityInArea(level, center, type -> type.is(tag), range);
+        }
+
+        Entity nearest = null;
+        double minDistSqr = Double.MAX_VALUE;
+        for (EntityType<?> type : tagManager.getTag(tag)) {
+            Entity entity = EntityTypeIndex.findNearest(level, center, type, range);
+            if (entity != null && entity.distanceToSqr(center) < minDistSqr) {
+                minDistSqr = entity.distanceToSqr(center);
+                nearest = entity;
+            }
+        }
+        return nearest;
+    }
+
+    /**
+     * 按目标类型分派：实体或实体标签
+     */
+    @Nullable
+    public static Entity findNearestEntity(ServerLevel level, Vec3 center, DivinationTarget target, int range) {
+        if (target.entityTag() != null) return findNearestEntity(level, center, target.entityTag(), range);
+        if (target.entityType() != null) return findNearestEntity(level, center, target.entityType(), range);
+        return null;
+    }
+
+    @Nullable
+    private static Entity findNearestEntityInArea(ServerLevel level, Vec3 center, Predicate<EntityType<?>> types, int range) {
         AABB searchArea = AABB.ofSize(center, range * 2, range * 2, range * 2);
 
         List<Entity> candidates = level.getEntities((Entity) null, searchArea, e -> {
-            return e.getType() == targetType && e.isAlive();
+            return types.test(e.getType()) && e.isAlive();
         });
 
         Optional<Entity> nearest = candidates.stream()
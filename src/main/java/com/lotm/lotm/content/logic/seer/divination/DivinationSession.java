@@ -0,0 +1,145 @@
+package com.lotm.lotm.content.logic.seer.divination;
+
+import com.lotm.lotm.content.logic.seer.divination.search.TargetStateSet;
+import net.minecraft.core.BlockPos;
+import net.minecraft.resources.ResourceKey;
+import net.minecraft.server.level.ServerLevel;
+import net.minecraft.server.level.ServerPlayer;
+import net.minecraft.world.entity.Entity;
+import net.minecraft.world.item.ItemStack;
+import net.minecraft.world.level.Level;
+import net.minecraft.world.phys.Vec3;
+
+import javax.annotation.Nullable;
+
+/**
+ * 持续占卜会话 (服务端)
+ * <p>
+ * 职责：
+ * 1. 持有解析好的 {@link DivinationTarget}，以及上一次完整搜索找到的方块坐标 / 实体引用。
+ * 2. 每秒先用 {@link #recheck} 廉价地复查缓存命中 (方块是否还在、实体是否存活且在范围内)，
+ *    只有复查失败时才触发完整搜索。
+ * <p>
+ * 玩家离开上次完整搜索的位置较远时，复查也视为失败，以便重新寻找更近的目标。
+ * <p>
+ * 数量占卜的读数 (总数 + 最密集区域) 无法廉价复查，只在一段时间 ({@link #DENSITY_TTL_TICKS}) 内复用。
+ */
+public class DivinationSession {
+
+    // 离开上次完整搜索位置超过该距离 (格) 时重新搜索
+    private static final double RESEARCH_DISTANCE = 16.0;
+
+    // 数量占卜读数的复用时长 (Tick)
+    private static final int DENSITY_TTL_TICKS = 100;
+
+    private final ServerPlayer player;
+    private final ItemStack stack;
+    private final DivinationTarget target;
+
+    // 缓存命中
+    private BlockPos cachedBlock = null;
+    private Entity cachedEntity = null;
+
+    // 数量占卜读数 (-1 表示没有)
+    private int cachedDensity = -1;
+    private BlockPos densityCenter = null;
+    private long densityTime;
+
+    // 上次完整搜索时的位置与维度
+    private Vec3 searchOrigin = null;
+    private ResourceKey<Level> searchDimension = null;
+
+    public DivinationSession(ServerPlayer player, ItemStack stack, DivinationTarget target) {
+        this.player = player;
+        this.stack = stack;
+        this.target = target;
+    }
+
+    public ServerPlayer getPlayer() {
+        return player;
+    }
+
+    public ItemStack getStack() {
+        return stack;
+    }
+
+    public DivinationTarget getTarget() {
+        return target;
+    }
+
+    /**
+     * 开始一次完整搜索：清空缓存并记录搜索位置
+     */
+    public void beginSearch() {
+        cachedBlock = null;
+        cachedEntity = null;
+        cachedDensity = -1;
+        searchOrigin = player.position();
+        searchDimension = player.level().dimension();
+    }
+
+    public void cacheBlock(BlockPos pos) {
+        cachedBlock = pos.immutable();
+        cachedEntity = null;
+    }
+
+    public void cacheEntity(Entity entity) {
+        cachedEntity = entity;
+        cachedBlock = null;
+    }
+
+    public void cacheDensity(int count, BlockPos densest) {
+        cachedDensity = count;
+        densityCenter = densest.immutable();
+        densityTime = player.level().getGameTime();
+    }
+
+    public int getCachedDensity() {
+        return cachedDensity;
+    }
+
+    public int getCachedEntityId() {
+        return cachedEntity != null ? cachedEntity.getId() : -1;
+    }
+
+    /**
+     * 复查缓存命中
+     *
+     * @param rangeH 方块目标的水平半径 (实体目标使用 rangeH * 2 的立方体，与完整搜索一致)
+     * @param rangeV 方块目标的垂直半径
+     * @return 命中仍然有效时返回目标坐标；否则返回 null，需要完整搜索
+     */
+    @Nullable
+    public Vec3 recheck(int rangeH, int rangeV) {
+        if (searchOrigin == null || player.level().dimension() != searchDimension) return null;
+        if (player.position().distanceToSqr(searchOrigin) > RESEARCH_DISTANCE * RESEARCH_DISTANCE) return null;
+
+        ServerLevel level = player.serverLevel();
+
+        if (cachedDensity >= 0) {
+            if (level.getGameTime() - densityTime > DENSITY_TTL_TICKS) return null;
+            return Vec3.atCenterOf(densityCenter);
+        }
+
+        TargetStateSet states = target.blockStates();
+        if (cachedBlock != null && states != null) {
+            BlockPos origin = player.blockPosition();
+            if (Math.abs(cachedBlock.getX() - origin.getX()) > rangeH
+                    || Math.abs(cachedBlock.getY() - origin.getY()) > rangeV
+                    || Math.abs(cachedBlock.getZ() - origin.getZ()) > rangeH) return null;
+            if (!level.isLoaded(cachedBlock) || !states.test(level.getBlockState(cachedBlock))) return null;
+            return Vec3.atCenterOf(cachedBlock);
+        }
+
+        if (cachedEntity != null) {
+            int range = rangeH * 2;
+            if (!cachedEntity.isAlive() || cachedEntity.level() != level) return null;
+            if (Math.abs(cachedEntity.getX() - player.getX()) > range
+                    || Math.abs(cachedEntity.getY() - player.getY()) > range
+                    || Math.abs(cachedEntity.getZ() - player.getZ()) > range) return null;
+            return cachedEntity.position();
+        }
+
+        return null;
+    }
+}
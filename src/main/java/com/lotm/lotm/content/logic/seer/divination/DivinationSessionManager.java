@@ -0,0 +1,74 @@
+package com.lotm.lotm.content.logic.seer.divination;
+
+import com.lotm.lotm.LotMMod;
+import net.minecraft.server.level.ServerPlayer;
+import net.minecraft.world.item.ItemStack;
+import net.minecraftforge.event.entity.player.PlayerEvent;
+import net.minecraftforge.event.server.ServerStoppedEvent;
+import net.minecraftforge.eventbus.api.SubscribeEvent;
+import net.minecraftforge.fml.common.Mod;
+
+import javax.annotation.Nullable;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.UUID;
+
+/**
+ * 持续占卜会话管理器
+ * <p>
+ * 职责：
+ * 1. 每个玩家最多一个 {@link DivinationSession}，由灵摆开启/关闭。
+ * 2. 灵摆 NBT 只保留“是否激活”和目标设置 (用于存档与客户端闪光)，每秒的运行状态全部在会话中。
+ * 3. 服务器重启后 NBT 仍处于激活状态时，首次访问会按 NBT 懒重建会话。
+ */
+@Mod.EventBusSubscriber(modid = LotMMod.MODID)
+public class DivinationSessionManager {
+
+    private static final Map<UUID, DivinationSession> SESSIONS = new HashMap<>();
+
+    /**
+     * 开启 (或重建) 会话
+     *
+     * @return 会话；灵摆未设置有效目标时返回 null
+     */
+    @Nullable
+    public static DivinationSession start(ServerPlayer player, ItemStack stack) {
+        DivinationTarget target = DivinationTarget.fromTag(stack.getTag());
+        if (target == null) {
+            stop(player);
+            return null;
+        }
+
+        DivinationSession session = new DivinationSession(player, stack, target);
+        SESSIONS.put(player.getUUID(), session);
+        DivinationScanScheduler.cancel(player);
+        return session;
+    }
+
+    /**
+     * 获取该灵摆对应的会话，不存在 (或属于另一个灵摆、玩家实体已重生) 时按 NBT 重建
+     */
+    @Nullable
+    public static DivinationSession getOrStart(ServerPlayer player, ItemStack stack) {
+        DivinationSession session = SESSIONS.get(player.getUUID());
+        if (session != null && session.getPlayer() == player && session.getStack() == stack) {
+            return session;
+        }
+        return start(player, stack);
+    }
+
+    public static void stop(ServerPlayer player) {
+        SESSIONS.remove(player.getUUID());
+        DivinationScanScheduler.cancel(player);
+    }
+
+    @SubscribeEvent
+    public static void onPlayerLoggedOut(PlayerEvent.PlayerLoggedOutEvent event) {
+        SESSIONS.remove(event.getEntity().getUUID());
+    }
+
+    @SubscribeEvent
+    public static void onServerStopped(ServerStoppedEvent event) {
+        SESSIONS.clear();
+    }
+}
@@ -0,0 +1,90 @@
+package com.lotm.lotm.content.logic.seer.divination;
+
+import com.lotm.lotm.content.logic.seer.divination.search.TargetStateSet;
+import net.minecraft.core.registries.Registries;
+import net.minecraft.nbt.CompoundTag;
+import net.minecraft.resources.ResourceLocation;
+import net.minecraft.tags.TagKey;
+import net.minecraft.world.entity.EntityType;
+import net.minecraft.world.level.block.Block;
+import net.minecraft.world.level.block.Blocks;
+import net.minecraftforge.registries.ForgeRegistries;
+
+import javax.annotation.Nullable;
+
+/**
+ * 占卜目标 (已解析)
+ * <p>
+ * 灵摆 NBT 中的 "DivinationType" / "DivinationTarget" 只在会话开始时解析一次，
+ * 之后的持续占卜直接使用解析好的方块 / 实体类型，不再每秒重新构造 ResourceLocation 和查注册表。
+ * <p>
+ * 标签目标 (BLOCK_TAG / ENTITY_TAG) 寻找标签中任意成员的最近一个，id 为标签 ID。
+ *
+ * @param block      方块目标 (type == BLOCK / BLOCK_DENSITY 时有效)
+ * @param entityType 实体目标 (type == ENTITY 时有效)
+ * @param blockTag   方块标签目标 (type == BLOCK_TAG 时有效)
+ * @param entityTag  实体标签目标 (type == ENTITY_TAG 时有效)
+ */
+public record DivinationTarget(Type type, ResourceLocation id, @Nullable Block block, @Nullable EntityType<?> entityType,
+                               @Nullable TagKey<Block> blockTag, @Nullable TagKey<EntityType<?>> entityTag) {
+
+    public enum Type {
+        BLOCK,
+        // 数量占卜：统计范围内该方块的数量与最密集的方向，而不是最近的一个
+        BLOCK_DENSITY,
+        BLOCK_TAG,
+        ENTITY,
+        ENTITY_TAG
+    }
+
+    /**
+     * 方块类目标的预展开状态集合 (扫描与复查共用)
+     *
+     * @return 非方块目标返回 null
+     */
+    @Nullable
+    public TargetStateSet blockStates() {
+        if (blockTag != null) return TargetStateSet.of(blockTag);
+        if (block != null) return TargetStateSet.of(block);
+        return null;
+    }
+
+    /**
+     * 从灵摆 NBT 解析目标
+     *
+     * @return 目标；未设置或无法识别时返回 null
+     */
+    @Nullable
+    public static DivinationTarget fromTag(@Nullable CompoundTag tag) {
+        if (tag == null || !tag.contains("DivinationTarget")) return null;
+
+        ResourceLocation id = ResourceLocation.tryParse(tag.getString("DivinationTarget"));
+        if (id == null) return null;
+
+        String typeName = tag.getString("DivinationType");
+        return switch (typeName) {
+            // 注册表对未知 ID 会返回默认值 (空气 / 猪)，这里显式判断
+            case "BLOCK", "BLOCK_DENSITY" -> {
+                Block block = ForgeRegistries.BLOCKS.containsKey(id) ? ForgeRegistries.BLOCKS.getValue(id) : null;
+                Type type = typeName.equals("BLOCK") ? Type.BLOCK : Type.BLOCK_DENSITY;
+                yield new DivinationTarget(type, id, block == Blocks.AIR ? null : block, null, null, null);
+            }
+            case "ENTITY" -> new DivinationTarget(Type.ENTITY, id, null,
+                    ForgeRegistries.ENTITY_TYPES.containsKey(id) ? ForgeRegistries.ENTITY_TYPES.getValue(id) : null, null, null);
+            // 未知标签视为未设置目标
+            case "BLOCK_TAG" -> {
+                TagKey<Block> blockTag = TagKey.create(Registries.BLOCK, id);
+                var tagManager = ForgeRegistries.BLOCKS.tags();
+                yield tagManager != null && tagManager.isKnownTagName(blockTag)
+                        ? new DivinationTarget(Type.BLOCK_TAG, id, null, null, blockTag, null) : null;
+            }
+            case "ENTITY_TAG" -> {
+                TagKey<EntityType<?>> entityTag = TagKey.create(Registries.ENTITY_TYPE, id);
+                var tagManager = ForgeRegistries.ENTITY_TYPES.tags();
+                yield tagManager != null && tagManager.isKnownTagName(entityTag)
+                        ? new DivinationTarget(Type.ENTITY_TAG, id, null, null, null, entityTag) : null;
+            }
+            default -> null;
+        };
+    }
+}
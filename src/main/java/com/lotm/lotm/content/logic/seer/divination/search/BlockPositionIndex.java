@@ -0,0 +1,361 @@
+package com.lotm.lotm.content.logic.seer.divination.search;
+
+import com.lotm.lotm.LotMMod;
+import com.lotm.lotm.common.config.LotMCommonConfig;
+import it.unimi.dsi.fastutil.longs.Long2ObjectMap;
+import it.unimi.dsi.fastutil.longs.Long2ObjectOpenHashMap;
+import it.unimi.dsi.fastutil.longs.LongArrayFIFOQueue;
+import it.unimi.dsi.fastutil.longs.LongIterator;
+import it.unimi.dsi.fastutil.longs.LongOpenHashSet;
+import it.unimi.dsi.fastutil.objects.Reference2ObjectMap;
+import it.unimi.dsi.fastutil.objects.Reference2ObjectOpenHashMap;
+import it.unimi.dsi.fastutil.objects.ReferenceOpenHashSet;
+import net.minecraft.core.BlockPos;
+import net.minecraft.core.SectionPos;
+import net.minecraft.core.registries.Registries;
+import net.minecraft.resources.ResourceKey;
+import net.minecraft.resources.ResourceLocation;
+import net.minecraft.server.level.ServerLevel;
+import net.minecraft.tags.TagKey;
+import net.minecraft.world.level.ChunkPos;
+import net.minecraft.world.level.Level;
+import net.minecraft.world.level.block.Block;
+import net.minecraft.world.level.block.Blocks;
+import net.minecraft.world.level.block.state.BlockState;
+import net.minecraft.world.level.chunk.LevelChunk;
+import net.minecraft.world.level.chunk.LevelChunkSection;
+import net.minecraftforge.event.TagsUpdatedEvent;
+import net.minecraftforge.event.TickEvent;
+import net.minecraftforge.event.level.ChunkEvent;
+import net.minecraftforge.event.level.LevelEvent;
+import net.minecraftforge.event.server.ServerStoppedEvent;
+import net.minecraftforge.eventbus.api.SubscribeEvent;
+import net.minecraftforge.fml.common.Mod;
+import net.minecraftforge.registries.ForgeRegistries;
+
+import javax.annotation.Nullable;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Set;
+import java.util.function.LongPredicate;
+import java.util.function.Predicate;
+
+/**
+ * 方块坐标索引 (Block Position Index)
+ * <p>
+ * 职责：
+ * 1. 按维度、按区块记录“值得关注”的方块 (见 {@link LotMCommonConfig#divinationIndexedBlocks}) 的坐标。
+ * 2. 区块加载时登记、区块卸载时丢弃；方块变化时增量维护 (挂在 LevelChunk.setBlockState 上，任何途径的变化都会被捕获)。
+ * 3. 为占卜与呓语提供“范围内最近的某方块/某标签”的查表查询，替代反复的体积扫描。
+ * <p>
+ * 设计要点：
+ * - 区块加载时只登记占位，实际的分段扫描在后续 Tick 中按预算分批完成，避免拖慢区块加载；
+ *   查询命中尚未建好的区块时就地构建。
+ * - 查询结果在返回前会校验一次实际方块状态，以兜底不经过 LevelChunk.setBlockState 的改动 (如直接写分段的世界生成)。
+ * - 仅在服务端运行，所有访问都在服务端主线程。
+ */
+@Mod.EventBusSubscriber(modid = LotMMod.MODID)
+public class BlockPositionIndex {
+
+    // 每个维度每 Tick 最多补建的区块数
+    private static final int BUILDS_PER_TICK = 8;
+
+    private static final Map<ResourceKey<Level>, LevelIndex> LEVELS = new HashMap<>();
+
+    // 需要索引的方块集合 (依赖标签数据，懒解析；标签重载后重新解析)
+    private static Set<Block> indexedBlocks = null;
+
+    // ==================================================
+    //                 数据结构
+    // ==================================================
+
+    private static class LevelIndex {
+        final Long2ObjectOpenHashMap<ChunkEntry> chunks = new Long2ObjectOpenHashMap<>();
+        final LongArrayFIFOQueue pending = new LongArrayFIFOQueue();
+    }
+
+    private static class ChunkEntry {
+        boolean built = false;
+        final Reference2ObjectOpenHashMap<Block, LongOpenHashSet> positions = new Reference2ObjectOpenHashMap<>();
+
+        void add(Block block, long pos) {
+            positions.computeIfAbsent(block, k -> new LongOpenHashSet()).add(pos);
+        }
+
+        void remove(long pos) {
+            // 每个区块内的方块种类很少，直接逐类移除即可
+            for (LongOpenHashSet set : positions.values()) {
+                set.remove(pos);
+            }
+        }
+    }
+
+    // ==================================================
+    //                 查询接口
+    // ==================================================
+
+    /**
+     * 判断某方块是否被索引 (未被索引的方块只能回退到体积扫描)
+     */
+    public static boolean isIndexed(Block block) {
+        return getIndexedBlocks().contains(block);
+    }
+
+    /**
+     * 判断某标签的所有成员是否都被索引
+     */
+    public static boolean isIndexed(TagKey<Block> tag) {
+        var tagManager = ForgeRegistries.BLOCKS.tags();
+        if (tagManager == null) return false;
+        Set<Block> blocks = getIndexedBlocks();
+        for (Block block : tagManager.getTag(tag)) {
+            if (!blocks.contains(block)) return false;
+        }
+        return true;
+    }
+
+    @Nullable
+    public static BlockPos findNearest(ServerLevel level, BlockPos origin, int rangeH, int rangeV, Block block) {
+        return findNearest(level, origin, rangeH, rangeV, b -> b == block, null);
+    }
+
+    @Nullable
+    public static BlockPos findNearest(ServerLevel level, BlockPos origin, int rangeH, int rangeV, TagKey<Block> tag) {
+        return findNearest(level, origin, rangeH, rangeV, b -> b.defaultBlockState().is(tag), null);
+    }
+
+    /**
+     * 在 origin 周围的长方体 (水平 ±rangeH，垂直 ±rangeV) 内查找最近的已索引方块
+     *
+     * @param blocks 方块过滤器 (只会对已索引的方块调用)
+     * @param accept 额外的坐标过滤 (打包的 BlockPos long)，可为 null
+     * @return 最近的坐标，找不到返回 null
+     */
+    @Nullable
+    public static BlockPos findNearest(ServerLevel level, BlockPos origin, int rangeH, int rangeV,
+                                       Predicate<Block> blocks, @Nullable LongPredicate accept) {
+        LevelIndex index = LEVELS.get(level.dimension());
+        if (index == null) return null;
+
+        int ox = origin.getX(), oy = origin.getY(), oz = origin.getZ();
+        int minChunkX = SectionPos.blockToSectionCoord(ox - rangeH), maxChunkX = SectionPos.blockToSectionCoord(ox + rangeH);
+        int minChunkZ = SectionPos.blockToSectionCoord(oz - rangeH), maxChunkZ = SectionPos.blockToSectionCoord(oz + rangeH);
+
+        // 校验失败时剔除过期坐标并重新查找
+        while (true) {
+            long bestDistSqr = Long.MAX_VALUE;
+            long bestPos = 0;
+            Block bestBlock = null;
+            ChunkEntry bestEntry = null;
+
+            for (int cx = minChunkX; cx <= maxChunkX; cx++) {
+                long dxMin = SectionBlockScanner.axisDistance(ox, SectionPos.sectionToBlockCoord(cx), SectionPos.sectionToBlockCoord(cx) + 15);
+                for (int cz = minChunkZ; cz <= maxChunkZ; cz++) {
+                    long dzMin = SectionBlockScanner.axisDistance(oz, SectionPos.sectionToBlockCoord(cz), SectionPos.sectionToBlockCoord(cz) + 15);
+                    if (dxMin * dxMin + dzMin * dzMin >= bestDistSqr) continue;
+
+                    ChunkEntry entry = index.chunks.get(ChunkPos.asLong(cx, cz));
+                    if (entry == null) continue; // 未加载
+
+                    if (!entry.built) {
+                        LevelChunk chunk = level.getChunkSource().getChunkNow(cx, cz);
+                        if (chunk == null) continue;
+                        build(level, chunk, entry);
+                    }
+
+                    for (Reference2ObjectMap.Entry<Block, LongOpenHashSet> e : entry.positions.reference2ObjectEntrySet()) {
+                        if (e.getValue().isEmpty() || !blocks.test(e.getKey())) continue;
+
+                        LongIterator it = e.getValue().iterator();
+                        while (it.hasNext()) {
+                            long packed = it.nextLong();
+                            long dx = BlockPos.getX(packed) - ox;
+                            long dy = BlockPos.getY(packed) - oy;
+                            long dz = BlockPos.getZ(packed) - oz;
+                            if (Math.abs(dx) > rangeH || Math.abs(dy) > rangeV || Math.abs(dz) > rangeH) continue;
+
+                            long distSqr = dx * dx + dy * dy + dz * dz;
+                            if (distSqr >= bestDistSqr) continue;
+                            if (accept != null && !accept.test(packed)) continue;
+
+                            bestDistSqr = distSqr;
+                            bestPos = packed;
+                            bestBlock = e.getKey();
+                            bestEntry = entry;
+                        }
+                    }
+                }
+            }
+
+            if (bestBlock == null) return null;
+
+            BlockPos result = BlockPos.of(bestPos);
+            if (level.getBlockState(result).is(bestBlock)) {
+                return result;
+            }
+            // 索引过期 (方块被静默替换)，剔除后重试
+            bestEntry.remove(bestPos);
+        }
+    }
+
+    // ==================================================
+    //                 索引构建
+    // ==================================================
+
+    private static Set<Block> getIndexedBlocks() {
+        if (indexedBlocks == null) {
+            Set<Block> result = new ReferenceOpenHashSet<>();
+            var tagManager = ForgeRegistries.BLOCKS.tags();
+
+            for (String entry : LotMCommonConfig.COMMON.divinationIndexedBlocks.get()) {
+                try {
+                    if (entry.startsWith("#")) {
+                        if (tagManager == null) continue;
+                        TagKey<Block> tag = TagKey.create(Registries.BLOCK, new ResourceLocation(entry.substring(1)));
+                        tagManager.getTag(tag).forEach(result::add);
+                    } else {
+                        Block block = ForgeRegistries.BLOCKS.getValue(new ResourceLocation(entry));
+                        if (block != null && block != Blocks.AIR) result.add(block);
+                    }
+                } catch (Exception e) {
+                    LotMMod.LOGGER.warn("Invalid indexed block entry '{}' in config", entry);
+                }
+            }
+            indexedBlocks = result;
+        }
+        return indexedBlocks;
+    }
+
+    /**
+     * 扫描整个区块，登记所有被索引方块的坐标
+     */
+    private static void build(ServerLevel level, LevelChunk chunk, ChunkEntry entry) {
+        entry.positions.clear();
+        entry.built = true;
+
+        Set<Block> blocks = getIndexedBlocks();
+        if (blocks.isEmpty()) return;
+
+        Predicate<BlockState> matcher = state -> blocks.contains(state.getBlock());
+        LevelChunkSection[] sections = chunk.getSections();
+        int baseX = chunk.getPos().getMinBlockX();
+        int baseZ = chunk.getPos().getMinBlockZ();
+
+        for (int i = 0; i < sections.length; i++) {
+            LevelChunkSection section = sections[i];
+            // 调色板预判：整段不含任何索引方块则跳过
+            if (section == null || section.hasOnlyAir() || !section.maybeHas(matcher)) continue;
+
+            int baseY = SectionPos.sectionToBlockCoord(level.getSectionYFromSectionIndex(i));
+            for (int y = 0; y < 16; y++) {
+                for (int z = 0; z < 16; z++) {
+                    for (int x = 0; x < 16; x++) {
+                        Block block = section.getBlockState(x, y, z).getBlock();
+                        if (blocks.contains(block)) {
+                            entry.add(block, BlockPos.asLong(baseX + x, baseY + y, baseZ + z));
+                        }
+                    }
+                }
+            }
+        }
+    }
+
+    /**
+     * 方块已经改变 (由 LevelChunk Mixin 在 setBlockState 返回后调用，客户端世界直接忽略)
+     */
+    public static void onBlockChanged(Level level, BlockPos pos, BlockState newState) {
+        if (level.isClientSide) return;
+        LevelIndex index = LEVELS.get(level.dimension());
+        if (index == null) return;
+
+        ChunkEntry entry = index.chunks.get(ChunkPos.asLong(SectionPos.blockToSectionCoord(pos.getX()), SectionPos.blockToSectionCoord(pos.getZ())));
+        // 未建好的区块稍后会按最新状态整体构建，这里无需处理
+        if (entry == null || !entry.built) return;
+
+        long packed = pos.asLong();
+        entry.remove(packed);
+
+        Block block = newState.getBlock();
+        if (getIndexedBlocks().contains(block)) {
+            entry.add(block, packed);
+        }
+    }
+
+    // ==================================================
+    //                 事件监听
+    // ==================================================
+
+    @SubscribeEvent
+    public static void onChunkLoad(ChunkEvent.Load event) {
+        if (!(event.getLevel() instanceof ServerLevel level) || !(event.getChunk() instanceof LevelChunk chunk)) return;
+
+        LevelIndex index = LEVELS.computeIfAbsent(level.dimension(), k -> new LevelIndex());
+        long key = chunk.getPos().toLong();
+        index.chunks.put(key, new ChunkEntry());
+        index.pending.enqueue(key);
+    }
+
+    @SubscribeEvent
+    public static void onChunkUnload(ChunkEvent.Unload event) {
+        if (!(event.getLevel() instanceof ServerLevel level)) return;
+
+        LevelIndex index = LEVELS.get(level.dimension());
+        if (index != null) {
+            index.chunks.remove(event.getChunk().getPos().toLong());
+        }
+    }
+
+    @SubscribeEvent
+    public static void onLevelTick(TickEvent.LevelTickEvent event) {
+        if (event.phase != TickEvent.Phase.END || !(event.level instanceof ServerLevel level)) return;
+
+        LevelIndex index = LEVELS.get(level.dimension());
+        if (index == null) return;
+
+        // 分批补建：每 Tick 最多构建若干区块
+        int built = 0;
+        while (built < BUILDS_PER_TICK && !index.pending.isEmpty()) {
+            long key = index.pending.dequeueLong();
+            ChunkEntry entry = index.chunks.get(key);
+            if (entry == null || entry.built) continue; // 已卸载或已被查询就地构建
+
+            LevelChunk chunk = level.getChunkSource().getChunkNow(
+                    ChunkPos.getX(key), ChunkPos.getZ(key));
+            if (chunk == null) continue;
+
+            build(level, chunk, entry);
+            built++;
+        }
+    }
+
+    /**
+     * 方块更新 (覆盖绝大多数 setBlock：放置、破坏、爆炸、活塞等)
+     */
+    @SubscribeEvent
+    public static void onTagsUpdated(TagsUpdatedEvent event) {
+        if (event.getUpdateCause() != TagsUpdatedEvent.UpdateCause.SERVER_DATA_LOAD) return;
+
+        // 标签变化会改变“哪些方块需要索引”，全部标记为待重建
+        indexedBlocks = null;
+        for (LevelIndex index : LEVELS.values()) {
+            for (Long2ObjectMap.Entry<ChunkEntry> e : index.chunks.long2ObjectEntrySet()) {
+                e.getValue().built = false;
+                e.getValue().positions.clear();
+                index.pending.enqueue(e.getLongKey());
+            }
+        }
+    }
+
+    @SubscribeEvent
+    public static void onLevelUnload(LevelEvent.Unload event) {
+        if (event.getLevel() instanceof ServerLevel level) {
+            LEVELS.remove(level.dimension());
+        }
+    }
+
+    @SubscribeEvent
+    public static void onServerStopped(ServerStoppedEvent event) {
+        LEVELS.clear();
+        indexedBlocks = null;
+    }
+}
@@ -0,0 +1,120 @@
+package com.lotm.lotm.content.logic.seer.divination.search;
+
+import com.lotm.lotm.LotMMod;
+import it.unimi.dsi.fastutil.objects.Reference2ObjectOpenHashMap;
+import it.unimi.dsi.fastutil.objects.ReferenceOpenHashSet;
+import net.minecraft.resources.ResourceKey;
+import net.minecraft.server.level.ServerLevel;
+import net.minecraft.world.entity.Entity;
+import net.minecraft.world.entity.EntityType;
+import net.minecraft.world.entity.LivingEntity;
+import net.minecraft.world.entity.ai.attributes.DefaultAttributes;
+import net.minecraft.world.level.Level;
+import net.minecraft.world.phys.Vec3;
+import net.minecraftforge.event.entity.EntityJoinLevelEvent;
+import net.minecraftforge.event.entity.EntityLeaveLevelEvent;
+import net.minecraftforge.event.level.LevelEvent;
+import net.minecraftforge.event.server.ServerStoppedEvent;
+import net.minecraftforge.eventbus.api.EventPriority;
+import net.minecraftforge.eventbus.api.SubscribeEvent;
+import net.minecraftforge.fml.common.Mod;
+
+import javax.annotation.Nullable;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * 实体类型索引 (Entity Type Index)
+ * <p>
+ * 职责：
+ * 1. 按维度、按 {@link EntityType} 记录当前存在于世界中的生物 (LivingEntity)。
+ * 2. 由实体加入/离开世界事件增量维护 (包括区块加载卸载、换维度、死亡移除)。
+ * 3. 回答“某点附近最近的某类型存活实体”，开销只与该类型的实例数有关，而与范围内实体总数无关。
+ * <p>
+ * 仅在服务端运行，所有访问都在服务端主线程。
+ */
+@Mod.EventBusSubscriber(modid = LotMMod.MODID)
+public class EntityTypeIndex {
+
+    private static final Map<ResourceKey<Level>, Reference2ObjectOpenHashMap<EntityType<?>, Set<Entity>>> LEVELS = new HashMap<>();
+
+    /**
+     * 判断某实体类型是否被索引 (只索引生物；非生物类型需回退到范围查询)
+     */
+    public static boolean isIndexed(EntityType<?> type) {
+        return DefaultAttributes.hasSupplier(type);
+    }
+
+    /**
+     * 在 center 周围的立方体 (各轴 ±range) 内查找最近的存活实体
+     *
+     * @return 最近的实体，找不到返回 null
+     */
+    @Nullable
+    public static Entity findNearest(ServerLevel level, Vec3 center, EntityType<?> type, double range) {
+        Reference2ObjectOpenHashMap<EntityType<?>, Set<Entity>> types = LEVELS.get(level.dimension());
+        if (types == null) return null;
+
+        Set<Entity> entities = types.get(type);
+        if (entities == null) return null;
+
+        Entity nearest = null;
+        double minDistSqr = Double.MAX_VALUE;
+
+        for (Entity entity : entities) {
+            if (!entity.isAlive()) continue;
+            if (Math.abs(entity.getX() - center.x) > range
+                    || Math.abs(entity.getY() - center.y) > range
+                    || Math.abs(entity.getZ() - center.z) > range) continue;
+
+            double distSqr = entity.distanceToSqr(center);
+            if (distSqr < minDistSqr) {
+                minDistSqr = distSqr;
+                nearest = entity;
+            }
+        }
+        return nearest;
+    }
+
+    // ==================================================
+    //                 事件监听
+    // ==================================================
+
+    /**
+     * 取最低优先级，确保加入事件未被其他监听者取消
+     */
+    @SubscribeEvent(priority = EventPriority.LOWEST)
+    public static void onEntityJoin(EntityJoinLevelEvent event) {
+        if (!(event.getLevel() instanceof ServerLevel level) || !(event.getEntity() instanceof LivingEntity entity)) return;
+
+        LEVELS.computeIfAbsent(level.dimension(), k -> new Reference2ObjectOpenHashMap<>())
+                .computeIfAbsent(entity.getType(), k -> new ReferenceOpenHashSet<>())
+                .add(entity);
+    }
+
+    @SubscribeEvent
+    public static void onEntityLeave(EntityLeaveLevelEvent event) {
+        if (!(event.getLevel() instanceof ServerLevel level) || !(event.getEntity() instanceof LivingEntity entity)) return;
+
+        Reference2ObjectOpenHashMap<EntityType<?>, Set<Entity>> types = LEVELS.get(level.dimension());
+        if (types == null) return;
+
+        Set<Entity> entities = types.get(entity.getType());
+        if (entities != null && entities.remove(entity) && entities.isEmpty()) {
+            types.remove(entity.getType());
+        }
+    }
+
+    @SubscribeEvent
+    public static void onLevelUnload(LevelEvent.Unload event) {
+        if (event.getLevel() instanceof ServerLevel level) {
+            LEVELS.remove(level.dimension());
+        }
+    }
+
+    @SubscribeEvent
+    public static void onServerStopped(ServerStoppedEvent event) {
+        LEVELS.clear();
+    }
+}
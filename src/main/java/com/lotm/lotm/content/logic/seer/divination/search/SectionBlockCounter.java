@@ -0,0 +1,266 @@
+package com.lotm.lotm.content.logic.seer.divination.search;
+
+import net.minecraft.core.BlockPos;
+import net.minecraft.core.SectionPos;
+import net.minecraft.server.level.ServerLevel;
+import net.minecraft.world.level.block.state.BlockState;
+import net.minecraft.world.level.chunk.LevelChunk;
+import net.minecraft.world.level.chunk.LevelChunkSection;
+import net.minecraft.world.level.chunk.PalettedContainer;
+
+import javax.annotation.Nullable;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.Predicate;
+
+/**
+ * 区块分段方块计数器 (Section Block Counter)
+ * <p>
+ * 职责：
+ * 统计搜索范围内某类方块的总数，并找出数量最多的分段 (最密集的矿脉方向)。
+ * <p>
+ * 计数方式：
+ * 1. 纯空气分段、调色板中不可能含有目标状态的分段整段跳过。
+ * 2. 完全落在搜索盒内的分段，直接用调色板计数 (PalettedContainer.count)，不逐格读取方块。
+ * 3. 只有被搜索盒边界切开、且调色板确实含有目标的分段，才逐格统计被切中的部分。
+ * <p>
+ * 与 {@link SectionBlockScanner} 一样可中断：以区块列为单位推进，可通过 {@link #run(long)} 按时间预算分多个 Tick 完成；
+ * 也可以用 {@link #capture} 在主线程复制候选分段，之后在工作线程上 {@link Snapshot#count()}；
+ * 候选分段超过上限时放弃采集，由调用方改用分时计数。
+ */
+public class SectionBlockCounter {
+
+    /**
+     * 计数结果
+     *
+     * @param total        范围内的总数
+     * @param densest      最密集分段 (裁剪到搜索盒内) 的中心，total 为 0 时为 null
+     * @param densestCount 最密集分段中的数量
+     */
+    public record DensityResult(int total, @Nullable BlockPos densest, int densestCount) {}
+
+    /**
+     * 候选分段 (已裁剪到搜索盒内)
+     */
+    private record Region(PalettedContainer<BlockState> states, int x0, int x1, int y0, int y1, int z0, int z1) {}
+
+    private final ServerLevel level;
+    private final Predicate<BlockState> matcher;
+
+    // 搜索盒 (方块坐标，闭区间)
+    private final int minX, maxX, minY, maxY, minZ, maxZ;
+    // 搜索盒 (区块/分段坐标，闭区间)
+    private final int minChunkX, minChunkZ, chunksZ, minSecY, maxSecY;
+    private final int columns;
+
+    // 扫描进度 (下一个要处理的区块列)
+    private int cursor = 0;
+
+    private final Tally tally = new Tally();
+
+    /**
+     * @param matcher 方块状态匹配器 (会同时用于调色板预判，必须是无副作用的纯函数)
+     */
+    public SectionBlockCounter(ServerLevel level, BlockPos origin, int rangeH, int rangeV, Predicate<BlockState> matcher) {
+        this.level = level;
+        this.matcher = matcher;
+
+        this.minX = origin.getX() - rangeH;
+        this.maxX = origin.getX() + rangeH;
+        this.minZ = origin.getZ() - rangeH;
+        this.maxZ = origin.getZ() + rangeH;
+        this.minY = Math.max(level.getMinBuildHeight(), origin.getY() - rangeV);
+        this.maxY = Math.min(level.getMaxBuildHeight() - 1, origin.getY() + rangeV);
+
+        this.minChunkX = SectionPos.blockToSectionCoord(minX);
+        this.minChunkZ = SectionPos.blockToSectionCoord(minZ);
+        this.chunksZ = SectionPos.blockToSectionCoord(maxZ) - minChunkZ + 1;
+        this.minSecY = SectionPos.blockToSectionCoord(minY);
+        this.maxSecY = SectionPos.blockToSectionCoord(maxY);
+
+        int chunksX = SectionPos.blockToSectionCoord(maxX) - minChunkX + 1;
+        this.columns = minY > maxY ? 0 : chunksX * chunksZ;
+    }
+
+    /**
+     * 便捷入口：一次性统计整个范围
+     *
+     * @param matcher 方块状态匹配器 (会同时用于调色板预判，必须是无副作用的纯函数)
+     */
+    public static DensityResult count(ServerLevel level, BlockPos origin, int rangeH, int rangeV, Predicate<BlockState> matcher) {
+        SectionBlockCounter counter = new SectionBlockCounter(level, origin, rangeH, rangeV, matcher);
+        while (counter.step()) {
+            // 逐列推进
+        }
+        return counter.getResult();
+    }
+
+    /**
+     * 在时间预算内推进计数 (分时扫描用)
+     * <p>
+     * 至少推进一个区块列，然后在每列之后检查是否超时；超时则保留进度，下次调用时从断点继续。
+     *
+     * @param deadlineNanos 截止时刻 ({@link System#nanoTime()} 时基)
+     * @return true 表示还有剩余工作；false 表示计数已结束
+     */
+    public boolean run(long deadlineNanos) {
+        while (step()) {
+            if (System.nanoTime() - deadlineNanos >= 0) {
+                return cursor < columns;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * 推进一个区块列
+     *
+     * @return true 表示还有剩余工作；false 表示计数已结束
+     */
+    public boolean step() {
+        if (cursor >= columns) return false;
+
+        int cx = minChunkX + cursor / chunksZ;
+        int cz = minChunkZ + cursor % chunksZ;
+        cursor++;
+
+        forEachCandidate(cx, cz, (section, x0, x1, y0, y1, z0, z1) ->
+                tally.add(countRegion(section.getStates(), matcher, x0, x1, y0, y1, z0, z1), x0, x1, y0, y1, z0, z1));
+        return cursor < columns;
+    }
+
+    public DensityResult getResult() {
+        return tally.result();
+    }
+
+    /**
+     * 采集快照 (必须在服务端主线程调用)
+     * <p>
+     * 只复制调色板可能命中的分段 (PalettedContainer.copy)，剪枝规则与分时计数一致。
+     *
+     * @param matcher     方块状态匹配器 (会在工作线程上调用，必须是无副作用的纯函数)
+     * @param maxSections 最多复制的分段数
+     * @return 快照；候选分段超过 maxSections 时返回 null (此时不会复制任何分段)
+     */
+    @Nullable
+    public static Snapshot capture(ServerLevel level, BlockPos origin, int rangeH, int rangeV,
+                                   Predicate<BlockState> matcher, int maxSections) {
+        SectionBlockCounter counter = new SectionBlockCounter(level, origin, rangeH, rangeV, matcher);
+        List<Region> regions = new ArrayList<>();
+        for (int i = 0; i < counter.columns; i++) {
+            int cx = counter.minChunkX + i / counter.chunksZ;
+            int cz = counter.minChunkZ + i % counter.chunksZ;
+            // 先记下实时容器，确认数量不超限后再统一复制
+            counter.forEachCandidate(cx, cz, (section, x0, x1, y0, y1, z0, z1) ->
+                    regions.add(new Region(section.getStates(), x0, x1, y0, y1, z0, z1)));
+            if (regions.size() > maxSections) return null;
+        }
+
+        regions.replaceAll(r -> new Region(r.states.copy(), r.x0, r.x1, r.y0, r.y1, r.z0, r.z1));
+        return new Snapshot(matcher, regions);
+    }
+
+    /**
+     * 分段快照上的计数 (只读取私有副本，可在任意线程调用)
+     */
+    public static final class Snapshot {
+
+        private final Predicate<BlockState> matcher;
+        private final List<Region> regions;
+
+        private Snapshot(Predicate<BlockState> matcher, List<Region> regions) {
+            this.matcher = matcher;
+            this.regions = regions;
+        }
+
+        public DensityResult count() {
+            Tally tally = new Tally();
+            for (Region r : regions) {
+                tally.add(countRegion(r.states, matcher, r.x0, r.x1, r.y0, r.y1, r.z0, r.z1), r.x0, r.x1, r.y0, r.y1, r.z0, r.z1);
+            }
+            return tally.result();
+        }
+    }
+
+    // ==================================================
+    //                 分段计数
+    // ==================================================
+
+    @FunctionalInterface
+    private interface RegionConsumer {
+        void accept(LevelChunkSection section, int x0, int x1, int y0, int y1, int z0, int z1);
+    }
+
+    /**
+     * 遍历一个区块列中可能命中的分段 (已裁剪到搜索盒内)
+     */
+    private void forEachCandidate(int cx, int cz, RegionConsumer consumer) {
+        // 只取已加载的区块 (getChunkNow 不会触发加载)
+        LevelChunk chunk = level.getChunkSource().getChunkNow(cx, cz);
+        if (chunk == null) return;
+
+        int x0 = Math.max(minX, SectionPos.sectionToBlockCoord(cx));
+        int x1 = Math.min(maxX, SectionPos.sectionToBlockCoord(cx) + 15);
+        int z0 = Math.max(minZ, SectionPos.sectionToBlockCoord(cz));
+        int z1 = Math.min(maxZ, SectionPos.sectionToBlockCoord(cz) + 15);
+
+        LevelChunkSection[] sections = chunk.getSections();
+        for (int sy = minSecY; sy <= maxSecY; sy++) {
+            int index = level.getSectionIndexFromSectionY(sy);
+            if (index < 0 || index >= sections.length) continue;
+
+            LevelChunkSection section = sections[index];
+            if (section == null || section.hasOnlyAir() || !section.maybeHas(matcher)) continue;
+
+            int y0 = Math.max(minY, SectionPos.sectionToBlockCoord(sy));
+            int y1 = Math.min(maxY, SectionPos.sectionToBlockCoord(sy) + 15);
+            consumer.accept(section, x0, x1, y0, y1, z0, z1);
+        }
+    }
+
+    private static int countRegion(PalettedContainer<BlockState> states, Predicate<BlockState> matcher,
+                                   int x0, int x1, int y0, int y1, int z0, int z1) {
+        if (x1 - x0 == 15 && y1 - y0 == 15 && z1 - z0 == 15) {
+            // ★★★ 整段在范围内：调色板计数，不逐格读取 ★★★
+            int[] counter = new int[1];
+            states.count((state, n) -> {
+                if (matcher.test(state)) counter[0] += n;
+            });
+            return counter[0];
+        }
+
+        // 被搜索盒切开的分段：逐格统计被切中的部分
+        int count = 0;
+        for (int y = y0; y <= y1; y++) {
+            for (int z = z0; z <= z1; z++) {
+                for (int x = x0; x <= x1; x++) {
+                    if (matcher.test(states.get(x & 15, y & 15, z & 15))) count++;
+                }
+            }
+        }
+        return count;
+    }
+
+    /**
+     * 累计总数与最密集分段
+     */
+    private static final class Tally {
+        private int total;
+        private int densestCount;
+        @Nullable
+        private BlockPos densest;
+
+        void add(int count, int x0, int x1, int y0, int y1, int z0, int z1) {
+            if (count == 0) return;
+            total += count;
+            if (count > densestCount) {
+                densestCount = count;
+                densest = new BlockPos((x0 + x1) / 2, (y0 + y1) / 2, (z0 + z1) / 2);
+            }
+        }
+
+        DensityResult result() {
+            return new DensityResult(total, densest, densestCount);
+        }
+    }
+}
@@ -0,0 +1,439 @@
+package com.lotm.lotm.content.logic.seer.divination.search;
+
+import it.unimi.dsi.fastutil.longs.LongArrayList;
+import net.minecraft.core.BlockPos;
+import net.minecraft.core.SectionPos;
+import net.minecraft.server.level.ServerLevel;
+import net.minecraft.world.level.block.state.BlockState;
+import net.minecraft.world.level.chunk.LevelChunk;
+import net.minecraft.world.level.chunk.LevelChunkSection;
+import net.minecraft.world.level.levelgen.structure.BoundingBox;
+
+import javax.annotation.Nullable;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.function.Predicate;
+
+/**
+ * 区块分段方块扫描器 (Section Block Scanner)
+ * <p>
+ * 职责：
+ * 1. 以 16x16x16 的区块分段 (LevelChunkSection) 为单位遍历搜索范围，而不是逐坐标调用 level.getBlockState。
+ * 2. 每个区块列只获取一次 {@link LevelChunk}，未加载的区块直接跳过 (绝不触发区块加载)。
+ * 3. 调色板预判 (Palette Check)：纯空气分段、调色板中不可能含有目标状态的分段整段跳过。
+ * 4. 只有“可能命中”的分段才逐格扫描其中的方块。
+ * <p>
+ * 搜索顺序 (由近及远)：
+ * - 以玩家所在区块为中心，按切比雪夫距离一圈一圈向外扩展 (Ring)。
+ * - 每一圈内的分段按“理论最近距离”排序后依次扫描；分段内部按离中心由近到远的层/行扫描。
+ * - 一旦剩余未扫描区域的理论最近距离都不可能优于当前结果，立即终止。
+ * <p>
+ * 距离语义与旧版逐格扫描完全一致：以 origin 为中心的整数方块距离平方。
+ * <p>
+ * 扫描器是可中断的：既可以 {@link #run()} 一次跑完，也可以通过 {@link #run(long)} 按时间预算分多个 Tick 推进，
+ * 中途随时可以通过 {@link #getResult()} 取得“目前为止最近”的结果。
+ */
+public class SectionBlockScanner {
+
+    private final ServerLevel level;
+    private final Predicate<BlockState> matcher;
+
+    // 搜索中心
+    private final int ox, oy, oz;
+    private final int originChunkX, originChunkZ;
+
+    // 搜索盒 (方块坐标，闭区间)
+    private final int minX, maxX, minY, maxY, minZ, maxZ;
+    // 搜索盒 (区块/分段坐标，闭区间)
+    private final int minChunkX, maxChunkX, minChunkZ, maxChunkZ, minSecY, maxSecY;
+    private final int maxRing;
+
+    // 扫描进度
+    private int ring = 0;
+    private final List<SectionCandidate> ringQueue = new ArrayList<>();
+    private int ringCursor = 0;
+    private boolean finished;
+
+    // 当前最优结果
+    private long bestDistSqr = Long.MAX_VALUE;
+    private int bestX, bestY, bestZ;
+
+    // 收集模式：记录范围内所有命中 (不做距离剪枝)，超过上限即终止
+    @Nullable
+    private final LongArrayList collected;
+    private final int maxCollected;
+    private boolean overflowed;
+    // 收集模式：已确认不含目标、无需再读的区域 (来自被升级的独占扫描)
+    @Nullable
+    private final BoundingBox knownEmpty;
+
+    /**
+     * 待扫描的分段 (已裁剪到搜索盒内)
+     */
+    private record SectionCandidate(LevelChunkSection section,
+                                    int x0, int x1, int y0, int y1, int z0, int z1,
+                                    long minDistSqr) {}
+
+    /**
+     * @param level   服务端世界
+     * @param origin  搜索中心
+     * @param rangeH  水平半径
+     * @param rangeV  垂直半径
+     * @param matcher 方块状态匹配器 (会同时用于调色板预判，必须是无副作用的纯函数)
+     */
+    public SectionBlockScanner(ServerLevel level, BlockPos origin, int rangeH, int rangeV, Predicate<BlockState> matcher) {
+        this(level, origin, rangeH, rangeV, matcher, -1, null);
+    }
+
+    private SectionBlockScanner(ServerLevel level, BlockPos origin, int rangeH, int rangeV, Predicate<BlockState> matcher,
+                                int maxCollected, @Nullable BoundingBox knownEmpty) {
+        this.level = level;
+        this.matcher = matcher;
+        this.collected = maxCollected >= 0 ? new LongArrayList() : null;
+        this.maxCollected = maxCollected;
+        this.knownEmpty = knownEmpty;
+
+        this.ox = origin.getX();
+        this.oy = origin.getY();
+        this.oz = origin.getZ();
+        this.originChunkX = SectionPos.blockToSectionCoord(ox);
+        this.originChunkZ = SectionPos.blockToSectionCoord(oz);
+
+        // 垂直方向裁剪到世界高度内
+        this.minX = ox - rangeH;
+        this.maxX = ox + rangeH;
+        this.minZ = oz - rangeH;
+        this.maxZ = oz + rangeH;
+        this.minY = Math.max(level.getMinBuildHeight(), oy - rangeV);
+        this.maxY = Math.min(level.getMaxBuildHeight() - 1, oy + rangeV);
+
+        this.minChunkX = SectionPos.blockToSectionCoord(minX);
+        this.maxChunkX = SectionPos.blockToSectionCoord(maxX);
+        this.minChunkZ = SectionPos.blockToSectionCoord(minZ);
+        this.maxChunkZ = SectionPos.blockToSectionCoord(maxZ);
+        this.minSecY = SectionPos.blockToSectionCoord(minY);
+        this.maxSecY = SectionPos.blockToSectionCoord(maxY);
+
+        this.maxRing = Math.max(
+                Math.max(originChunkX - minChunkX, maxChunkX - originChunkX),
+                Math.max(originChunkZ - minChunkZ, maxChunkZ - originChunkZ));
+
+        this.finished = minY > maxY;
+    }
+
+    /**
+     * 创建收集模式的扫描器：不找最近，而是记录范围内所有命中 (用于多人共享同一次扫描)
+     * <p>
+     * 命中数超过 maxHits 时立即终止并标记为溢出 (目标过于常见，共享列表已无意义)。
+     *
+     * @param knownEmpty 已确认不含目标的区域 (见 {@link #getScannedEmptyBox()})，其中的方块不再读取；可为 null
+     */
+    public static SectionBlockScanner collecting(ServerLevel level, BlockPos origin, int rangeH, int rangeV,
+                                                 Predicate<BlockState> matcher, int maxHits, @Nullable BoundingBox knownEmpty) {
+        return new SectionBlockScanner(level, origin, rangeH, rangeV, matcher, maxHits, knownEmpty);
+    }
+
+    /**
+     * 便捷入口：一次性跑完整个搜索
+     *
+     * @return 最近的匹配坐标，找不到返回 null
+     */
+    @Nullable
+    public static BlockPos findNearest(ServerLevel level, BlockPos origin, int rangeH, int rangeV, Predicate<BlockState> matcher) {
+        SectionBlockScanner scanner = new SectionBlockScanner(level, origin, rangeH, rangeV, matcher);
+        scanner.run();
+        return scanner.getResult();
+    }
+
+    /**
+     * 持续扫描直到终止条件成立
+     */
+    public void run() {
+        while (step()) {
+            // 逐段推进
+        }
+    }
+
+    /**
+     * 在时间预算内推进扫描 (分时扫描用)
+     * <p>
+     * 至少推进一个分段，然后在每个分段之后检查是否超时；超时则保留进度，下次调用时从断点继续。
+     *
+     * @param deadlineNanos 截止时刻 ({@link System#nanoTime()} 时基)
+     * @return true 表示还有剩余工作；false 表示搜索已结束
+     */
+    public boolean run(long deadlineNanos) {
+        while (step()) {
+            if (System.nanoTime() - deadlineNanos >= 0) {
+                return !finished;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * 推进一个分段
+     *
+     * @return true 表示还有剩余工作；false 表示搜索已结束
+     */
+    public boolean step() {
+        if (finished) return false;
+
+        // 1. 当前圈已扫完 -> 准备下一圈
+        while (ringCursor >= ringQueue.size()) {
+            if (ring > maxRing || ringLowerBound(ring) >= bestDistSqr) {
+                // 剩余的圈理论上都不可能更近，提前终止
+                finished = true;
+                ringQueue.clear();
+                return false;
+            }
+            prepareRing(ring++);
+        }
+
+        // 2. 圈内按理论距离升序处理；排在后面的只会更远
+        SectionCandidate candidate = ringQueue.get(ringCursor++);
+        if (candidate.minDistSqr >= bestDistSqr) {
+            ringCursor = ringQueue.size();
+            return true;
+        }
+
+        // ★★★ 调色板预判：调色板里根本没有目标状态，则整段 4096 格都不用看 ★★★
+        if (candidate.section.maybeHas(matcher)) {
+            scanSection(candidate);
+        }
+        return true;
+    }
+
+    public boolean isFinished() {
+        return finished;
+    }
+
+    /**
+     * 收集模式下的全部命中 (打包的 BlockPos long)；非收集模式返回 null
+     */
+    @Nullable
+    public LongArrayList getCollected() {
+        return collected;
+    }
+
+    public boolean isOverflowed() {
+        return overflowed;
+    }
+
+    public boolean hasResult() {
+        return bestDistSqr != Long.MAX_VALUE;
+    }
+
+    @Nullable
+    public BlockPos getResult() {
+        return hasResult() ? new BlockPos(bestX, bestY, bestZ) : null;
+    }
+
+    /**
+     * 已确认不含目标的区域 (独占扫描升级为共享扫描时，用于跳过已经扫过的部分)
+     * <p>
+     * 尚未找到任何命中时不会发生距离剪枝，因此已经完整扫完的圈层 (裁剪到搜索盒内) 必然不含目标。
+     *
+     * @return 空区域；收集模式、已有命中或还没有扫完任何一圈时返回 null
+     */
+    @Nullable
+    public BoundingBox getScannedEmptyBox() {
+        if (collected != null || hasResult() || minY > maxY) return null;
+
+        int done = finished ? maxRing + 1 : (ringCursor >= ringQueue.size() ? ring : ring - 1);
+        if (done <= 0) return null;
+
+        int r = done - 1;
+        return new BoundingBox(
+                Math.max(minX, SectionPos.sectionToBlockCoord(originChunkX - r)), minY,
+                Math.max(minZ, SectionPos.sectionToBlockCoord(originChunkZ - r)),
+                Math.min(maxX, SectionPos.sectionToBlockCoord(originChunkX + r) + 15), maxY,
+                Math.min(maxZ, SectionPos.sectionToBlockCoord(originChunkZ + r) + 15));
+    }
+
+    // ==================================================
+    //                 圈层构建
+    // ==================================================
+
+    /**
+     * 收集第 r 圈内所有可能命中的分段，并按理论最近距离排序
+     */
+    private void prepareRing(int r) {
+        ringQueue.clear();
+        ringCursor = 0;
+
+        for (int cx = originChunkX - r; cx <= originChunkX + r; cx++) {
+            if (cx < minChunkX || cx > maxChunkX) continue;
+
+            // 圈的上下两条边取整行，中间只取左右两端
+            boolean edgeRow = cx == originChunkX - r || cx == originChunkX + r;
+            int step = edgeRow || r == 0 ? 1 : 2 * r;
+
+            for (int cz = originChunkZ - r; cz <= originChunkZ + r; cz += step) {
+                if (cz < minChunkZ || cz > maxChunkZ) continue;
+                collectColumn(cx, cz);
+            }
+        }
+
+        ringQueue.sort(Comparator.comparingLong(SectionCandidate::minDistSqr));
+    }
+
+    private void collectColumn(int cx, int cz) {
+        int x0 = Math.max(minX, SectionPos.sectionToBlockCoord(cx));
+        int x1 = Math.min(maxX, SectionPos.sectionToBlockCoord(cx) + 15);
+        int z0 = Math.max(minZ, SectionPos.sectionToBlockCoord(cz));
+        int z1 = Math.min(maxZ, SectionPos.sectionToBlockCoord(cz) + 15);
+        long dxMin = axisDistance(ox, x0, x1);
+        long dzMin = axisDistance(oz, z0, z1);
+
+        // 整列距离剪枝：该列最近的点都不可能比当前结果更近
+        if (dxMin * dxMin + dzMin * dzMin >= bestDistSqr) return;
+
+        // ★★★ 每列只取一次区块，且只取已加载的 (getChunkNow 不会触发加载) ★★★
+        LevelChunk chunk = level.getChunkSource().getChunkNow(cx, cz);
+        if (chunk == null) return;
+
+        LevelChunkSection[] sections = chunk.getSections();
+
+        for (int sy = minSecY; sy <= maxSecY; sy++) {
+            int index = level.getSectionIndexFromSectionY(sy);
+            if (index < 0 || index >= sections.length) continue;
+
+            LevelChunkSection section = sections[index];
+            if (section == null || section.hasOnlyAir()) continue;
+
+            int y0 = Math.max(minY, SectionPos.sectionToBlockCoord(sy));
+            int y1 = Math.min(maxY, SectionPos.sectionToBlockCoord(sy) + 15);
+            if (isKnownEmpty(x0, x1, y0, y1, z0, z1)) continue;
+            long dyMin = axisDistance(oy, y0, y1);
+
+            ringQueue.add(new SectionCandidate(section, x0, x1, y0, y1, z0, z1,
+                    dxMin * dxMin + dyMin * dyMin + dzMin * dzMin));
+        }
+    }
+
+    /**
+     * 第 r 圈任意一点到中心的理论最小水平距离平方
+     */
+    private long ringLowerBound(int r) {
+        if (r == 0) return 0;
+        long best = Long.MAX_VALUE;
+        best = Math.min(best, chunkAxisDistance(ox, originChunkX - r));
+        best = Math.min(best, chunkAxisDistance(ox, originChunkX + r));
+        best = Math.min(best, chunkAxisDistance(oz, originChunkZ - r));
+        best = Math.min(best, chunkAxisDistance(oz, originChunkZ + r));
+        return best * best;
+    }
+
+    private static long chunkAxisDistance(int v, int chunk) {
+        int lo = SectionPos.sectionToBlockCoord(chunk);
+        return axisDistance(v, lo, lo + 15);
+    }
+
+    // ==================================================
+    //                 分段内扫描
+    // ==================================================
+
+    /**
+     * 分段内部由近及远扫描
+     * <p>
+     * Y 层与 Z 行都从离中心最近的一层/一行开始向两侧展开，
+     * 一旦某层/某行的理论最近距离超过当前结果，即可整层/整行跳过。
+     */
+    private void scanSection(SectionCandidate c) {
+        LevelChunkSection section = c.section;
+        int cy = clamp(oy, c.y0, c.y1);
+        int cz = clamp(oz, c.z0, c.z1);
+        long dxMin = axisDistance(ox, c.x0, c.x1);
+        long dyBase = Math.abs(cy - oy);
+        long dzBase = Math.abs(cz - oz);
+
+        for (int ys = 0; ; ys++) {
+            long dyMin = dyBase + ys;
+            if (dyMin * dyMin + dxMin * dxMin >= bestDistSqr) return;
+
+            boolean anyLayer = false;
+            for (int ySign = 0; ySign < 2; ySign++) {
+                if (ys == 0 && ySign == 1) break;
+                int y = ySign == 0 ? cy - ys : cy + ys;
+                if (y < c.y0 || y > c.y1) continue;
+                anyLayer = true;
+                long dy = y - oy;
+
+                for (int zs = 0; ; zs++) {
+                    long dzMin = dzBase + zs;
+                    if (dy * dy + dzMin * dzMin + dxMin * dxMin >= bestDistSqr) break;
+
+                    boolean anyRow = false;
+                    for (int zSign = 0; zSign < 2; zSign++) {
+                        if (zs == 0 && zSign == 1) break;
+                        int z = zSign == 0 ? cz - zs : cz + zs;
+                        if (z < c.z0 || z > c.z1) continue;
+                        anyRow = true;
+                        long dz = z - oz;
+                        long rowBase = dy * dy + dz * dz;
+
+                        // 该行落在已确认为空的区域内的部分不再读取
+                        boolean skipRow = knownEmpty != null
+                                && y >= knownEmpty.minY() && y <= knownEmpty.maxY()
+                                && z >= knownEmpty.minZ() && z <= knownEmpty.maxZ();
+
+                        for (int x = c.x0; x <= c.x1; x++) {
+                            if (skipRow && x >= knownEmpty.minX() && x <= knownEmpty.maxX()) {
+                                x = knownEmpty.maxX();
+                                continue;
+                            }
+                            long dx = x - ox;
+                            long distSqr = rowBase + dx * dx;
+                            if (distSqr >= bestDistSqr) continue;
+
+                            BlockState state = section.getBlockState(x & 15, y & 15, z & 15);
+                            if (!matcher.test(state)) continue;
+
+                            if (collected != null) {
+                                // 收集模式不更新最优结果，因此不会触发任何距离剪枝
+                                collected.add(BlockPos.asLong(x, y, z));
+                                if (collected.size() > maxCollected) {
+                                    overflowed = true;
+                                    finished = true;
+                                    return;
+                                }
+                            } else {
+                                bestDistSqr = distSqr;
+                                bestX = x;
+                                bestY = y;
+                                bestZ = z;
+                            }
+                        }
+                    }
+                    if (!anyRow) break;
+                }
+            }
+            if (!anyLayer) return;
+        }
+    }
+
+    /**
+     * 分段区域是否整块落在已确认为空的区域内
+     */
+    private boolean isKnownEmpty(int x0, int x1, int y0, int y1, int z0, int z1) {
+        return knownEmpty != null
+                && x0 >= knownEmpty.minX() && x1 <= knownEmpty.maxX()
+                && y0 >= knownEmpty.minY() && y1 <= knownEmpty.maxY()
+                && z0 >= knownEmpty.minZ() && z1 <= knownEmpty.maxZ();
+    }
+
+    /**
+     * 计算坐标 v 到闭区间 [lo, hi] 的最短轴向距离
+     */
+    static long axisDistance(int v, int lo, int hi) {
+        if (v < lo) return lo - v;
+        if (v > hi) return v - hi;
+        return 0;
+    }
+
+    private static int clamp(int v, int lo, int hi) {
+        return v < lo ? lo : Math.min(v, hi);
+    }
+}
@@ -0,0 +1,177 @@
+package com.lotm.lotm.content.logic.seer.divination.search;
+
+import it.unimi.dsi.fastutil.longs.LongArrayList;
+import net.minecraft.core.BlockPos;
+import net.minecraft.core.SectionPos;
+import net.minecraft.server.level.ServerLevel;
+import net.minecraft.world.level.block.state.BlockState;
+import net.minecraft.world.level.chunk.LevelChunk;
+import net.minecraft.world.level.chunk.LevelChunkSection;
+import net.minecraft.world.level.chunk.PalettedContainer;
+
+import javax.annotation.Nullable;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.function.Predicate;
+
+/**
+ * 快照方块搜索 (Snapshot Block Search)
+ * <p>
+ * 职责：
+ * 1. 在服务端主线程上调用 {@link #capture}，把搜索范围内“调色板可能命中”的分段复制一份 (PalettedContainer.copy)。
+ * 2. 之后的 {@link #run()} 只读取这些私有副本，可以安全地在工作线程上执行，不再接触 Level。
+ * <p>
+ * 采集阶段与 {@link SectionBlockScanner} 共用同样的剪枝：未加载区块、纯空气分段、调色板不含目标的分段都不会被复制，
+ * 因此主线程上的开销只与“真正可能有目标”的分段数量成正比。
+ * 可能命中的分段超过上限 (目标过于常见) 时放弃采集，由调用方改用分时扫描，避免在一个 Tick 内复制上万个分段。
+ * <p>
+ * 距离语义与 {@link SectionBlockScanner} 一致：以 origin 为中心的整数方块距离平方。
+ */
+public class SnapshotBlockSearch {
+
+    private final Predicate<BlockState> matcher;
+    private final int ox, oy, oz;
+    private final List<SectionSnapshot> sections;
+
+    /**
+     * 分段快照 (已裁剪到搜索盒内)
+     */
+    private record SectionSnapshot(PalettedContainer<BlockState> states,
+                                   int x0, int x1, int y0, int y1, int z0, int z1,
+                                   long minDistSqr) {}
+
+    private SnapshotBlockSearch(Predicate<BlockState> matcher, BlockPos origin, List<SectionSnapshot> sections) {
+        this.matcher = matcher;
+        this.ox = origin.getX();
+        this.oy = origin.getY();
+        this.oz = origin.getZ();
+        this.sections = sections;
+    }
+
+    /**
+     * 采集快照 (必须在服务端主线程调用)
+     *
+     * @param matcher     方块状态匹配器 (会在工作线程上调用，必须是无副作用的纯函数)
+     * @param maxSections 最多复制的分段数
+     * @return 快照；可能命中的分段超过 maxSections 时返回 null (此时不会复制任何分段)
+     */
+    @Nullable
+    public static SnapshotBlockSearch capture(ServerLevel level, BlockPos origin, int rangeH, int rangeV,
+                                              Predicate<BlockState> matcher, int maxSections) {
+        int ox = origin.getX(), oy = origin.getY(), oz = origin.getZ();
+        int minX = ox - rangeH, maxX = ox + rangeH;
+        int minZ = oz - rangeH, maxZ = oz + rangeH;
+        int minY = Math.max(level.getMinBuildHeight(), oy - rangeV);
+        int maxY = Math.min(level.getMaxBuildHeight() - 1, oy + rangeV);
+
+        List<SectionSnapshot> sections = new ArrayList<>();
+        if (minY > maxY) return new SnapshotBlockSearch(matcher, origin, sections);
+
+        int minSecY = SectionPos.blockToSectionCoord(minY), maxSecY = SectionPos.blockToSectionCoord(maxY);
+
+        for (int cx = SectionPos.blockToSectionCoord(minX); cx <= SectionPos.blockToSectionCoord(maxX); cx++) {
+            int x0 = Math.max(minX, SectionPos.sectionToBlockCoord(cx));
+            int x1 = Math.min(maxX, SectionPos.sectionToBlockCoord(cx) + 15);
+            long dxMin = SectionBlockScanner.axisDistance(ox, x0, x1);
+
+            for (int cz = SectionPos.blockToSectionCoord(minZ); cz <= SectionPos.blockToSectionCoord(maxZ); cz++) {
+                // 只取已加载的区块 (getChunkNow 不会触发加载)
+                LevelChunk chunk = level.getChunkSource().getChunkNow(cx, cz);
+                if (chunk == null) continue;
+
+                int z0 = Math.max(minZ, SectionPos.sectionToBlockCoord(cz));
+                int z1 = Math.min(maxZ, SectionPos.sectionToBlockCoord(cz) + 15);
+                long dzMin = SectionBlockScanner.axisDistance(oz, z0, z1);
+
+                LevelChunkSection[] chunkSections = chunk.getSections();
+                for (int sy = minSecY; sy <= maxSecY; sy++) {
+                    int index = level.getSectionIndexFromSectionY(sy);
+                    if (index < 0 || index >= chunkSections.length) continue;
+
+                    LevelChunkSection section = chunkSections[index];
+                    if (section == null || section.hasOnlyAir() || !section.maybeHas(matcher)) continue;
+                    // 超过上限：还没有复制任何分段，直接放弃
+                    if (sections.size() >= maxSections) return null;
+
+                    int y0 = Math.max(minY, SectionPos.sectionToBlockCoord(sy));
+                    int y1 = Math.min(maxY, SectionPos.sectionToBlockCoord(sy) + 15);
+                    long dyMin = SectionBlockScanner.axisDistance(oy, y0, y1);
+
+                    // 先记下实时容器，确认数量不超限后再统一复制
+                    sections.add(new SectionSnapshot(section.getStates(), x0, x1, y0, y1, z0, z1,
+                            dxMin * dxMin + dyMin * dyMin + dzMin * dzMin));
+                }
+            }
+        }
+
+        sections.replaceAll(s -> new SectionSnapshot(s.states.copy(), s.x0, s.x1, s.y0, s.y1, s.z0, s.z1, s.minDistSqr));
+        return new SnapshotBlockSearch(matcher, origin, sections);
+    }
+
+    /**
+     * 在快照上查找最近的匹配坐标 (可在任意线程调用)
+     *
+     * @return 最近的匹配坐标，找不到返回 null
+     */
+    @Nullable
+    public BlockPos run() {
+        sections.sort(Comparator.comparingLong(SectionSnapshot::minDistSqr));
+
+        long bestDistSqr = Long.MAX_VALUE;
+        int bestX = 0, bestY = 0, bestZ = 0;
+
+        for (SectionSnapshot s : sections) {
+            // 排在后面的分段只会更远
+            if (s.minDistSqr >= bestDistSqr) break;
+
+            for (int y = s.y0; y <= s.y1; y++) {
+                long dy = y - oy;
+                for (int z = s.z0; z <= s.z1; z++) {
+                    long dz = z - oz;
+                    long rowBase = dy * dy + dz * dz;
+                    if (rowBase >= bestDistSqr) continue;
+
+                    for (int x = s.x0; x <= s.x1; x++) {
+                        long dx = x - ox;
+                        long distSqr = rowBase + dx * dx;
+                        if (distSqr >= bestDistSqr) continue;
+
+                        if (matcher.test(s.states.get(x & 15, y & 15, z & 15))) {
+                            bestDistSqr = distSqr;
+                            bestX = x;
+                            bestY = y;
+                            bestZ = z;
+                        }
+                    }
+                }
+            }
+        }
+        return bestDistSqr != Long.MAX_VALUE ? new BlockPos(bestX, bestY, bestZ) : null;
+    }
+
+    /**
+     * 在快照上收集所有匹配坐标 (可在任意线程调用，用于多人共享同一次扫描)
+     *
+     * @param maxHits 命中上限
+     * @return 所有命中 (打包的 BlockPos long)；超过上限时返回 null
+     */
+    @Nullable
+    public LongArrayList collectAll(int maxHits) {
+        LongArrayList hits = new LongArrayList();
+
+        for (SectionSnapshot s : sections) {
+            for (int y = s.y0; y <= s.y1; y++) {
+                for (int z = s.z0; z <= s.z1; z++) {
+                    for (int x = s.x0; x <= s.x1; x++) {
+                        if (matcher.test(s.states.get(x & 15, y & 15, z & 15))) {
+                            hits.add(BlockPos.asLong(x, y, z));
+                            if (hits.size() > maxHits) return null;
+                        }
+                    }
+                }
+            }
+        }
+        return hits;
+    }
+}
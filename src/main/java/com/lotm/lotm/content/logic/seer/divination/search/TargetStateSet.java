@@ -0,0 +1,94 @@
+package com.lotm.lotm.content.logic.seer.divination.search;
+
+import com.lotm.lotm.LotMMod;
+import it.unimi.dsi.fastutil.objects.ReferenceOpenHashSet;
+import net.minecraft.tags.TagKey;
+import net.minecraft.world.level.block.Block;
+import net.minecraft.world.level.block.Blocks;
+import net.minecraft.world.level.block.state.BlockState;
+import net.minecraftforge.event.TagsUpdatedEvent;
+import net.minecraftforge.event.server.ServerStoppedEvent;
+import net.minecraftforge.eventbus.api.SubscribeEvent;
+import net.minecraftforge.fml.common.Mod;
+import net.minecraftforge.registries.ForgeRegistries;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Set;
+import java.util.function.Predicate;
+
+/**
+ * 目标方块状态集合 (Target State Set)
+ * <p>
+ * 职责：
+ * 1. 把一个方块或一个方块标签预先展开成它所有可能的 {@link BlockState}，匹配时只做一次引用哈希查找。
+ * 2. 扫描器对每个候选分段只用这一个集合测试一次 (调色板预判 + 逐格匹配)，
+ *    因此“任意矿石 (#forge:ores)”与“钻石矿”的扫描开销相同，而不是每个标签成员各扫一遍。
+ * 3. 同一目标的集合会被缓存并复用，同一个实例也可直接作为请求合并的键。
+ * <p>
+ * 集合构造后不再修改，可以安全地在工作线程上只读使用；缓存本身只在服务端主线程访问，
+ * 标签重载或服务器停止时清空。
+ */
+@Mod.EventBusSubscriber(modid = LotMMod.MODID)
+public final class TargetStateSet implements Predicate<BlockState> {
+
+    // Key: Block 或 TagKey<Block>
+    private static final Map<Object, TargetStateSet> CACHE = new HashMap<>();
+
+    private final Set<BlockState> states;
+
+    private TargetStateSet(Set<BlockState> states) {
+        this.states = states;
+    }
+
+    /**
+     * 单个方块的所有状态
+     */
+    public static TargetStateSet of(Block block) {
+        return CACHE.computeIfAbsent(block, k -> {
+            Set<BlockState> states = new ReferenceOpenHashSet<>();
+            if (block != Blocks.AIR) states.addAll(block.getStateDefinition().getPossibleStates());
+            return new TargetStateSet(states);
+        });
+    }
+
+    /**
+     * 方块标签所有成员的所有状态
+     */
+    public static TargetStateSet of(TagKey<Block> tag) {
+        return CACHE.computeIfAbsent(tag, k -> {
+            Set<BlockState> states = new ReferenceOpenHashSet<>();
+            var tagManager = ForgeRegistries.BLOCKS.tags();
+            if (tagManager != null) {
+                for (Block block : tagManager.getTag(tag)) {
+                    if (block != Blocks.AIR) states.addAll(block.getStateDefinition().getPossibleStates());
+                }
+            }
+            return new TargetStateSet(states);
+        });
+    }
+
+    @Override
+    public boolean test(BlockState state) {
+        return states.contains(state);
+    }
+
+    /**
+     * 没有任何可匹配的状态 (空标签、空气)
+     */
+    public boolean isEmpty() {
+        return states.isEmpty();
+    }
+
+    @SubscribeEvent
+    public static void onTagsUpdated(TagsUpdatedEvent event) {
+        if (event.getUpdateCause() == TagsUpdatedEvent.UpdateCause.SERVER_DATA_LOAD) {
+            CACHE.clear();
+        }
+    }
+
+    @SubscribeEvent
+    public static void onServerStopped(ServerStoppedEvent event) {
+        CACHE.clear();
+    }
+}
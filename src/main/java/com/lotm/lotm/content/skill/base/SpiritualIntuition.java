@@ -2,8 +2,7 @@ package com.lotm.lotm.content.skill.base;
 
 import com.lotm.lotm.LotMMod;
 import com.lotm.lotm.api.capability.IBeyonderState;
-import com.lotm.lotm.common.network.PacketHandler;
-import com.lotm.lotm.common.network.packet.s2c.S2CIntuitionAlertPacket;
+import com.lotm.lotm.content.logic.base.intuition.IntuitionAlerts;
 import com.lotm.lotm.content.logic.base.intuition.IntuitionLogic;
 import com.lotm.lotm.content.logic.base.intuition.MonsterIntuitionLogic;
 import com.lotm.lotm.content.skill.AbstractSkill;
@@ -20,12 +19,16 @@ import net.minecraft.world.level.Level;
  * 修正记录：
  * 1. 将通用检测频率从 20 ticks (1秒) 调整为 200 ticks (10秒)，解决其他途径（如占卜家）的刷屏问题。
  * 2. 保持怪物途径的分流逻辑，防止双重触发。
+ * 3. 预警改为事件驱动 + 边沿触发 (见 {@link IntuitionAlerts})，周期扫描只用于校准。
  */
 public class SpiritualIntuition extends AbstractSkill {
 
     public static final ResourceLocation ID = new ResourceLocation(LotMMod.MODID, "spiritual_intuition");
     private static final ResourceLocation PATHWAY_MONSTER = new ResourceLocation(LotMMod.MODID, "monster");
 
+    // 通用危险扫描的校准间隔 (Ticks)
+    private static final int RECONCILE_INTERVAL = 400;
+
     public SpiritualIntuition() {
         super(ID, SkillCastType.PASSIVE);
     }
@@ -51,12 +54,10 @@ public class SpiritualIntuition extends AbstractSkill {
         boolean isMonster = isMonsterPathway(player);
 
         // 1. 基础危险感知 (通用逻辑 - 适用于占卜家等其他途径)
-        // ★★★ 核心修复：频率改为 200 ticks (10秒)，与怪物途径保持一致，防止刷屏 ★★★
-        if (!isMonster && player.tickCount % 200 == 0) {
+        // ★★★ 生物锁定 / 攻击玩家时由 IntuitionAlerts 即时推送，这里只做低频校准 (20秒)，且只在等级上升时提示 ★★★
+        if (!isMonster && player.tickCount % RECONCILE_INTERVAL == 0) {
             int dangerLevel = IntuitionLogic.scanForDanger(serverPlayer, state.getSequence(), false);
-            if (dangerLevel > 0) {
-                PacketHandler.sendToPlayer(new S2CIntuitionAlertPacket(dangerLevel), serverPlayer);
-            }
+            IntuitionAlerts.reconcile(serverPlayer, dangerLevel);
         }
 
         // 2. 怪物途径特有逻辑 (专属逻辑)
@@ -0,0 +1,41 @@
+package com.lotm.lotm.mixin.common;
+
+import com.lotm.lotm.util.ThreatEvaluator;
+import net.minecraft.world.entity.ai.attributes.AttributeInstance;
+import net.minecraft.world.entity.ai.attributes.AttributeMap;
+import org.spongepowered.asm.mixin.Mixin;
+import org.spongepowered.asm.mixin.Unique;
+import org.spongepowered.asm.mixin.injection.At;
+import org.spongepowered.asm.mixin.injection.Inject;
+import org.spongepowered.asm.mixin.injection.callback.CallbackInfo;
+
+import javax.annotation.Nullable;
+
+/**
+ * 属性表 Mixin
+ * 职责：在属性表上缓存 {@link ThreatEvaluator} 的威胁等级；
+ * 任何属性的修饰符或基础值变化 (AttributeInstance.setDirty 回调到 onAttributeModified) 时清空缓存。
+ */
+@Mixin(AttributeMap.class)
+public abstract class MixinAttributeMap implements ThreatEvaluator.CachedThreat {
+
+    @Unique
+    @Nullable
+    private ThreatEvaluator.ThreatLevel lotm$threat;
+
+    @Inject(method = "onAttributeModified", at = @At("HEAD"))
+    private void onAttributeModified(AttributeInstance instance, CallbackInfo ci) {
+        this.lotm$threat = null;
+    }
+
+    @Override
+    @Nullable
+    public ThreatEvaluator.ThreatLevel lotm$getThreat() {
+        return lotm$threat;
+    }
+
+    @Override
+    public void lotm$setThreat(@Nullable ThreatEvaluator.ThreatLevel level) {
+        this.lotm$threat = level;
+    }
+}
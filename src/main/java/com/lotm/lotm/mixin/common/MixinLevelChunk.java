@@ -0,0 +1,38 @@
+package com.lotm.lotm.mixin.common;
+
+import com.lotm.lotm.content.logic.seer.divination.search.BlockPositionIndex;
+import com.lotm.lotm.util.LineOfSight;
+import com.lotm.lotm.util.SectionChangeTracker;
+import net.minecraft.core.BlockPos;
+import net.minecraft.world.level.Level;
+import net.minecraft.world.level.block.state.BlockState;
+import net.minecraft.world.level.chunk.LevelChunk;
+import org.spongepowered.asm.mixin.Final;
+import org.spongepowered.asm.mixin.Mixin;
+import org.spongepowered.asm.mixin.Shadow;
+import org.spongepowered.asm.mixin.injection.At;
+import org.spongepowered.asm.mixin.injection.Inject;
+import org.spongepowered.asm.mixin.injection.callback.CallbackInfoReturnable;
+
+/**
+ * 区块方块变化 Mixin
+ * 职责：任何途径 (包括不触发邻居更新的 setBlock) 改变方块后，通知视线引擎丢弃该分段的位图，
+ * 在分段变更记录中登记一次变化 (视线遮挡缓存据此失效)，并增量维护方块坐标索引。
+ */
+@Mixin(LevelChunk.class)
+public abstract class MixinLevelChunk {
+
+    @Shadow @Final Level level;
+
+    /**
+     * setBlockState 返回旧状态；返回 null 表示方块没有变化
+     */
+    @Inject(method = "setBlockState", at = @At("RETURN"))
+    private void onSetBlockState(BlockPos pos, BlockState state, boolean isMoving, CallbackInfoReturnable<BlockState> cir) {
+        if (cir.getReturnValue() != null) {
+            LineOfSight.onBlockChanged(this.level, pos);
+            SectionChangeTracker.markChanged(this.level, pos);
+            BlockPositionIndex.onBlockChanged(this.level, pos, state);
+        }
+    }
+}
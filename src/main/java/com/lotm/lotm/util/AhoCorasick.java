@@ -0,0 +1,121 @@
+package com.lotm.lotm.util;
+
+import it.unimi.dsi.fastutil.chars.Char2IntMap;
+import it.unimi.dsi.fastutil.chars.Char2IntOpenHashMap;
+import it.unimi.dsi.fastutil.ints.IntArrayList;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.IntConsumer;
+
+/**
+ * 多模式字符串匹配自动机 (Aho–Corasick)
+ * <p>
+ * 职责：
+ * 1. 一次性构建所有模式串的字典树、失配指针与输出链接。
+ * 2. 对任意文本只做一次线性扫描，报告其中出现的全部模式 (区分大小写，与 String.contains 一致)，
+ *    开销与模式数量无关。
+ * <p>
+ * 构建后不可变，可在多个线程间共享。
+ */
+public final class AhoCorasick {
+
+    private static final int ROOT = 0;
+
+    private final List<Char2IntOpenHashMap> next = new ArrayList<>();
+    private final IntArrayList output = new IntArrayList(); // 在此结束的模式下标，-1 表示无
+    private int[] fail;
+    private int[] dictLink; // 沿失配链最近的、有输出的节点，-1 表示无
+
+    private AhoCorasick() {
+        newNode();
+    }
+
+    /**
+     * @param patterns 模式串 (下标即匹配时报告的编号；空串会被忽略)
+     */
+    public static AhoCorasick build(List<String> patterns) {
+        AhoCorasick automaton = new AhoCorasick();
+        for (int i = 0; i < patterns.size(); i++) {
+            automaton.insert(patterns.get(i), i);
+        }
+        automaton.link();
+        return automaton;
+    }
+
+    /**
+     * 扫描文本，每出现一次模式即回调一次其编号 (同一模式可能被报告多次)
+     */
+    public void forEachMatch(CharSequence text, IntConsumer onMatch) {
+        int state = ROOT;
+        for (int i = 0; i < text.length(); i++) {
+            char c = text.charAt(i);
+            while (state != ROOT && !next.get(state).containsKey(c)) {
+                state = fail[state];
+            }
+            int child = next.get(state).get(c);
+            state = child < 0 ? ROOT : child;
+
+            for (int node = output.getInt(state) >= 0 ? state : dictLink[state]; node > ROOT; node = dictLink[node]) {
+                onMatch.accept(output.getInt(node));
+            }
+        }
+    }
+
+    private int newNode() {
+        Char2IntOpenHashMap children = new Char2IntOpenHashMap(4);
+        children.defaultReturnValue(-1);
+        next.add(children);
+        output.add(-1);
+        return next.size() - 1;
+    }
+
+    private void insert(String pattern, int index) {
+        if (pattern.isEmpty()) return;
+
+        int node = ROOT;
+        for (int i = 0; i < pattern.length(); i++) {
+            char c = pattern.charAt(i);
+            int child = next.get(node).get(c);
+            if (child < 0) {
+                child = newNode();
+                next.get(node).put(c, child);
+            }
+            node = child;
+        }
+        output.set(node, index);
+    }
+
+    /**
+     * 广度优先计算失配指针与输出链接
+     */
+    private void link() {
+        int size = next.size();
+        fail = new int[size];
+        dictLink = new int[size];
+        dictLink[ROOT] = -1;
+
+        IntArrayList queue = new IntArrayList();
+        queue.add(ROOT);
+        for (int head = 0; head < queue.size(); head++) {
+            int node = queue.getInt(head);
+            for (Char2IntMap.Entry entry : next.get(node).char2IntEntrySet()) {
+                char c = entry.getCharKey();
+                int child = entry.getIntValue();
+
+                int f = ROOT;
+                if (node != ROOT) {
+                    f = fail[node];
+                    while (f != ROOT && !next.get(f).containsKey(c)) {
+                        f = fail[f];
+                    }
+                    int target = next.get(f).get(c);
+                    f = target < 0 ? ROOT : target;
+                }
+                fail[child] = f;
+                dictLink[child] = output.getInt(f) >= 0 ? f : dictLink[f];
+                queue.add(child);
+            }
+        }
+    }
+}
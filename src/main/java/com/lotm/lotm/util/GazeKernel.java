@@ -0,0 +1,240 @@
+package com.lotm.lotm.util;
+
+import net.minecraft.world.phys.AABB;
+import net.minecraft.world.phys.Vec3;
+
+import javax.annotation.Nullable;
+import java.util.Arrays;
+
+/**
+ * 视线几何批量内核 (Gaze Kernel)
+ * <p>
+ * 职责：
+ * 1. 以“结构体数组”形式 (每个分量一个 double[]) 存放多个 (观察者视角, 目标碰撞箱) 配对。
+ * 2. 对整批配对一次性计算三项纯几何结果：距离粗筛、视锥、视线与膨胀碰撞箱的交点距离。
+ *    每项都是独立的计数循环，只有数组读写与四则运算、min / max / sqrt，没有分支与对象分配，
+ *    便于 JIT 自动向量化。
+ * 3. 视锥阈值由调用方用 {@link #cosThreshold} 预先算好，循环中不再调用三角函数。
+ * <p>
+ * 数组按需扩容并复用，稳态下不产生任何分配。实例不是线程安全的，每个线程各用各的。
+ */
+public final class GazeKernel {
+
+    // 视线方向分量为 0 时用于求倒数的替代值 (保持符号，避免 0 * ∞ = NaN)
+    private static final double MIN_DIRECTION = 1.0E-12;
+
+    private int size = 0;
+
+    // 观察者：眼睛位置、单位视线方向及其倒数
+    private double[] eyeX, eyeY, eyeZ;
+    private double[] lookX, lookY, lookZ;
+    private double[] invX, invY, invZ;
+
+    // 目标：碰撞箱 (未膨胀)
+    private double[] minX, minY, minZ, maxX, maxY, maxZ;
+
+    // 每个配对的参数：膨胀范围、最大距离、观察者与目标 (脚底) 的距离平方
+    private double[] buffer, reach, distSqr;
+
+    // 结果
+    private boolean[] withinReach, inCone;
+    private double[] aimDistance; // 视线进入膨胀碰撞箱的距离，未击中为 +∞
+
+    public GazeKernel() {
+        this(16);
+    }
+
+    public GazeKernel(int capacity) {
+        allocate(Math.max(1, capacity));
+    }
+
+    /**
+     * 视锥阈值：与单位视线方向夹角的余弦须大于此值 (与 {@link PlayerGazeHelper#isInViewCone} 含义相同)
+     */
+    public static double cosThreshold(double fovDegrees) {
+        return Math.cos(Math.toRadians(fovDegrees));
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public void clear() {
+        size = 0;
+    }
+
+    /**
+     * 登记一个配对
+     *
+     * @param distSqr     观察者与目标 (脚底位置) 的距离平方，用于视锥的距离粗筛
+     * @param buffer      碰撞箱膨胀范围
+     * @param maxDistance 视线最大长度 (按 {@link #compute(double)} 计算时同时作为视锥的距离上限)
+     * @return 配对下标
+     */
+    public int add(PlayerGazeHelper.ObserverView view, AABB box, double distSqr, double buffer, double maxDistance) {
+        if (size == eyeX.length) allocate(size * 2);
+
+        int i = size++;
+        Vec3 eye = view.eyePos();
+        Vec3 look = view.lookVec();
+        eyeX[i] = eye.x; eyeY[i] = eye.y; eyeZ[i] = eye.z;
+        lookX[i] = look.x; lookY[i] = look.y; lookZ[i] = look.z;
+        invX[i] = inverse(look.x); invY[i] = inverse(look.y); invZ[i] = inverse(look.z);
+        minX[i] = box.minX; minY[i] = box.minY; minZ[i] = box.minZ;
+        maxX[i] = box.maxX; maxY[i] = box.maxY; maxZ[i] = box.maxZ;
+        this.buffer[i] = buffer;
+        this.reach[i] = maxDistance;
+        this.distSqr[i] = distSqr;
+        return i;
+    }
+
+    /**
+     * 计算整批配对的几何结果
+     *
+     * @param coneDistance 视锥的最大距离
+     * @param coneCos      视锥阈值 (见 {@link #cosThreshold})
+     */
+    public void compute(double coneDistance, double coneCos) {
+        computeReach();
+        computeCone(coneDistance * coneDistance, coneCos);
+        computeAim();
+    }
+
+    /**
+     * 计算整批配对的几何结果，视锥的距离上限取每个配对各自的视线最大长度
+     *
+     * @param coneCos 视锥阈值 (见 {@link #cosThreshold})
+     */
+    public void compute(double coneCos) {
+        computeReach();
+        computeConeWithinReach(coneCos);
+        computeAim();
+    }
+
+    // ==================================================
+    //                 批量循环
+    // ==================================================
+
+    private void computeReach() {
+        for (int i = 0; i < size; i++) {
+            withinReach[i] = reachSqr(eyeX[i], eyeY[i], eyeZ[i],
+                    minX[i], minY[i], minZ[i], maxX[i], maxY[i], maxZ[i], buffer[i]) <= reach[i] * reach[i];
+        }
+    }
+
+    private void computeCone(double maxDistSqr, double coneCos) {
+        for (int i = 0; i < size; i++) {
+            inCone[i] = distSqr[i] <= maxDistSqr & coneMargin(eyeX[i], eyeY[i], eyeZ[i], lookX[i], lookY[i], lookZ[i],
+                    minX[i], minY[i], minZ[i], maxX[i], maxY[i], maxZ[i], coneCos) > 0.0;
+        }
+    }
+
+    private void computeConeWithinReach(double coneCos) {
+        for (int i = 0; i < size; i++) {
+            inCone[i] = distSqr[i] <= reach[i] * reach[i] & coneMargin(eyeX[i], eyeY[i], eyeZ[i], lookX[i], lookY[i], lookZ[i],
+                    minX[i], minY[i], minZ[i], maxX[i], maxY[i], maxZ[i], coneCos) > 0.0;
+        }
+    }
+
+    private void computeAim() {
+        for (int i = 0; i < size; i++) {
+            aimDistance[i] = slabEntry(eyeX[i], eyeY[i], eyeZ[i], invX[i], invY[i], invZ[i],
+                    minX[i], minY[i], minZ[i], maxX[i], maxY[i], maxZ[i], buffer[i], reach[i]);
+        }
+    }
+
+    // ==================================================
+    //                 结果
+    // ==================================================
+
+    public boolean isWithinReach(int i) {
+        return withinReach[i];
+    }
+
+    public boolean isInCone(int i) {
+        return inCone[i];
+    }
+
+    public boolean hasAimPoint(int i) {
+        return aimDistance[i] != Double.POSITIVE_INFINITY;
+    }
+
+    /**
+     * 视线与膨胀碰撞箱的交点 (只在击中时分配)
+     */
+    @Nullable
+    public Vec3 getAimPoint(int i) {
+        double t = aimDistance[i];
+        if (t == Double.POSITIVE_INFINITY) return null;
+        return new Vec3(eyeX[i] + lookX[i] * t, eyeY[i] + lookY[i] * t, eyeZ[i] + lookZ[i] * t);
+    }
+
+    // ==================================================
+    //                 标量公式 (批量循环与单次检测共用)
+    // ==================================================
+
+    static double inverse(double d) {
+        return 1.0 / (Math.abs(d) < MIN_DIRECTION ? Math.copySign(MIN_DIRECTION, d) : d);
+    }
+
+    /**
+     * 眼睛到膨胀碰撞箱最近点的距离平方
+     */
+    static double reachSqr(double ex, double ey, double ez,
+                           double x0, double y0, double z0, double x1, double y1, double z1, double buffer) {
+        double dx = Math.max(0.0, Math.max(x0 - buffer - ex, ex - x1 - buffer));
+        double dy = Math.max(0.0, Math.max(y0 - buffer - ey, ey - y1 - buffer));
+        double dz = Math.max(0.0, Math.max(z0 - buffer - ez, ez - z1 - buffer));
+        return dx * dx + dy * dy + dz * dz;
+    }
+
+    /**
+     * 视锥余量：大于 0 表示碰撞箱中心在视锥内
+     * <p>
+     * 等价于 dot(look, normalize(center - eye)) - cos，但不做除法 (向量为 0 时结果为 0，判为不在视锥内)。
+     */
+    static double coneMargin(double ex, double ey, double ez, double lx, double ly, double lz,
+                             double x0, double y0, double z0, double x1, double y1, double z1, double cos) {
+        double vx = (x0 + x1) * 0.5 - ex;
+        double vy = (y0 + y1) * 0.5 - ey;
+        double vz = (z0 + z1) * 0.5 - ez;
+        return lx * vx + ly * vy + lz * vz - cos * Math.sqrt(vx * vx + vy * vy + vz * vz);
+    }
+
+    /**
+     * 射线 (单位方向的倒数为 inv) 进入膨胀碰撞箱的距离
+     * <p>
+     * 与 {@link AABB#clip} 一致：起点在碰撞箱内、或进入点超出 maxDistance 时视为未击中。
+     *
+     * @return 进入距离；未击中为 +∞
+     */
+    static double slabEntry(double ex, double ey, double ez, double ix, double iy, double iz,
+                            double x0, double y0, double z0, double x1, double y1, double z1,
+                            double buffer, double maxDistance) {
+        double tx0 = (x0 - buffer - ex) * ix, tx1 = (x1 + buffer - ex) * ix;
+        double ty0 = (y0 - buffer - ey) * iy, ty1 = (y1 + buffer - ey) * iy;
+        double tz0 = (z0 - buffer - ez) * iz, tz1 = (z1 + buffer - ez) * iz;
+
+        double near = Math.max(Math.max(Math.min(tx0, tx1), Math.min(ty0, ty1)), Math.min(tz0, tz1));
+        double far = Math.min(Math.min(Math.max(tx0, tx1), Math.max(ty0, ty1)), Math.max(tz0, tz1));
+
+        boolean hit = near > 0.0 & near <= far & near < maxDistance;
+        return hit ? near : Double.POSITIVE_INFINITY;
+    }
+
+    private void allocate(int capacity) {
+        eyeX = grow(eyeX, capacity); eyeY = grow(eyeY, capacity); eyeZ = grow(eyeZ, capacity);
+        lookX = grow(lookX, capacity); lookY = grow(lookY, capacity); lookZ = grow(lookZ, capacity);
+        invX = grow(invX, capacity); invY = grow(invY, capacity); invZ = grow(invZ, capacity);
+        minX = grow(minX, capacity); minY = grow(minY, capacity); minZ = grow(minZ, capacity);
+        maxX = grow(maxX, capacity); maxY = grow(maxY, capacity); maxZ = grow(maxZ, capacity);
+        buffer = grow(buffer, capacity); reach = grow(reach, capacity); distSqr = grow(distSqr, capacity);
+        aimDistance = grow(aimDistance, capacity);
+        withinReach = withinReach == null ? new boolean[capacity] : Arrays.copyOf(withinReach, capacity);
+        inCone = inCone == null ? new boolean[capacity] : Arrays.copyOf(inCone, capacity);
+    }
+
+    private static double[] grow(@Nullable double[] array, int capacity) {
+        return array == null ? new double[capacity] : Arrays.copyOf(array, capacity);
+    }
+}
@@ -0,0 +1,378 @@
+package com.lotm.lotm.util;
+
+import com.lotm.lotm.LotMMod;
+import it.unimi.dsi.fastutil.longs.Long2ObjectOpenHashMap;
+import net.minecraft.core.BlockPos;
+import net.minecraft.core.SectionPos;
+import net.minecraft.util.Mth;
+import net.minecraft.world.entity.Entity;
+import net.minecraft.world.entity.LivingEntity;
+import net.minecraft.world.level.ChunkPos;
+import net.minecraft.world.level.EmptyBlockGetter;
+import net.minecraft.world.level.Level;
+import net.minecraft.world.level.LevelAccessor;
+import net.minecraft.world.level.block.Block;
+import net.minecraft.world.level.block.PowderSnowBlock;
+import net.minecraft.world.level.block.ScaffoldingBlock;
+import net.minecraft.world.level.block.state.BlockState;
+import net.minecraft.world.level.chunk.LevelChunk;
+import net.minecraft.world.level.chunk.LevelChunkSection;
+import net.minecraft.world.level.chunk.PalettedContainer;
+import net.minecraft.world.phys.BlockHitResult;
+import net.minecraft.world.phys.Vec3;
+import net.minecraft.world.phys.shapes.CollisionContext;
+import net.minecraftforge.event.level.ChunkEvent;
+import net.minecraftforge.event.level.LevelEvent;
+import net.minecraftforge.eventbus.api.SubscribeEvent;
+import net.minecraftforge.fml.common.Mod;
+
+import javax.annotation.Nullable;
+import java.util.Collections;
+import java.util.Map;
+import java.util.WeakHashMap;
+
+/**
+ * 体素视线引擎 (Voxel Line of Sight)
+ * <p>
+ * 职责：
+ * 1. 替代 {@code Level.clip(COLLIDER, Fluid.NONE)}：用整数 3D DDA 逐格遍历射线经过的方块，
+ *    结果 (命中点) 与原版一致。
+ * 2. 为每个访问过的分段 (16³) 缓存两张位图：“完整方块” 与 “部分方块”。
+ *    - 空格子直接跳过；
+ *    - 完整方块直接命中 (命中点即射线进入该格的位置)；
+ *    - 只有部分方块 (台阶、栅栏、动态形状等) 才回退到精确的碰撞箱裁剪。
+ * 3. 方块变化由 {@code MixinLevelChunk} 通知，区块加载 / 卸载时丢弃整列分段；
+ *    另外校验分段对象本身，区块被替换时自动重建。
+ * <p>
+ * 服务端与客户端各自的 Level 使用独立的位图表，每张表只在其所属线程访问；
+ * 工作线程只能通过 {@link Snapshot} 读取位图。
+ */
+@Mod.EventBusSubscriber(modid = LotMMod.MODID)
+public class LineOfSight {
+
+    // 原版 hasLineOfSight 的最大距离
+    private static final double MAX_SIGHT_DISTANCE = 128.0;
+
+    // 方块分类
+    private static final int EMPTY = 0;
+    private static final int FULL = 1;
+    private static final int PARTIAL = 2;
+
+    // 每个分段 4096 格 = 64 个 long
+    private static final int WORDS = 64;
+
+    /**
+     * 快照模式下“无法判断”的返回值 (按引用比较)
+     */
+    public static final Vec3 UNKNOWN = new Vec3(Double.NaN, Double.NaN, Double.NaN);
+
+    // 快照中“已采集但不阻挡视线” (未加载 / 超出高度) 的分段
+    private static final SectionBits NOTHING = new SectionBits(null, null, null);
+
+    private static final Map<Level, Long2ObjectOpenHashMap<SectionBits>> STORES =
+            Collections.synchronizedMap(new WeakHashMap<>());
+
+    /**
+     * 单个分段的位图 (full 为 null 表示整个分段都不阻挡视线)
+     * <p>
+     * 构建后不再修改 (失效时整体替换)，因此可以放进快照交给工作线程读取。
+     */
+    private record SectionBits(@Nullable LevelChunkSection source, @Nullable long[] full, @Nullable long[] partial) {
+
+        int kindAt(int x, int y, int z) {
+            if (full == null) return EMPTY;
+            int index = ((y & 15) << 8) | ((z & 15) << 4) | (x & 15);
+            long bit = 1L << index;
+            if ((full[index >> 6] & bit) != 0) return FULL;
+            return (partial[index >> 6] & bit) != 0 ? PARTIAL : EMPTY;
+        }
+    }
+
+    // ==================================================
+    //                 射线检测
+    // ==================================================
+
+    /**
+     * 与原版 {@code LivingEntity.hasLineOfSight} 语义一致 (眼睛到眼睛，128 格以内)
+     */
+    public static boolean hasLineOfSight(LivingEntity observer, Entity target) {
+        if (target.level() != observer.level()) return false;
+
+        Vec3 from = new Vec3(observer.getX(), observer.getEyeY(), observer.getZ());
+        Vec3 to = new Vec3(target.getX(), target.getEyeY(), target.getZ());
+        if (to.distanceTo(from) > MAX_SIGHT_DISTANCE) return false;
+
+        return isClear(observer.level(), from, to, observer);
+    }
+
+    /**
+     * from → to 之间是否没有方块阻挡
+     */
+    public static boolean isClear(Level level, Vec3 from, Vec3 to, @Nullable Entity entity) {
+        return clip(level, from, to, entity) == null;
+    }
+
+    /**
+     * 射线与方块碰撞箱的第一个交点
+     *
+     * @param entity 碰撞上下文 (与 ClipContext 的 entity 参数相同)
+     * @return 命中点；没有阻挡时返回 null
+     */
+    @Nullable
+    public static Vec3 clip(Level level, Vec3 from, Vec3 to, @Nullable Entity entity) {
+        Long2ObjectOpenHashMap<SectionBits> store = STORES.computeIfAbsent(level, k -> new Long2ObjectOpenHashMap<>());
+        CollisionContext context = entity == null ? CollisionContext.empty() : CollisionContext.of(entity);
+        return traverse(level, store, from, to, context);
+    }
+
+    /**
+     * DDA 主循环
+     *
+     * @param level 实时模式下的维度；为 null 时是快照模式：store 为只读快照，
+     *              遇到未采集的分段或部分方块时返回 {@link #UNKNOWN}
+     */
+    @Nullable
+    private static Vec3 traverse(@Nullable Level level, Long2ObjectOpenHashMap<SectionBits> store,
+                                 Vec3 from, Vec3 to, @Nullable CollisionContext context) {
+        double dx = to.x - from.x, dy = to.y - from.y, dz = to.z - from.z;
+        int x = Mth.floor(from.x), y = Mth.floor(from.y), z = Mth.floor(from.z);
+        int stepX = Mth.sign(dx), stepY = Mth.sign(dy), stepZ = Mth.sign(dz);
+
+        // 参数 t ∈ [0, 1]：穿过一整格所需的 t，以及到达下一条格线的 t
+        double deltaX = stepX == 0 ? Double.MAX_VALUE : stepX / dx;
+        double deltaY = stepY == 0 ? Double.MAX_VALUE : stepY / dy;
+        double deltaZ = stepZ == 0 ? Double.MAX_VALUE : stepZ / dz;
+        double nextX = stepX == 0 ? Double.MAX_VALUE : ((stepX > 0 ? x + 1 : x) - from.x) / dx;
+        double nextY = stepY == 0 ? Double.MAX_VALUE : ((stepY > 0 ? y + 1 : y) - from.y) / dy;
+        double nextZ = stepZ == 0 ? Double.MAX_VALUE : ((stepZ > 0 ? z + 1 : z) - from.z) / dz;
+
+        int remaining = Math.abs(Mth.floor(to.x) - x) + Math.abs(Mth.floor(to.y) - y) + Math.abs(Mth.floor(to.z) - z);
+        double entry = 0.0;
+
+        BlockPos.MutableBlockPos pos = new BlockPos.MutableBlockPos();
+        long cachedKey = Long.MIN_VALUE;
+        SectionBits bits = null;
+
+        while (true) {
+            long key = SectionPos.asLong(x >> 4, y >> 4, z >> 4);
+            if (key != cachedKey) {
+                cachedKey = key;
+                if (level != null) {
+                    bits = section(level, store, key, x >> 4, y >> 4, z >> 4);
+                } else {
+                    bits = store.get(key);
+                    if (bits == null) return UNKNOWN;
+                }
+            }
+
+            int kind = bits == null ? EMPTY : bits.kindAt(x, y, z);
+            if (kind == FULL) {
+                return new Vec3(from.x + dx * entry, from.y + dy * entry, from.z + dz * entry);
+            }
+            if (kind == PARTIAL) {
+                if (level == null) return UNKNOWN;
+                pos.set(x, y, z);
+                BlockHitResult hit = level.getBlockState(pos).getCollisionShape(level, pos, context).clip(from, to, pos);
+                if (hit != null) return hit.getLocation();
+            }
+
+            if (remaining-- <= 0) return null;
+
+            // 前进到最近的格线
+            if (nextX < nextY && nextX < nextZ) {
+                x += stepX;
+                entry = nextX;
+                nextX += deltaX;
+            } else if (nextY < nextZ) {
+                y += stepY;
+                entry = nextY;
+                nextY += deltaY;
+            } else {
+                z += stepZ;
+                entry = nextZ;
+                nextZ += deltaZ;
+            }
+            if (entry > 1.0) return null;
+        }
+    }
+
+    // ==================================================
+    //                 分段位图
+    // ==================================================
+
+    @Nullable
+    private static SectionBits section(Level level, Long2ObjectOpenHashMap<SectionBits> store, long key, int sx, int sy, int sz) {
+        if (sy < level.getMinSection() || sy >= level.getMaxSection()) return null;
+
+        // 只读取已加载的区块，射线不会触发区块加载
+        LevelChunk chunk = level.getChunkSource().getChunkNow(sx, sz);
+        if (chunk == null) return null;
+
+        LevelChunkSection section = chunk.getSection(level.getSectionIndexFromSectionY(sy));
+        SectionBits bits = store.get(key);
+        if (bits == null || bits.source() != section) {
+            bits = build(section);
+            store.put(key, bits);
+        }
+        return bits;
+    }
+
+    private static SectionBits build(LevelChunkSection section) {
+        PalettedContainer<BlockState> states = section.getStates();
+        if (section.hasOnlyAir() || !states.maybeHas(state -> classify(state) != EMPTY)) {
+            return new SectionBits(section, null, null);
+        }
+
+        long[] full = new long[WORDS];
+        long[] partial = new long[WORDS];
+        for (int index = 0; index < 4096; index++) {
+            int kind = classify(states.get(index & 15, index >> 8, (index >> 4) & 15));
+            if (kind == FULL) {
+                full[index >> 6] |= 1L << index;
+            } else if (kind == PARTIAL) {
+                partial[index >> 6] |= 1L << index;
+            }
+        }
+        return new SectionBits(section, full, partial);
+    }
+
+    /**
+     * 按碰撞箱给方块分类 (碰撞箱缓存在 BlockState 中，这里很廉价)
+     */
+    private static int classify(BlockState state) {
+        if (state.isAir()) return EMPTY;
+
+        // 动态形状与依赖实体上下文的方块 (脚手架、细雪) 一律走精确裁剪
+        Block block = state.getBlock();
+        if (block.hasDynamicShape() || block instanceof ScaffoldingBlock || block instanceof PowderSnowBlock) {
+            return PARTIAL;
+        }
+
+        if (state.getCollisionShape(EmptyBlockGetter.INSTANCE, BlockPos.ZERO).isEmpty()) return EMPTY;
+        return state.isCollisionShapeFullBlock(EmptyBlockGetter.INSTANCE, BlockPos.ZERO) ? FULL : PARTIAL;
+    }
+
+    // ==================================================
+    //                 只读快照
+    // ==================================================
+
+    /**
+     * 开始采集快照 (必须在该维度的主线程调用)
+     */
+    public static Snapshot.Builder snapshot(Level level) {
+        return new Snapshot.Builder(level, STORES.computeIfAbsent(level, k -> new Long2ObjectOpenHashMap<>()));
+    }
+
+    /**
+     * 分段位图的只读快照
+     * <p>
+     * 只包含采集时登记过的线段周围的分段，可以在工作线程上做射线检测。
+     * 部分方块需要读取 Level 做精确裁剪，快照模式下遇到时返回 {@link #UNKNOWN}，由调用方回到主线程处理。
+     */
+    public static final class Snapshot {
+
+        // 登记线段时的采样步长 (格)
+        private static final double SAMPLE_STEP = 2.0;
+
+        private final Long2ObjectOpenHashMap<SectionBits> sections;
+
+        private Snapshot(Long2ObjectOpenHashMap<SectionBits> sections) {
+            this.sections = sections;
+        }
+
+        /**
+         * @return 命中点；null 表示通畅；{@link #UNKNOWN} 表示快照无法判断
+         */
+        @Nullable
+        public Vec3 clip(Vec3 from, Vec3 to) {
+            return traverse(null, sections, from, to, null);
+        }
+
+        public static final class Builder {
+            private final Level level;
+            private final Long2ObjectOpenHashMap<SectionBits> store;
+            private final Long2ObjectOpenHashMap<SectionBits> sections = new Long2ObjectOpenHashMap<>();
+
+            private Builder(Level level, Long2ObjectOpenHashMap<SectionBits> store) {
+                this.level = level;
+                this.store = store;
+            }
+
+            /**
+             * 登记线段 from → to 周围 margin 格内的分段 (必要时在主线程上构建位图)
+             */
+            public Builder include(Vec3 from, Vec3 to, double margin) {
+                // DDA 经过的格子距采样点不超过 SAMPLE_STEP / 2 + √3，再额外留 1 格
+                double pad = margin + 3.0;
+                int steps = Math.max(1, Mth.ceil(from.distanceTo(to) / SAMPLE_STEP));
+
+                for (int i = 0; i <= steps; i++) {
+                    double t = (double) i / steps;
+                    double x = Mth.lerp(t, from.x, to.x), y = Mth.lerp(t, from.y, to.y), z = Mth.lerp(t, from.z, to.z);
+
+                    for (int sx = SectionPos.blockToSectionCoord(Mth.floor(x - pad)); sx <= SectionPos.blockToSectionCoord(Mth.floor(x + pad)); sx++) {
+                        for (int sy = SectionPos.blockToSectionCoord(Mth.floor(y - pad)); sy <= SectionPos.blockToSectionCoord(Mth.floor(y + pad)); sy++) {
+                            for (int sz = SectionPos.blockToSectionCoord(Mth.floor(z - pad)); sz <= SectionPos.blockToSectionCoord(Mth.floor(z + pad)); sz++) {
+                                long key = SectionPos.asLong(sx, sy, sz);
+                                if (sections.containsKey(key)) continue;
+
+                                SectionBits bits = section(level, store, key, sx, sy, sz);
+                                sections.put(key, bits == null ? NOTHING : bits);
+                            }
+                        }
+                    }
+                }
+                return this;
+            }
+
+            public Snapshot build() {
+                return new Snapshot(sections);
+            }
+        }
+    }
+
+    // ==================================================
+    //                 失效
+    // ==================================================
+
+    /**
+     * 方块变化 (由 MixinLevelChunk 调用)
+     */
+    public static void onBlockChanged(Level level, BlockPos pos) {
+        Long2ObjectOpenHashMap<SectionBits> store = STORES.get(level);
+        if (store != null) store.remove(SectionPos.asLong(pos));
+    }
+
+    private static void dropChunk(LevelAccessor accessor, ChunkPos chunkPos) {
+        if (!(accessor instanceof Level level)) return;
+        Long2ObjectOpenHashMap<SectionBits> store = STORES.get(level);
+        if (store == null) return;
+
+        for (int sy = level.getMinSection(); sy < level.getMaxSection(); sy++) {
+            store.remove(SectionPos.asLong(chunkPos.x, sy, chunkPos.z));
+        }
+    }
+
+    /**
+     * 客户端收到区块数据时会原地改写分段，因此加载时也要丢弃
+     * (服务端加载的区块总是新的分段对象，由 source 校验处理)
+     */
+    @SubscribeEvent
+    public static void onChunkLoad(ChunkEvent.Load event) {
+        if (event.getLevel().isClientSide()) {
+            dropChunk(event.getLevel(), event.getChunk().getPos());
+        }
+    }
+
+    @SubscribeEvent
+    public static void onChunkUnload(ChunkEvent.Unload event) {
+        dropChunk(event.getLevel(), event.getChunk().getPos());
+    }
+
+    @SubscribeEvent
+    public static void onLevelUnload(LevelEvent.Unload event) {
+        if (event.getLevel() instanceof Level level) {
+            STORES.remove(level);
+        }
+    }
+}
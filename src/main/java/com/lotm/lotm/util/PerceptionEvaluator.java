@@ -1,9 +1,8 @@
 package com.lotm.lotm.util;
 
-import com.lotm.lotm.common.capability.AbilityContainerProvider;
+import com.lotm.lotm.api.capability.PerceptionProfile;
 import com.lotm.lotm.common.capability.BeyonderStateProvider;
 import com.lotm.lotm.common.registry.LotMAttributes;
-import com.lotm.lotm.content.skill.base.SpiritVision;
 import net.minecraft.world.entity.LivingEntity;
 import net.minecraft.world.entity.player.Player;
 
@@ -41,10 +40,24 @@ public class PerceptionEvaluator {
         return detection >= concealment;
     }
 
+    /**
+     * 获取玩家的感知档案 (缓存在非凡状态中；缺少能力数据时返回 {@link PerceptionProfile#NONE})
+     */
+    public static PerceptionProfile getProfile(Player player) {
+        return player.getCapability(BeyonderStateProvider.CAPABILITY)
+                .map(state -> state.getPerceptionProfile(player))
+                .orElse(PerceptionProfile.NONE);
+    }
+
     /**
      * 计算目标的当前隐蔽值
      */
     private static double getConcealmentValue(LivingEntity target) {
+        // 玩家直接读取感知档案
+        if (target instanceof Player player) {
+            return getProfile(player).concealment();
+        }
+
         // 读取属性 (Attribute)
         // 默认值是 0。如果目标装备了封印物或使用了隐秘技能，此属性会增加。
         double val = target.getAttributeValue(LotMAttributes.SPIRITUAL_CONCEALMENT.get());
@@ -58,30 +71,9 @@ public class PerceptionEvaluator {
     /**
      * 计算观察者的当前侦测值
      * <p>
-     * 算法：基础属性 + 灵视加成(基于序列)
+     * 算法：基础属性 + 灵视加成(基于序列)，已在感知档案中预先算好
      */
     private static double getDetectionValue(Player player) {
-        // 1. 基础属性 (来自装备、魔药被动等)
-        double base = player.getAttributeValue(LotMAttributes.SPIRITUAL_DETECTION.get());
-
-        // 2. 检查灵视是否开启
-        boolean isSpiritVisionActive = player.getCapability(AbilityContainerProvider.CAPABILITY)
-                .map(cap -> cap.isSkillActive(SpiritVision.ID))
-                .orElse(false);
-
-        if (isSpiritVisionActive) {
-            // 获取序列等级，计算加成
-            // 序列 9 -> 加成 10.0
-            // 序列 0 -> 加成 100.0
-            // 公式：(10 - 序列号) * 10
-            int sequence = player.getCapability(BeyonderStateProvider.CAPABILITY)
-                    .map(state -> state.getSequence())
-                    .orElse(9); // 默认按序列9处理
-
-            double visionBonus = (10 - sequence) * 10.0;
-            base += visionBonus;
-        }
-
-        return base;
+        return getProfile(player).effectiveDetection();
     }
 }
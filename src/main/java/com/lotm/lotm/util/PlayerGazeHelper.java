@@ -2,12 +2,10 @@ package com.lotm.lotm.util;
 
 import net.minecraft.world.entity.Entity;
 import net.minecraft.world.entity.LivingEntity;
-import net.minecraft.world.level.ClipContext;
 import net.minecraft.world.phys.AABB;
-import net.minecraft.world.phys.HitResult;
 import net.minecraft.world.phys.Vec3;
 
-import java.util.Optional;
+import javax.annotation.Nullable;
 
 /**
  * 玩家视线检测工具类 (增强版)
@@ -17,9 +15,21 @@ import java.util.Optional;
  * 2. 物理射线检测 (Narrow Phase): 判断准星是否精确指着目标的碰撞箱。
  * 3. 时间状态追踪 (State Tracker): 辅助判断“持续注视”逻辑。
  * 4. ★★★ 遮挡判断 (Occlusion): 提供比原版更智能的多点视线检查。
+ * <p>
+ * 每个检测都有接受 {@link ObserverView} 的重载：批量检测时同一观察者的眼睛位置与视线方向只计算一次。
+ * 方块射线统一走 {@link LineOfSight} (体素 DDA + 分段位图)；多个配对的几何粗筛见 {@link GazeKernel}。
  */
 public class PlayerGazeHelper {
 
+    /**
+     * 观察者视角快照 (眼睛位置 + 单位视线方向)
+     */
+    public record ObserverView(Vec3 eyePos, Vec3 lookVec) {
+        public static ObserverView of(LivingEntity observer) {
+            return new ObserverView(observer.getEyePosition(), observer.getViewVector(1.0F).normalize());
+        }
+    }
+
     // ==================================================
     // 1. 精准射线检测 (Ray Tracing) - 推荐用于交互判定
     // ==================================================
@@ -28,43 +38,78 @@ public class PlayerGazeHelper {
      * 判断观察者的准星是否精确落在目标实体的碰撞箱上
      */
     public static boolean isAimingAt(LivingEntity observer, Entity target, double maxDistance, double buffer) {
+        if (observer == null || target == null) return false;
+        return isAimingAt(observer, ObserverView.of(observer), target, maxDistance, buffer);
+    }
+
+    public static boolean isAimingAt(LivingEntity observer, ObserverView view, Entity target, double maxDistance, double buffer) {
         if (observer == null || target == null || observer == target) return false;
 
-        Vec3 eyePos = observer.getEyePosition();
-        Vec3 lookVec = observer.getViewVector(1.0F);
-        Vec3 endPos = eyePos.add(lookVec.scale(maxDistance));
+        Vec3 hitPos = getAimPoint(view, target, maxDistance, buffer);
+        return hitPos != null && isPathClear(observer, view.eyePos(), hitPos);
+    }
 
-        // 获取目标的包围盒并根据 buffer 进行膨胀
-        AABB targetBox = target.getBoundingBox().inflate(buffer);
+    /**
+     * 几何部分：视线与目标 (膨胀后) 碰撞箱的交点，不涉及方块
+     *
+     * @return 交点；视线没有穿过碰撞箱时返回 null
+     */
+    @Nullable
+    public static Vec3 getAimPoint(ObserverView view, Entity target, double maxDistance, double buffer) {
+        return getAimPoint(view, target.getBoundingBox(), maxDistance, buffer);
+    }
 
-        // 检测射线是否穿过该包围盒
-        Optional<Vec3> hit = targetBox.clip(eyePos, endPos);
+    /**
+     * @param box 目标碰撞箱 (可来自快照，不接触实体)
+     */
+    @Nullable
+    public static Vec3 getAimPoint(ObserverView view, AABB box, double maxDistance, double buffer) {
+        Vec3 eye = view.eyePos();
+        Vec3 look = view.lookVec();
+
+        // 射线与膨胀后包围盒的 Slab 求交 (与 AABB.clip 等价，但不创建中间对象)
+        double t = GazeKernel.slabEntry(eye.x, eye.y, eye.z,
+                GazeKernel.inverse(look.x), GazeKernel.inverse(look.y), GazeKernel.inverse(look.z),
+                box.minX, box.minY, box.minZ, box.maxX, box.maxY, box.maxZ, buffer, maxDistance);
+        if (t == Double.POSITIVE_INFINITY) return null;
+        return new Vec3(eye.x + look.x * t, eye.y + look.y * t, eye.z + look.z * t);
+    }
 
-        if (hit.isPresent()) {
-            // ★★★ 核心优化：此处不再调用原版 hasLineOfSight ★★★
-            // 因为 hasLineOfSight 太严格。
-            // 既然已经发生了碰撞，具体的遮挡逻辑应交由 clip 自身的物理检测或外部的前置检查处理。
-            // 在 DangerSenseHandler 中，我们会先调用 canSeeAnyPart 确保没有完全遮挡。
+    /**
+     * 距离粗筛：眼睛到 (膨胀后) 碰撞箱最近点的距离是否在 maxDistance 以内
+     * <p>
+     * 超出时视线不可能在 maxDistance 内击中碰撞箱，可以跳过 {@link #getAimPoint}。
+     */
+    public static boolean isWithinReach(ObserverView view, Entity target, double maxDistance, double buffer) {
+        return isWithinReach(view, target.getBoundingBox(), maxDistance, buffer);
+    }
 
-            // 进一步的物理防穿墙检测：
-            // 检查眼睛到碰撞点之间是否有方块阻挡
-            Vec3 hitPos = hit.get();
-            double distToHit = eyePos.distanceTo(hitPos);
+    public static boolean isWithinReach(ObserverView view, AABB box, double maxDistance, double buffer) {
+        Vec3 eye = view.eyePos();
+        return GazeKernel.reachSqr(eye.x, eye.y, eye.z,
+                box.minX, box.minY, box.minZ, box.maxX, box.maxY, box.maxZ, buffer) <= maxDistance * maxDistance;
+    }
 
-            // 发射一条物理射线检测方块
-            HitResult blockHit = observer.level().clip(new ClipContext(
-                    eyePos, hitPos,
-                    ClipContext.Block.COLLIDER, ClipContext.Fluid.NONE, observer));
+    /**
+     * 物理部分：眼睛到交点之间是否没有方块阻挡
+     * <p>
+     * ★★★ 核心优化：此处不再调用原版 hasLineOfSight ★★★
+     * 因为 hasLineOfSight 太严格。
+     * 在 DangerSenseHandler 中，我们会先调用 canSeeAnyPart 确保没有完全遮挡。
+     */
+    public static boolean isPathClear(LivingEntity observer, Vec3 eyePos, Vec3 hitPos) {
+        double distToHit = eyePos.distanceTo(hitPos);
 
-            // 如果中间没有方块阻挡 (MISS) 或者 阻挡点比实体碰撞点更远，则视为击中
-            if (blockHit.getType() == HitResult.Type.MISS) {
-                return true;
-            }
+        // 发射一条物理射线检测方块
+        Vec3 blockHit = LineOfSight.clip(observer.level(), eyePos, hitPos, observer);
 
-            double distToBlock = eyePos.distanceTo(blockHit.getLocation());
-            return distToBlock >= distToHit;
+        // 如果中间没有方块阻挡 (MISS) 或者 阻挡点比实体碰撞点更远，则视为击中
+        if (blockHit == null) {
+            return true;
         }
-        return false;
+
+        double distToBlock = eyePos.distanceTo(blockHit);
+        return distToBlock >= distToHit;
     }
 
     // ==================================================
@@ -73,18 +118,28 @@ public class PlayerGazeHelper {
 
     public static boolean isInViewCone(LivingEntity observer, Entity target, double maxDistance, double fovDegrees) {
         if (observer == null || target == null) return false;
-        double distSqr = observer.distanceToSqr(target);
-        if (distSqr > maxDistance * maxDistance) return false;
+        return isInViewCone(observer, ObserverView.of(observer), target, maxDistance, fovDegrees);
+    }
 
-        // 这里不进行遮挡检查，遮挡检查应独立调用
+    public static boolean isInViewCone(LivingEntity observer, ObserverView view, Entity target, double maxDistance, double fovDegrees) {
+        if (observer == null || target == null) return false;
+        return isInViewCone(view, observer.distanceToSqr(target), target.getBoundingBox(), maxDistance, fovDegrees);
+    }
 
-        Vec3 lookVec = observer.getViewVector(1.0F).normalize();
-        Vec3 toTargetVec = target.getBoundingBox().getCenter().subtract(observer.getEyePosition()).normalize();
+    /**
+     * @param distSqr 观察者与目标 (脚底位置) 的距离平方
+     * @param box     目标碰撞箱 (可来自快照，不接触实体)
+     */
+    public static boolean isInViewCone(ObserverView view, double distSqr, AABB box, double maxDistance, double fovDegrees) {
+        if (distSqr > maxDistance * maxDistance) return false;
 
-        double dot = lookVec.dot(toTargetVec);
-        double threshold = Math.cos(Math.toRadians(fovDegrees));
+        // 这里不进行遮挡检查，遮挡检查应独立调用
+        // 批量检测请使用 GazeKernel (阈值预先计算，多个配对一次完成)
 
-        return dot > threshold;
+        Vec3 eye = view.eyePos();
+        Vec3 look = view.lookVec();
+        return GazeKernel.coneMargin(eye.x, eye.y, eye.z, look.x, look.y, look.z,
+                box.minX, box.minY, box.minZ, box.maxX, box.maxY, box.maxZ, GazeKernel.cosThreshold(fovDegrees)) > 0.0;
     }
 
     // ==================================================
@@ -99,25 +154,17 @@ public class PlayerGazeHelper {
      * 只要有一条线通畅，即视为可见。
      */
     public static boolean canSeeAnyPart(LivingEntity observer, Entity target) {
-        if (observer.hasLineOfSight(target)) return true; // 原版检测通过直接返回
+        return canSeeAnyPart(observer, ObserverView.of(observer), target);
+    }
 
-        Vec3 eyePos = observer.getEyePosition();
-        AABB box = target.getBoundingBox();
+    public static boolean canSeeAnyPart(LivingEntity observer, ObserverView view, Entity target) {
+        if (LineOfSight.hasLineOfSight(observer, target)) return true; // 原版语义的眼对眼检测通过直接返回
 
-        // 选取关键点进行检测
-        Vec3[] pointsToCheck = new Vec3[]{
-                box.getCenter(), // 中心
-                new Vec3(box.minX + (box.maxX - box.minX) * 0.5, box.minY + 0.1, box.minZ + (box.maxZ - box.minZ) * 0.5), // 脚底 (抬高一点防地面干扰)
-                new Vec3(box.minX + (box.maxX - box.minX) * 0.5, box.maxY - 0.1, box.minZ + (box.maxZ - box.minZ) * 0.5)  // 头顶 (降低一点防天花板干扰)
-        };
-
-        for (Vec3 point : pointsToCheck) {
-            HitResult result = observer.level().clip(new ClipContext(
-                    eyePos, point,
-                    ClipContext.Block.COLLIDER, ClipContext.Fluid.NONE, observer));
+        Vec3 eyePos = view.eyePos();
 
+        for (Vec3 point : getSightPoints(target.getBoundingBox())) {
             // 如果射线没有碰到方块 (MISS)，说明该点可见
-            if (result.getType() == HitResult.Type.MISS) {
+            if (LineOfSight.isClear(observer.level(), eyePos, point, observer)) {
                 return true;
             }
         }
@@ -125,6 +172,17 @@ public class PlayerGazeHelper {
         return false;
     }
 
+    /**
+     * 除眼睛外的关键检测点：中心、脚底、头顶
+     */
+    public static Vec3[] getSightPoints(AABB box) {
+        return new Vec3[]{
+                box.getCenter(), // 中心
+                new Vec3(box.minX + (box.maxX - box.minX) * 0.5, box.minY + 0.1, box.minZ + (box.maxZ - box.minZ) * 0.5), // 脚底 (抬高一点防地面干扰)
+                new Vec3(box.minX + (box.maxX - box.minX) * 0.5, box.maxY - 0.1, box.minZ + (box.maxZ - box.minZ) * 0.5)  // 头顶 (降低一点防天花板干扰)
+        };
+    }
+
     // ==================================================
     // 4. 时间状态追踪器 (Time Tracker)
     // ==================================================
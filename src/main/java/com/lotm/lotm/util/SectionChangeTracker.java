@@ -0,0 +1,103 @@
+package com.lotm.lotm.util;
+
+import com.lotm.lotm.LotMMod;
+import it.unimi.dsi.fastutil.longs.Long2LongOpenHashMap;
+import net.minecraft.core.BlockPos;
+import net.minecraft.core.SectionPos;
+import net.minecraft.resources.ResourceKey;
+import net.minecraft.server.level.ServerLevel;
+import net.minecraft.world.level.ChunkPos;
+import net.minecraft.world.level.Level;
+import net.minecraftforge.event.level.ChunkEvent;
+import net.minecraftforge.event.level.LevelEvent;
+import net.minecraftforge.event.server.ServerStoppedEvent;
+import net.minecraftforge.eventbus.api.SubscribeEvent;
+import net.minecraftforge.fml.common.Mod;
+
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * 区块分段变更记录 (Section Change Tracker)
+ * <p>
+ * 职责：
+ * 1. 为每个发生过方块变化的分段 (16³) 记录最后一次变化的“纪元号”。纪元号全局单调递增。
+ * 2. 缓存 (例如视线遮挡结果) 只需记下计算时的纪元号与途经的分段，
+ *    之后用 {@link #unchangedSince} 判断这些分段是否被改动过，而无需重新做射线检测。
+ * <p>
+ * 变化来源是 LevelChunk.setBlockState 的 Mixin，与视线引擎的位图失效共用同一个注入点，
+ * 因此不触发邻居更新的 setBlock、活塞、爆炸、流体等任何途径的变化都会被记录。
+ * 区块卸载时丢弃其记录 (折算进默认值)，内存只与已加载且改动过的分段有关。
+ * 仅在服务端主线程访问。
+ */
+@Mod.EventBusSubscriber(modid = LotMMod.MODID)
+public class SectionChangeTracker {
+
+    private static final Map<ResourceKey<Level>, Long2LongOpenHashMap> CHANGES = new HashMap<>();
+
+    private static long epoch = 0L;
+
+    /**
+     * 当前纪元号 (缓存计算结果时记下它)
+     */
+    public static long currentEpoch() {
+        return epoch;
+    }
+
+    /**
+     * 给定分段在纪元 since 之后是否都没有发生过方块变化
+     *
+     * @param sections 打包的 SectionPos
+     */
+    public static boolean unchangedSince(Level level, long[] sections, long since) {
+        Long2LongOpenHashMap changes = CHANGES.get(level.dimension());
+        if (changes == null) return true;
+
+        for (long section : sections) {
+            if (changes.get(section) > since) return false;
+        }
+        return true;
+    }
+
+    /**
+     * 记录一次方块变化 (由 LevelChunk Mixin 调用，客户端世界直接忽略)
+     */
+    public static void markChanged(Level level, BlockPos pos) {
+        if (level.isClientSide) return;
+        CHANGES.computeIfAbsent(level.dimension(), k -> new Long2LongOpenHashMap())
+                .put(SectionPos.asLong(pos), ++epoch);
+    }
+
+    // ==================================================
+    //                 事件监听
+    // ==================================================
+
+    @SubscribeEvent
+    public static void onChunkUnload(ChunkEvent.Unload event) {
+        if (!(event.getLevel() instanceof ServerLevel level)) return;
+
+        Long2LongOpenHashMap changes = CHANGES.get(level.dimension());
+        if (changes == null) return;
+
+        // 被丢弃的记录折算成默认值：没有记录的分段按“最近一次被丢弃的变化”处理，宁可让旧缓存失效
+        ChunkPos chunkPos = event.getChunk().getPos();
+        long forgotten = changes.defaultReturnValue();
+        for (int sy = level.getMinSection(); sy < level.getMaxSection(); sy++) {
+            long removed = changes.remove(SectionPos.asLong(chunkPos.x, sy, chunkPos.z));
+            forgotten = Math.max(forgotten, removed);
+        }
+        changes.defaultReturnValue(forgotten);
+    }
+
+    @SubscribeEvent
+    public static void onLevelUnload(LevelEvent.Unload event) {
+        if (event.getLevel() instanceof ServerLevel level) {
+            CHANGES.remove(level.dimension());
+        }
+    }
+
+    @SubscribeEvent
+    public static void onServerStopped(ServerStoppedEvent event) {
+        CHANGES.clear();
+    }
+}
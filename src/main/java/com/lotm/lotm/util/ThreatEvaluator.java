@@ -1,20 +1,37 @@
 package com.lotm.lotm.util;
 
 import com.lotm.lotm.client.util.EntityRelationEvaluator;
-import com.lotm.lotm.common.capability.BeyonderStateProvider;
 import net.minecraft.world.entity.LivingEntity;
+import net.minecraft.world.entity.ai.attributes.AttributeInstance;
+import net.minecraft.world.entity.ai.attributes.AttributeMap;
+import net.minecraft.world.entity.ai.attributes.Attributes;
 import net.minecraft.world.entity.monster.Enemy;
 import net.minecraft.world.entity.player.Player;
 
+import javax.annotation.Nullable;
+
 /**
  * 威胁评估器 (Threat Evaluator)
  * <p>
  * 职责：
  * 1. 综合判断目标对观察者的威胁程度。
  * 2. 考虑因素：序列压制、敌对关系、生物属性。
+ * 3. 生物的属性分级缓存在该个体自己的 {@link AttributeMap} 上 ({@link CachedThreat})，
+ *    任何属性的修饰符或基础值变化时由 MixinAttributeMap 清空；缓存有效时不读取任何属性，也没有额外的表查找。
+ *    仅在服务端主线程访问。
  */
 public class ThreatEvaluator {
 
+    /**
+     * 属性表上的威胁等级缓存 (由 MixinAttributeMap 实现)
+     */
+    public interface CachedThreat {
+        @Nullable
+        ThreatLevel lotm$getThreat();
+
+        void lotm$setThreat(@Nullable ThreatLevel level);
+    }
+
     public enum ThreatLevel {
         NONE(0),
         LOW(1),
@@ -31,10 +48,17 @@ public class ThreatEvaluator {
      */
     public static ThreatLevel evaluate(Player observer, LivingEntity target) {
         if (observer == target) return ThreatLevel.NONE;
+        return evaluate(observer, target, EntityRelationEvaluator.evaluate(target, observer));
+    }
+
+    /**
+     * 同上，关系已由调用方算好 (例如 {@code PerceptionSnapshot} 中与威胁等级一并缓存)
+     */
+    public static ThreatLevel evaluate(Player observer, LivingEntity target, EntityRelationEvaluator.RelationType relation) {
+        if (observer == target) return ThreatLevel.NONE;
 
         // 1. 基础敌对关系检查
         // 如果是绝对盟友（如驯服的狼、同队玩家），则视为无威胁
-        EntityRelationEvaluator.RelationType relation = EntityRelationEvaluator.evaluate(target, observer);
         if (relation == EntityRelationEvaluator.RelationType.FRIENDLY) {
             return ThreatLevel.NONE;
         }
@@ -68,20 +92,31 @@ public class ThreatEvaluator {
     private static ThreatLevel evaluateMobThreat(Player observer, LivingEntity target) {
         // 简单基于属性判断
         // 未来可以接入 EntityType Tags 来标记 Boss 或强力生物
-        boolean isEnemy = target instanceof Enemy;
 
-        // 如果不是天生敌人且没打我，威胁较低 (中立生物)
-        if (!isEnemy && target.getLastHurtByMob() != observer) {
+        // 动态因素：如果不是天生敌人且没打我，威胁较低 (中立生物)
+        if (!(target instanceof Enemy) && target.getLastHurtByMob() != observer) {
             return ThreatLevel.LOW;
         }
 
-        double health = target.getMaxHealth();
-        // 获取攻击力属性，如果没有则默认为 0
-        double damage = 0;
-        if (target.getAttributes().hasAttribute(net.minecraft.world.entity.ai.attributes.Attributes.ATTACK_DAMAGE)) {
-            damage = target.getAttributeValue(net.minecraft.world.entity.ai.attributes.Attributes.ATTACK_DAMAGE);
+        // 属性分级缓存在个体的属性表上，只在首次评估或修饰符变化后才读取属性
+        CachedThreat cache = (CachedThreat) target.getAttributes();
+        ThreatLevel level = cache.lotm$getThreat();
+        if (level == null) {
+            level = classify(target.getMaxHealth(), getAttackDamage(target));
+            cache.lotm$setThreat(level);
         }
+        return level;
+    }
+
+    /**
+     * 获取攻击力属性，如果没有则默认为 0
+     */
+    private static double getAttackDamage(LivingEntity entity) {
+        AttributeInstance attack = entity.getAttribute(Attributes.ATTACK_DAMAGE);
+        return attack == null ? 0.0 : attack.getValue();
+    }
 
+    private static ThreatLevel classify(double health, double damage) {
         // 简单的评分算法：生命值 + 攻击力 * 5
         double score = health + damage * 5;
 
@@ -94,8 +129,6 @@ public class ThreatEvaluator {
     }
 
     private static int getSequence(Player player) {
-        return player.getCapability(BeyonderStateProvider.CAPABILITY)
-                .map(state -> state.isBeyonder() ? state.getSequence() : 10)
-                .orElse(10);
+        return PerceptionEvaluator.getProfile(player).threatSequence();
     }
 }